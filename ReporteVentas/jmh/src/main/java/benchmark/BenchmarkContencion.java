@@ -0,0 +1,109 @@
+package benchmark;
+
+import java.util.concurrent.CountDownLatch;
+
+import modelo.Producto;
+import modelo.Vendedor;
+
+/**
+* Benchmark de contención al acumular ventas de Producto y Vendedor.
+*
+* Varios hilos incrementan los mismos pocos productos y vendedores, primero
+* con los métodos ...Concurrente del modelo (respaldados por un LongAdder que
+* se crea con el primer incremento) y luego con los métodos de un solo hilo
+* protegidos por synchronized como referencia.
+*
+* Uso: BenchmarkContencion [maxHilos] [productosCalientes] [operacionesPorHilo]
+*/
+public class BenchmarkContencion {
+
+ /**
+  * Método principal del benchmark.
+  */
+ public static void main(String[] args) throws InterruptedException {
+     int maxHilos = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+     int productosCalientes = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+     int operacionesPorHilo = args.length > 2 ? Integer.parseInt(args[2]) : 5_000_000;
+
+     System.out.println("hilos;modo;operaciones/s");
+     for (int hilos = 1; hilos <= maxHilos; hilos++) {
+         // Una ronda de calentamiento por cada modo antes de medir
+         ejecutar(hilos, productosCalientes, operacionesPorHilo / 10, true);
+         ejecutar(hilos, productosCalientes, operacionesPorHilo / 10, false);
+
+         double concurrente = ejecutar(hilos, productosCalientes, operacionesPorHilo, true);
+         double sincronizado = ejecutar(hilos, productosCalientes, operacionesPorHilo, false);
+         System.out.printf("%d;concurrente;%.0f%n", hilos, concurrente);
+         System.out.printf("%d;synchronized;%.0f%n", hilos, sincronizado);
+     }
+ }
+
+ /**
+  * Ejecuta una ronda del benchmark.
+  *
+  * @param hilos Cantidad de hilos que actualizan los acumuladores
+  * @param productosCalientes Cantidad de productos y vendedores compartidos
+  * @param operacionesPorHilo Incrementos que realiza cada hilo
+  * @param concurrente true para usar los acumuladores concurrentes
+  * @return Operaciones por segundo
+  * @throws InterruptedException Si el hilo principal es interrumpido
+  */
+ private static double ejecutar(int hilos, int productosCalientes, int operacionesPorHilo,
+                                boolean concurrente) throws InterruptedException {
+     Producto[] productos = new Producto[productosCalientes];
+     Vendedor[] vendedores = new Vendedor[productosCalientes];
+     for (int i = 0; i < productosCalientes; i++) {
+         productos[i] = new Producto("P" + i, "Producto " + i, 1000.0);
+         vendedores[i] = new Vendedor("CC", String.valueOf(i), "Vendedor", String.valueOf(i));
+     }
+
+     CountDownLatch inicio = new CountDownLatch(1);
+     Thread[] trabajadores = new Thread[hilos];
+     for (int h = 0; h < hilos; h++) {
+         int desplazamiento = h;
+         trabajadores[h] = new Thread(() -> {
+             try {
+                 inicio.await();
+             } catch (InterruptedException e) {
+                 Thread.currentThread().interrupt();
+                 return;
+             }
+             for (int i = 0; i < operacionesPorHilo; i++) {
+                 int indice = (i + desplazamiento) % productosCalientes;
+                 Producto producto = productos[indice];
+                 Vendedor vendedor = vendedores[indice];
+                 if (concurrente) {
+                     producto.incrementarCantidadVendidaConcurrente(1);
+                     vendedor.incrementarVentasCentavosConcurrente(producto.getPrecioCentavos());
+                 } else {
+                     synchronized (producto) {
+                         producto.incrementarCantidadVendida(1);
+                     }
+                     synchronized (vendedor) {
+                         vendedor.incrementarVentasCentavos(producto.getPrecioCentavos());
+                     }
+                 }
+             }
+         });
+         trabajadores[h].start();
+     }
+
+     long inicioNanos = System.nanoTime();
+     inicio.countDown();
+     for (Thread trabajador : trabajadores) {
+         trabajador.join();
+     }
+     long duracionNanos = System.nanoTime() - inicioNanos;
+
+     // Verificar que no se perdieron actualizaciones
+     long total = 0;
+     for (int i = 0; i < productosCalientes; i++) {
+         total += productos[i].getCantidadVendida();
+     }
+     if (total != (long) hilos * operacionesPorHilo) {
+         throw new IllegalStateException("Se perdieron actualizaciones: " + total);
+     }
+
+     return (double) hilos * operacionesPorHilo * 1_000_000_000L / duracionNanos;
+ }
+}
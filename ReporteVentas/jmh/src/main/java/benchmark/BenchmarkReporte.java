@@ -0,0 +1,257 @@
+package benchmark;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import main.GenerateInfoFiles;
+import modelo.Producto;
+import modelo.Vendedor;
+import utils.ConfiguracionIngesta;
+import utils.LectorMapeado;
+import utils.UtilsFile;
+
+/**
+* Benchmark de las etapas del reporte de ventas.
+*
+* Mide por separado leerProductos, leerVendedores, procesarArchivosVentas y
+* los dos generarReporte*, además del proceso completo, sobre conjuntos de
+* datos generados con GenerateInfoFiles. Cada medición reporta tiempo por
+* operación, operaciones por segundo, bytes reservados por operación y
+* actividad del recolector de basura.
+*
+* Los bytes reservados se miden en el hilo que ejecuta el benchmark, por lo
+* que con --paralelismo mayor que 1 no incluyen lo reservado por los hilos
+* del pool.
+*
+* Uso: BenchmarkReporte [--escalas=PEQUENA,MEDIANA] [--calentamiento=N]
+*      [--iteraciones=N] [--datos=directorio] [--paralelismo=N] [--mmap]
+*/
+public class BenchmarkReporte {
+
+ /**
+  * Escalas de datos disponibles (vendedores y productos).
+  */
+ enum Escala {
+     PEQUENA(10, 30),
+     MEDIANA(10_000, 30),
+     GRANDE(10_000, 100_000),
+     MASIVA(1_000_000, 100_000);
+
+     final int vendedores;
+     final int productos;
+
+     Escala(int vendedores, int productos) {
+         this.vendedores = vendedores;
+         this.productos = productos;
+     }
+ }
+
+ /**
+  * Operación medida por el benchmark.
+  */
+ @FunctionalInterface
+ private interface Operacion {
+     void ejecutar() throws IOException;
+ }
+
+ private static final com.sun.management.ThreadMXBean HILOS =
+         (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+ /** Semilla de los conjuntos de datos generados. */
+ private static final long SEMILLA = 42L;
+
+ /** Evita que el JIT elimine resultados no usados. */
+ private static volatile Object sumidero;
+
+ private final int calentamiento;
+ private final int iteraciones;
+ private final ConfiguracionIngesta configuracion;
+
+ private BenchmarkReporte(int calentamiento, int iteraciones, ConfiguracionIngesta configuracion) {
+     this.calentamiento = calentamiento;
+     this.iteraciones = iteraciones;
+     this.configuracion = configuracion;
+ }
+
+ /**
+  * Método principal del benchmark.
+  */
+ public static void main(String[] args) throws IOException {
+     String escalas = leerOpcion(args, "--escalas", "PEQUENA,MEDIANA");
+     Path datos = Paths.get(leerOpcion(args, "--datos", "benchmark-datos"));
+     ConfiguracionIngesta configuracion = new ConfiguracionIngesta();
+     configuracion.setParalelismo(Integer.parseInt(leerOpcion(args, "--paralelismo", "1")));
+     configuracion.setMapeado(List.of(args).contains("--mmap"));
+
+     BenchmarkReporte benchmark = new BenchmarkReporte(
+             Integer.parseInt(leerOpcion(args, "--calentamiento", "3")),
+             Integer.parseInt(leerOpcion(args, "--iteraciones", "5")),
+             configuracion);
+
+     System.out.println("escala;benchmark;ms/op;error;op/s;MB reservados/op;gc/op;ms gc/op");
+     for (String nombre : escalas.split(",")) {
+         Escala escala = Escala.valueOf(nombre.trim());
+         Path directorio = prepararDatos(datos, escala);
+         benchmark.ejecutarEscala(escala, directorio);
+     }
+ }
+
+ /**
+  * Genera el conjunto de datos de una escala si todavía no existe. Los datos
+  * se generan con una semilla fija y se reutilizan entre ejecuciones para que
+  * las mediciones sean comparables.
+  *
+  * @param datos Directorio base de los conjuntos de datos
+  * @param escala Escala a preparar
+  * @return Directorio con los archivos de la escala
+  * @throws IOException Si ocurre un error de escritura
+  */
+ static Path prepararDatos(Path datos, Escala escala) throws IOException {
+     Path directorio = datos.resolve(escala.name().toLowerCase());
+     if (!Files.exists(directorio.resolve("vendedores.txt"))) {
+         GenerateInfoFiles.generarArchivos(directorio.toString(), escala.vendedores, escala.productos,
+                 5, 20, SEMILLA, Runtime.getRuntime().availableProcessors());
+     }
+     return directorio;
+ }
+
+ /**
+  * Ejecuta todos los benchmarks sobre una escala.
+  */
+ private void ejecutarEscala(Escala escala, Path directorio) throws IOException {
+     String productosPath = directorio.resolve("productos.txt").toString();
+     String vendedoresPath = directorio.resolve("vendedores.txt").toString();
+     String carpeta = directorio.toString();
+     Path reporteVendedores = Files.createTempFile("reporte_vendedores", ".csv");
+     Path reporteProductos = Files.createTempFile("reporte_productos", ".csv");
+
+     try {
+         medir(escala, "leerProductos", () -> sumidero = leerProductos(productosPath));
+         medir(escala, "leerVendedores", () -> sumidero = leerVendedores(vendedoresPath));
+
+         // El procesamiento necesita mapas nuevos en cada iteración; se preparan fuera de la medición
+         List<Map<String, Producto>> productosPorIteracion = new ArrayList<>();
+         List<Map<String, Vendedor>> vendedoresPorIteracion = new ArrayList<>();
+         for (int i = 0; i < calentamiento + iteraciones; i++) {
+             productosPorIteracion.add(leerProductos(productosPath));
+             vendedoresPorIteracion.add(leerVendedores(vendedoresPath));
+         }
+         int[] iteracion = {0};
+         medir(escala, "procesarArchivosVentas", () -> {
+             int i = iteracion[0]++;
+             UtilsFile.procesarArchivosVentas(carpeta, vendedoresPorIteracion.get(i),
+                     productosPorIteracion.get(i), configuracion);
+         });
+
+         Map<String, Producto> productos = productosPorIteracion.get(0);
+         Map<String, Vendedor> vendedores = vendedoresPorIteracion.get(0);
+         productosPorIteracion.clear();
+         vendedoresPorIteracion.clear();
+         medir(escala, "generarReporteVendedores", () ->
+                 UtilsFile.generarReporteVendedores(vendedores.values(), reporteVendedores.toString()));
+         medir(escala, "generarReporteProductos", () ->
+                 UtilsFile.generarReporteProductos(productos.values(), reporteProductos.toString()));
+
+         medir(escala, "completo", () -> {
+             Map<String, Producto> p = leerProductos(productosPath);
+             Map<String, Vendedor> v = leerVendedores(vendedoresPath);
+             UtilsFile.procesarArchivosVentas(carpeta, v, p, configuracion);
+             UtilsFile.generarReporteVendedores(v.values(), reporteVendedores.toString());
+             UtilsFile.generarReporteProductos(p.values(), reporteProductos.toString());
+         });
+     } finally {
+         Files.deleteIfExists(reporteVendedores);
+         Files.deleteIfExists(reporteProductos);
+     }
+ }
+
+ private Map<String, Producto> leerProductos(String path) throws IOException {
+     return configuracion.isMapeado() ? LectorMapeado.leerProductos(path) : UtilsFile.leerProductos(path);
+ }
+
+ private Map<String, Vendedor> leerVendedores(String path) throws IOException {
+     return configuracion.isMapeado() ? LectorMapeado.leerVendedores(path) : UtilsFile.leerVendedores(path);
+ }
+
+ /**
+  * Ejecuta una operación con iteraciones de calentamiento y de medición e
+  * imprime los resultados.
+  *
+  * @param escala Escala de los datos
+  * @param nombre Nombre del benchmark
+  * @param operacion Operación a medir
+  * @throws IOException Si la operación falla
+  */
+ private void medir(Escala escala, String nombre, Operacion operacion) throws IOException {
+     for (int i = 0; i < calentamiento; i++) {
+         operacion.ejecutar();
+     }
+
+     double[] tiempos = new double[iteraciones];
+     long bytesReservados = 0;
+     long colecciones = 0;
+     long tiempoGc = 0;
+     long hilo = Thread.currentThread().getId();
+     for (int i = 0; i < iteraciones; i++) {
+         long gcAntes = totalColecciones();
+         long tiempoGcAntes = totalTiempoGc();
+         long reservadosAntes = HILOS.getThreadAllocatedBytes(hilo);
+         long inicio = System.nanoTime();
+
+         operacion.ejecutar();
+
+         tiempos[i] = (System.nanoTime() - inicio) / 1_000_000.0;
+         bytesReservados += HILOS.getThreadAllocatedBytes(hilo) - reservadosAntes;
+         colecciones += totalColecciones() - gcAntes;
+         tiempoGc += totalTiempoGc() - tiempoGcAntes;
+     }
+
+     double media = 0;
+     for (double tiempo : tiempos) {
+         media += tiempo;
+     }
+     media /= iteraciones;
+     double varianza = 0;
+     for (double tiempo : tiempos) {
+         varianza += (tiempo - media) * (tiempo - media);
+     }
+     double desviacion = iteraciones > 1 ? Math.sqrt(varianza / (iteraciones - 1)) : 0;
+
+     System.out.printf("%s;%s;%.3f;%.3f;%.2f;%.2f;%.2f;%.2f%n", escala, nombre, media, desviacion,
+             1000.0 / media, bytesReservados / (1024.0 * 1024.0) / iteraciones,
+             (double) colecciones / iteraciones, (double) tiempoGc / iteraciones);
+ }
+
+ private static long totalColecciones() {
+     long total = 0;
+     for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+         total += Math.max(0, gc.getCollectionCount());
+     }
+     return total;
+ }
+
+ private static long totalTiempoGc() {
+     long total = 0;
+     for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+         total += Math.max(0, gc.getCollectionTime());
+     }
+     return total;
+ }
+
+ private static String leerOpcion(String[] args, String nombre, String valorPorDefecto) {
+     String prefijo = nombre + "=";
+     for (String arg : args) {
+         if (arg.startsWith(prefijo)) {
+             return arg.substring(prefijo.length());
+         }
+     }
+     return valorPorDefecto;
+ }
+}
@@ -0,0 +1,99 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import modelo.Producto;
+import modelo.Vendedor;
+
+/**
+* Versión JMH de BenchmarkContencion: varios hilos acumulan ventas sobre los
+* mismos pocos productos y vendedores, con los métodos ...Concurrente del
+* modelo o con sus métodos de un solo hilo protegidos por synchronized.
+*
+* La cantidad de hilos se cambia con -t de JMH, por ejemplo
+* {@code java -jar target/benchmarks.jar ContencionJmh -t 4}.
+*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class ContencionJmh {
+
+ /** Cantidad de productos y vendedores compartidos por los hilos. */
+ @Param({"4"})
+ int productosCalientes;
+
+ private Producto[] productos;
+ private Vendedor[] vendedores;
+
+ /**
+  * Índice del siguiente producto de cada hilo. Cada hilo empieza en uno
+  * distinto, como en BenchmarkContencion.
+  */
+ @State(Scope.Thread)
+ public static class Hilo {
+     int siguiente;
+
+     @Setup
+     public void preparar(ThreadParams parametros) {
+         siguiente = parametros.getThreadIndex();
+     }
+ }
+
+ /**
+  * Crea los productos y vendedores compartidos.
+  */
+ @Setup
+ public void preparar() {
+     productos = new Producto[productosCalientes];
+     vendedores = new Vendedor[productosCalientes];
+     for (int i = 0; i < productosCalientes; i++) {
+         productos[i] = new Producto("P" + i, "Producto " + i, 1000.0);
+         vendedores[i] = new Vendedor("CC", String.valueOf(i), "Vendedor", String.valueOf(i));
+     }
+ }
+
+ /**
+  * Acumula una venta con los métodos concurrentes del modelo.
+  */
+ @Benchmark
+ public void concurrente(Hilo hilo) {
+     int indice = (hilo.siguiente++ & Integer.MAX_VALUE) % productosCalientes;
+     Producto producto = productos[indice];
+     producto.incrementarCantidadVendidaConcurrente(1);
+     vendedores[indice].incrementarVentasCentavosConcurrente(producto.getPrecioCentavos());
+ }
+
+ /**
+  * Acumula una venta con los métodos de un solo hilo del modelo.
+  */
+ @Benchmark
+ public void sincronizado(Hilo hilo) {
+     int indice = (hilo.siguiente++ & Integer.MAX_VALUE) % productosCalientes;
+     Producto producto = productos[indice];
+     Vendedor vendedor = vendedores[indice];
+     synchronized (producto) {
+         producto.incrementarCantidadVendida(1);
+     }
+     synchronized (vendedor) {
+         vendedor.incrementarVentasCentavos(producto.getPrecioCentavos());
+     }
+ }
+}
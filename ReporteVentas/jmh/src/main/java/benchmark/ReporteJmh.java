@@ -0,0 +1,154 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import modelo.Producto;
+import modelo.Vendedor;
+import utils.ConfiguracionIngesta;
+import utils.LectorMapeado;
+import utils.UtilsFile;
+
+/**
+* Versión JMH de BenchmarkReporte: mide leerProductos, leerVendedores,
+* procesarArchivosVentas, los dos generarReporte* y el proceso completo sobre
+* los conjuntos de datos de BenchmarkReporte, que se generan la primera vez
+* en la carpeta del parámetro datos.
+*
+* Por defecto mide las cuatro escalas; GRANDE y MASIVA (1M vendedores y 100k
+* productos) tardan bastante más en generarse y medirse, así que para una
+* corrida corta se elige la escala con -p, por ejemplo -p escala=PEQUENA.
+*
+* Los bytes reservados y la actividad del recolector se obtienen con el
+* perfilador de JMH, por ejemplo
+* {@code java -jar target/benchmarks.jar ReporteJmh -p escala=MEDIANA -prof gc}.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Dfile.encoding=UTF-8", "-Dsun.jnu.encoding=UTF-8"})
+@State(Scope.Benchmark)
+public class ReporteJmh {
+
+ @Param({"PEQUENA", "MEDIANA", "GRANDE", "MASIVA"})
+ String escala;
+
+ @Param({"false"})
+ boolean mmap;
+
+ @Param({"1"})
+ int paralelismo;
+
+ @Param({"benchmark-datos"})
+ String datos;
+
+ private String productosPath;
+ private String vendedoresPath;
+ private String carpeta;
+ private ConfiguracionIngesta configuracion;
+ private Map<String, Producto> productos;
+ private Map<String, Vendedor> vendedores;
+ private Path reporteVendedores;
+ private Path reporteProductos;
+
+ /**
+  * Mapas recién leídos para cada invocación de procesarArchivosVentas, que
+  * acumula sobre ellos. Se leen fuera de la medición.
+  */
+ @State(Scope.Thread)
+ public static class MapasNuevos {
+     Map<String, Producto> productos;
+     Map<String, Vendedor> vendedores;
+
+     @Setup(Level.Invocation)
+     public void leer(ReporteJmh estado) throws IOException {
+         productos = estado.leerProductos();
+         vendedores = estado.leerVendedores();
+     }
+ }
+
+ /**
+  * Prepara los datos de la escala y los mapas ya procesados que usan los
+  * benchmarks de los reportes.
+  */
+ @Setup(Level.Trial)
+ public void preparar() throws IOException {
+     Path directorio = BenchmarkReporte.prepararDatos(Paths.get(datos), BenchmarkReporte.Escala.valueOf(escala));
+     productosPath = directorio.resolve("productos.txt").toString();
+     vendedoresPath = directorio.resolve("vendedores.txt").toString();
+     carpeta = directorio.toString();
+     configuracion = new ConfiguracionIngesta();
+     configuracion.setParalelismo(paralelismo);
+     configuracion.setMapeado(mmap);
+
+     productos = leerProductos();
+     vendedores = leerVendedores();
+     UtilsFile.procesarArchivosVentas(carpeta, vendedores, productos, configuracion);
+     reporteVendedores = Files.createTempFile("reporte_vendedores", ".csv");
+     reporteProductos = Files.createTempFile("reporte_productos", ".csv");
+ }
+
+ /**
+  * Borra los reportes temporales.
+  */
+ @TearDown(Level.Trial)
+ public void limpiar() throws IOException {
+     Files.deleteIfExists(reporteVendedores);
+     Files.deleteIfExists(reporteProductos);
+ }
+
+ @Benchmark
+ public Map<String, Producto> leerProductos() throws IOException {
+     return mmap ? LectorMapeado.leerProductos(productosPath) : UtilsFile.leerProductos(productosPath);
+ }
+
+ @Benchmark
+ public Map<String, Vendedor> leerVendedores() throws IOException {
+     return mmap ? LectorMapeado.leerVendedores(vendedoresPath) : UtilsFile.leerVendedores(vendedoresPath);
+ }
+
+ @Benchmark
+ public Map<String, Producto> procesarArchivosVentas(MapasNuevos mapas) throws IOException {
+     UtilsFile.procesarArchivosVentas(carpeta, mapas.vendedores, mapas.productos, configuracion);
+     return mapas.productos;
+ }
+
+ @Benchmark
+ public void generarReporteVendedores() throws IOException {
+     UtilsFile.generarReporteVendedores(vendedores.values(), reporteVendedores.toString());
+ }
+
+ @Benchmark
+ public void generarReporteProductos() throws IOException {
+     UtilsFile.generarReporteProductos(productos.values(), reporteProductos.toString());
+ }
+
+ @Benchmark
+ public Map<String, Producto> completo() throws IOException {
+     Map<String, Producto> p = leerProductos();
+     Map<String, Vendedor> v = leerVendedores();
+     UtilsFile.procesarArchivosVentas(carpeta, v, p, configuracion);
+     UtilsFile.generarReporteVendedores(v.values(), reporteVendedores.toString());
+     UtilsFile.generarReporteProductos(p.values(), reporteProductos.toString());
+     return p;
+ }
+}
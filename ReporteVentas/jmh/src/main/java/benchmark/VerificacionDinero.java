@@ -0,0 +1,212 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import modelo.Dinero;
+import modelo.Producto;
+import utils.LectorMapeado;
+import utils.UtilsFile;
+
+/**
+* Verifica la conversión de texto a centavos de Dinero.parsearCentavos y de
+* los lectores de productos (UtilsFile y LectorMapeado, que tiene su propio
+* analizador de bytes):
+* <ul>
+* <li>los decimales simples dan lo mismo que BigDecimal redondeado a dos
+* decimales con RoundingMode.HALF_UP, es decir, desde 5 en el tercer
+* decimal el monto se aleja de cero;</li>
+* <li>con hasta dos decimales dan lo mismo que la conversión anterior,
+* Dinero.aCentavos(Double.parseDouble(texto));</li>
+* <li>los demás formatos (notación científica, espacios, más de 16 dígitos
+* enteros) dan lo mismo que Double.parseDouble, o fallan igual que él;</li>
+* <li>los precios escritos con Double.toString(centavos / 100.0), como los de
+* GenerateInfoFiles y el reporte de productos, vuelven al mismo centavo.</li>
+* </ul>
+*
+* Uso: VerificacionDinero [textosAlAzar] [semilla]
+*/
+public class VerificacionDinero {
+
+ /** Productos por archivo temporal al verificar los lectores. */
+ private static final int PRODUCTOS_POR_ARCHIVO = 200_000;
+
+ /** Centavos por debajo de los cuales Double.parseDouble(texto) * 100 conserva el centavo. */
+ private static final long MAXIMO_DOUBLE_EXACTO = 1_000_000_000_000_000L;
+
+ /**
+  * Método principal de la verificación.
+  */
+ public static void main(String[] args) throws IOException {
+     int textosAlAzar = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+     long semilla = args.length > 1 ? Long.parseLong(args[1]) : 20240531L;
+     SplittableRandom azar = new SplittableRandom(semilla);
+
+     List<String> paraLectores = new ArrayList<>();
+     for (String texto : new String[]{"0", "0.0", "-0.005", "0.005", "0.0049", "1.", ".5", "+.5", "-.5", "+7",
+                                      "19.99", "19.995", "19.994999", "891870.0", "9999999999999999.99",
+                                      "9999999999999999.995", "99999999999999999", "1e3", "1.5E2", "-2.5e-3",
+                                      " 12.5", "12.5 ", "1,5", ".", "-", "", "abc", "1.2.3", "0x10", "NaN"}) {
+         verificar(texto);
+         paraLectores.add(texto);
+     }
+     for (int i = 0; i < textosAlAzar; i++) {
+         String texto = textoAlAzar(azar);
+         verificar(texto);
+         if (i % 25 == 0) {
+             paraLectores.add(texto);
+         }
+     }
+     System.out.println("Textos verificados: " + (textosAlAzar + 30));
+
+     for (int i = 0; i < textosAlAzar; i++) {
+         long centavos = azar.nextLong(-1_000_000_000_000L, 1_000_000_000_000L);
+         String texto = Double.toString(centavos / 100.0);
+         long leido = Dinero.parsearCentavos(texto);
+         if (leido != centavos) {
+             throw new IllegalStateException("parsearCentavos(\"" + texto + "\") = " + leido
+                     + ", se esperaba " + centavos);
+         }
+         if (i % 25 == 0) {
+             paraLectores.add(texto);
+         }
+     }
+     System.out.println("Precios de Double.toString verificados: " + textosAlAzar);
+
+     verificarLectores(paraLectores);
+     System.out.println("Precios leídos por UtilsFile y LectorMapeado verificados: " + paraLectores.size());
+ }
+
+ /**
+  * Genera un texto con signo opcional, hasta 18 dígitos enteros y hasta 6
+  * decimales; a veces le agrega un exponente o espacios.
+  */
+ private static String textoAlAzar(SplittableRandom azar) {
+     StringBuilder texto = new StringBuilder();
+     switch (azar.nextInt(8)) {
+         case 0 -> texto.append('-');
+         case 1 -> texto.append('+');
+         default -> { }
+     }
+     int enteros = azar.nextInt(10) < 8 ? azar.nextInt(0, 8) : azar.nextInt(0, 19);
+     for (int i = 0; i < enteros; i++) {
+         texto.append((char) ('0' + azar.nextInt(10)));
+     }
+     int decimales = azar.nextInt(-1, 7);
+     if (decimales >= 0) {
+         texto.append('.');
+         for (int i = 0; i < decimales; i++) {
+             // Abunda el 5 para cubrir los empates del redondeo
+             texto.append(azar.nextInt(4) == 0 ? '5' : (char) ('0' + azar.nextInt(10)));
+         }
+     }
+     switch (azar.nextInt(40)) {
+         case 0 -> texto.append('e').append(azar.nextInt(-3, 4));
+         case 1 -> texto.insert(0, ' ');
+         case 2 -> texto.append(' ');
+         default -> { }
+     }
+     return texto.toString();
+ }
+
+ /**
+  * Compara parsearCentavos con el resultado esperado para un texto.
+  */
+ private static void verificar(String texto) {
+     Long esperado = esperado(texto);
+     Long obtenido;
+     try {
+         obtenido = Dinero.parsearCentavos(texto);
+     } catch (NumberFormatException e) {
+         obtenido = null;
+     }
+     if (esperado == null ? obtenido != null : !esperado.equals(obtenido)) {
+         throw new IllegalStateException("parsearCentavos(\"" + texto + "\") = " + obtenido
+                 + ", se esperaba " + esperado);
+     }
+ }
+
+ /**
+  * Calcula los centavos esperados para un texto, o null si debe fallar.
+  */
+ private static Long esperado(String texto) {
+     if (esDecimalSimple(texto)) {
+         long centavos = new BigDecimal(texto).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+         int punto = texto.indexOf('.');
+         boolean hastaDosDecimales = punto < 0 || texto.length() - punto - 1 <= 2;
+         if (hastaDosDecimales && Math.abs(centavos) < MAXIMO_DOUBLE_EXACTO) {
+             long anterior = Dinero.aCentavos(Double.parseDouble(texto));
+             if (anterior != centavos) {
+                 throw new IllegalStateException("Double.parseDouble(\"" + texto + "\") da " + anterior
+                         + " centavos y BigDecimal " + centavos);
+             }
+         }
+         return centavos;
+     }
+     try {
+         return Dinero.aCentavos(Double.parseDouble(texto));
+     } catch (NumberFormatException e) {
+         return null;
+     }
+ }
+
+ /**
+  * Indica si el texto es [+-]dígitos[.dígitos] con al menos un dígito y
+  * hasta 16 dígitos enteros, el formato que parsearCentavos convierte sin
+  * pasar por double.
+  */
+ private static boolean esDecimalSimple(String texto) {
+     return texto.matches("[+-]?\\d{0,16}(\\.\\d*)?") && texto.matches(".*\\d.*");
+ }
+
+ /**
+  * Escribe los textos como precios de un archivo de productos y compara lo
+  * que leen UtilsFile.leerProductos y LectorMapeado.leerProductos con
+  * Dinero.parsearCentavos. Los textos que no son números se omiten, porque
+  * los lectores detienen la lectura con NumberFormatException.
+  */
+ private static void verificarLectores(List<String> textos) throws IOException {
+     Path archivo = Files.createTempFile("productos", ".txt");
+     try {
+         for (int desde = 0; desde < textos.size(); desde += PRODUCTOS_POR_ARCHIVO) {
+             List<String> lote = textos.subList(desde, Math.min(desde + PRODUCTOS_POR_ARCHIVO, textos.size()));
+             List<Long> esperados = new ArrayList<>();
+             try (BufferedWriter writer = Files.newBufferedWriter(archivo)) {
+                 for (String texto : lote) {
+                     Long centavos = esperado(texto);
+                     if (centavos != null && !texto.isEmpty()) {
+                         writer.write("P" + esperados.size() + ";Producto;" + texto);
+                         writer.newLine();
+                         esperados.add(centavos);
+                     }
+                 }
+             }
+             comparar("UtilsFile", UtilsFile.leerProductos(archivo.toString()), esperados);
+             comparar("LectorMapeado", LectorMapeado.leerProductos(archivo.toString()), esperados);
+         }
+     } finally {
+         Files.deleteIfExists(archivo);
+     }
+ }
+
+ private static void comparar(String lector, Map<String, Producto> productos, List<Long> esperados) {
+     if (productos.size() != esperados.size()) {
+         throw new IllegalStateException(lector + " leyó " + productos.size() + " productos de " + esperados.size());
+     }
+     for (int i = 0; i < esperados.size(); i++) {
+         long precio = productos.get("P" + i).getPrecioCentavos();
+         if (precio != esperados.get(i)) {
+             throw new IllegalStateException(lector + " leyó " + precio + " centavos para P" + i
+                     + ", se esperaba " + esperados.get(i));
+         }
+     }
+ }
+}
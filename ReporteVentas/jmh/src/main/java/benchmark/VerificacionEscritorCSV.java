@@ -0,0 +1,176 @@
+package benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import modelo.Dinero;
+import utils.EscritorCSV;
+
+/**
+* Verifica que EscritorCSV escribe los mismos bytes que las conversiones del
+* JDK a las que reemplaza:
+* <ul>
+* <li>escribirDecimal contra Double.toString(centavos / 100.0), que usaba
+* Producto.toReportCSV para el precio, incluido el paso a
+* Double.toString por encima de 10^7;</li>
+* <li>escribirCentavos y Dinero.formatear contra BigDecimal con escala 2 y,
+* donde el double es exacto al centavo, contra
+* String.format(Locale.ROOT, "%.2f"), que usaba Vendedor.toReportCSV;</li>
+* <li>escribirEntero contra Long.toString y escribir contra
+* String.getBytes(UTF_8), incluidos caracteres de 2, 3 y 4 bytes y
+* sustitutos sueltos.</li>
+* </ul>
+* Se prueban todos los montos de -10^6 a 10^6 centavos, los bordes de cada
+* potencia de 10 y montos al azar en todo el rango de long.
+*
+* Uso: VerificacionEscritorCSV [valoresAlAzar] [semilla]
+*/
+public class VerificacionEscritorCSV {
+
+ /** Filas por archivo temporal. */
+ private static final int FILAS_POR_LOTE = 1 << 20;
+
+ /** Mayor monto en centavos cuyo valor / 100.0 conserva el centavo al formatear. */
+ private static final long MAXIMO_DOUBLE_EXACTO = 1L << 52;
+
+ /**
+  * Método principal de la verificación.
+  */
+ public static void main(String[] args) throws IOException {
+     int valoresAlAzar = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+     long semilla = args.length > 1 ? Long.parseLong(args[1]) : 20240531L;
+
+     Path archivo = Files.createTempFile("verificacion", ".csv");
+     try {
+         Lote lote = new Lote(archivo);
+         for (long centavos = -1_000_000; centavos <= 1_000_000; centavos++) {
+             lote.agregar(centavos);
+         }
+         for (long potencia = 10; potencia > 0 && potencia <= Long.MAX_VALUE / 10; potencia *= 10) {
+             for (long delta = -2; delta <= 2; delta++) {
+                 lote.agregar(potencia + delta);
+                 lote.agregar(-potencia - delta);
+             }
+         }
+         for (long centavos : new long[]{Long.MAX_VALUE, Long.MIN_VALUE + 1, 999_999_999, 1_000_000_000,
+                                         MAXIMO_DOUBLE_EXACTO, -MAXIMO_DOUBLE_EXACTO}) {
+             lote.agregar(centavos);
+         }
+         SplittableRandom azar = new SplittableRandom(semilla);
+         for (int i = 0; i < valoresAlAzar; i++) {
+             // Mitad en el rango de los precios y totales habituales, mitad en todo el rango de long
+             lote.agregar(i % 2 == 0 ? azar.nextLong(-10_000_000_000L, 10_000_000_000L) : azar.nextLong());
+         }
+         lote.verificar();
+         System.out.println("Montos verificados: " + lote.verificados);
+
+         verificarTexto(archivo, azar);
+         System.out.println("Textos UTF-8 verificados");
+     } finally {
+         Files.deleteIfExists(archivo);
+     }
+ }
+
+ /**
+  * Montos acumulados para escribirlos con EscritorCSV y compararlos con el
+  * texto esperado, de a FILAS_POR_LOTE.
+  */
+ private static class Lote {
+     private final Path archivo;
+     private final long[] montos = new long[FILAS_POR_LOTE];
+     private int cantidad;
+     private long verificados;
+
+     Lote(Path archivo) {
+         this.archivo = archivo;
+     }
+
+     void agregar(long centavos) throws IOException {
+         montos[cantidad++] = centavos;
+         if (cantidad == montos.length) {
+             verificar();
+         }
+     }
+
+     /**
+      * Escribe cada monto como entero;centavos;decimal y compara el archivo
+      * con el texto de las conversiones del JDK.
+      */
+     void verificar() throws IOException {
+         StringBuilder esperado = new StringBuilder(cantidad * 48);
+         try (EscritorCSV writer = new EscritorCSV(archivo)) {
+             for (int i = 0; i < cantidad; i++) {
+                 long centavos = montos[i];
+                 writer.escribirEntero(centavos).escribir(';')
+                       .escribirCentavos(centavos).escribir(';')
+                       .escribirDecimal(centavos).nuevaLinea();
+
+                 String dosDecimales = BigDecimal.valueOf(centavos, 2).toPlainString();
+                 String formateado = Dinero.formatear(centavos);
+                 if (!formateado.equals(dosDecimales)) {
+                     throw new IllegalStateException("Dinero.formatear(" + centavos + ") = " + formateado
+                             + ", se esperaba " + dosDecimales);
+                 }
+                 if (Math.abs(centavos) <= MAXIMO_DOUBLE_EXACTO) {
+                     String conFormato = String.format(Locale.ROOT, "%.2f", centavos / 100.0);
+                     if (!conFormato.equals(dosDecimales)) {
+                         throw new IllegalStateException("String.format de " + centavos + " = " + conFormato
+                                 + ", se esperaba " + dosDecimales);
+                     }
+                 }
+                 esperado.append(centavos).append(';')
+                         .append(dosDecimales).append(';')
+                         .append(Double.toString(centavos / 100.0)).append('\n');
+             }
+         }
+         comparar(esperado.toString(), Files.readAllBytes(archivo));
+         verificados += cantidad;
+         cantidad = 0;
+     }
+ }
+
+ /**
+  * Compara lo escrito por EscritorCSV.escribir con String.getBytes para
+  * textos al azar con caracteres de todos los largos en UTF-8.
+  */
+ private static void verificarTexto(Path archivo, SplittableRandom azar) throws IOException {
+     StringBuilder esperado = new StringBuilder();
+     try (EscritorCSV writer = new EscritorCSV(archivo)) {
+         for (int i = 0; i < 200_000; i++) {
+             StringBuilder texto = new StringBuilder();
+             int largo = azar.nextInt(1, 40);
+             for (int j = 0; j < largo; j++) {
+                 switch (azar.nextInt(6)) {
+                     case 0 -> texto.append((char) azar.nextInt(0x20, 0x80));
+                     case 1 -> texto.append((char) azar.nextInt(0x80, 0x800));
+                     case 2 -> texto.append((char) azar.nextInt(0x800, 0xD800));
+                     case 3 -> texto.appendCodePoint(azar.nextInt(0x10000, 0x110000));
+                     case 4 -> texto.append((char) azar.nextInt(0xD800, 0xE000));
+                     default -> texto.append("áéíóúñÑ€");
+                 }
+             }
+             writer.escribir(texto).nuevaLinea();
+             esperado.append(texto).append('\n');
+         }
+     }
+     comparar(esperado.toString(), Files.readAllBytes(archivo));
+ }
+
+ private static void comparar(String esperado, byte[] escrito) {
+     byte[] bytesEsperados = esperado.getBytes(StandardCharsets.UTF_8);
+     int diferencia = Arrays.mismatch(bytesEsperados, escrito);
+     if (diferencia >= 0) {
+         int inicio = Math.max(0, diferencia - 40);
+         throw new IllegalStateException("EscritorCSV difiere en el byte " + diferencia + ": se esperaba \""
+                 + new String(bytesEsperados, inicio, Math.min(80, bytesEsperados.length - inicio), StandardCharsets.UTF_8)
+                 + "\", se escribió \""
+                 + new String(escrito, inicio, Math.min(80, escrito.length - inicio), StandardCharsets.UTF_8) + "\"");
+     }
+ }
+}
@@ -0,0 +1,143 @@
+package benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import utils.IndiceIds;
+
+/**
+* Verifica IndiceIds contra un HashMap de referencia: cada ID recibe el
+* siguiente índice denso la primera vez y el mismo después, y se encuentra
+* igual desde un String, desde un rango de un texto y desde los bytes de un
+* buffer, agregado de cualquiera de las dos formas.
+*
+* Los IDs mezclan los formatos codificables (una letra mayúscula opcional y
+* hasta 16 dígitos, con rangos consecutivos que forman racimos en la tabla
+* de direccionamiento abierto y variantes con ceros a la izquierda como P01
+* y P001) con los que van al HashMap auxiliar (minúsculas, 17 dígitos, otros
+* caracteres, texto no ASCII). El índice empieza con capacidad 1 para pasar
+* por todas las duplicaciones de la tabla, y también se prueba con la
+* capacidad esperada exacta.
+*
+* Uso: VerificacionIndiceIds [ids] [semilla]
+*/
+public class VerificacionIndiceIds {
+
+ /**
+  * Método principal de la verificación.
+  */
+ public static void main(String[] args) {
+     int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+     long semilla = args.length > 1 ? Long.parseLong(args[1]) : 20240531L;
+     SplittableRandom azar = new SplittableRandom(semilla);
+
+     List<String> ids = new ArrayList<>(cantidad);
+     for (int i = 0; i < cantidad; i++) {
+         ids.add(idAlAzar(azar, i));
+     }
+     List<String> ausentes = new ArrayList<>();
+     for (int i = 0; i < cantidad / 10; i++) {
+         ausentes.add(idAlAzar(azar, cantidad + i));
+     }
+
+     verificar(new IndiceIds(1), ids, ausentes, azar);
+     verificar(new IndiceIds(cantidad), ids, ausentes, azar);
+     System.out.println("IDs verificados: " + cantidad + " (dos índices), ausentes: " + ausentes.size());
+ }
+
+ /**
+  * Genera un ID de alguno de los formatos. El número de orden produce
+  * rangos consecutivos, como los IDs de GenerateInfoFiles.
+  */
+ private static String idAlAzar(SplittableRandom azar, int orden) {
+     switch (azar.nextInt(10)) {
+         case 0, 1, 2:
+             return "P" + String.format("%03d", orden);
+         case 3, 4:
+             return Long.toString(1_000_000_000L + orden);
+         case 5: {
+             StringBuilder id = new StringBuilder();
+             if (azar.nextBoolean()) {
+                 id.append((char) ('A' + azar.nextInt(26)));
+             }
+             int digitos = azar.nextInt(1, 17);
+             for (int i = 0; i < digitos; i++) {
+                 id.append((char) ('0' + azar.nextInt(10)));
+             }
+             return id.toString();
+         }
+         case 6:
+             // Mismo valor con otra cantidad de ceros a la izquierda
+             return "P" + "0".repeat(azar.nextInt(1, 5)) + (orden % 1000);
+         case 7:
+             return "p" + orden;
+         case 8:
+             return azar.nextBoolean() ? "1" + String.format("%016d", orden) : "ID-" + orden;
+         default:
+             return azar.nextBoolean() ? "Ñ" + orden : "P" + orden + "x";
+     }
+ }
+
+ /**
+  * Agrega los IDs al índice, alternando String y ByteBuffer, y verifica
+  * los índices devueltos y todas las búsquedas.
+  */
+ private static void verificar(IndiceIds indice, List<String> ids, List<String> ausentes, SplittableRandom azar) {
+     Map<String, Integer> referencia = new HashMap<>();
+     for (int i = 0; i < ids.size(); i++) {
+         String id = ids.get(i);
+         Integer esperado = referencia.get(id);
+         if (esperado == null) {
+             esperado = referencia.size();
+             referencia.put(id, esperado);
+         }
+         int obtenido;
+         if (azar.nextBoolean()) {
+             obtenido = indice.agregar(id);
+         } else {
+             ByteBuffer buffer = enBuffer(id);
+             obtenido = indice.agregar(buffer, 1, buffer.limit() - 1);
+         }
+         comprobar("agregar", id, esperado, obtenido);
+     }
+     if (indice.size() != referencia.size()) {
+         throw new IllegalStateException("size() = " + indice.size() + ", se esperaba " + referencia.size());
+     }
+
+     for (Map.Entry<String, Integer> entry : referencia.entrySet()) {
+         buscar(indice, entry.getKey(), entry.getValue());
+     }
+     for (String id : ausentes) {
+         buscar(indice, id, referencia.getOrDefault(id, IndiceIds.NO_ENCONTRADO));
+     }
+ }
+
+ /**
+  * Busca un ID de las tres formas y compara con el índice esperado.
+  */
+ private static void buscar(IndiceIds indice, String id, int esperado) {
+     comprobar("buscar(String)", id, esperado, indice.buscar(id));
+     String linea = "CC;" + id + ";7";
+     comprobar("buscar(CharSequence, inicio, fin)", id, esperado, indice.buscar(linea, 3, 3 + id.length()));
+     ByteBuffer buffer = enBuffer(id);
+     comprobar("buscar(ByteBuffer)", id, esperado, indice.buscar(buffer, 1, buffer.limit() - 1));
+ }
+
+ /**
+  * Codifica el ID en UTF-8 entre dos ';', como en una línea de un archivo.
+  */
+ private static ByteBuffer enBuffer(String id) {
+     return ByteBuffer.wrap((";" + id + ";").getBytes(StandardCharsets.UTF_8));
+ }
+
+ private static void comprobar(String operacion, String id, int esperado, int obtenido) {
+     if (esperado != obtenido) {
+         throw new IllegalStateException(operacion + " de \"" + id + "\" = " + obtenido + ", se esperaba " + esperado);
+     }
+ }
+}
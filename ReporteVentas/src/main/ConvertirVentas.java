@@ -0,0 +1,78 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import utils.ArchivoVentasBinario;
+import utils.RegistroRechazos;
+import utils.UtilsFile;
+
+/**
+* Clase principal para convertir archivos de ventas de texto al formato
+* binario columnar (.vbin).
+*/
+public class ConvertirVentas {
+
+ /**
+  * Método principal para convertir los archivos de ventas.
+  *
+  * Opciones: --origen=carpeta (por defecto archivos) y --destino=ruta (por
+  * defecto ventas.vbin). El archivo binario reemplaza a los archivos de
+  * texto convertidos: para procesarlo, se copia a la carpeta de ventas en
+  * lugar de ellos, porque si ambos están se cuentan dos veces.
+  */
+ public static void main(String[] args) {
+     try {
+         String origen = leerOpcion(args, "--origen", "archivos");
+         Path destino = Paths.get(leerOpcion(args, "--destino", "ventas" + ArchivoVentasBinario.EXTENSION));
+
+         File[] files = new File(origen).listFiles((dir, name) -> UtilsFile.esArchivoVentasTexto(name));
+         if (files == null || files.length == 0) {
+             System.out.println("No se encontraron archivos de ventas en: " + origen);
+             return;
+         }
+
+         long inicio = System.nanoTime();
+         long ventas = ArchivoVentasBinario.convertir(files, destino);
+         RegistroRechazos.global().cerrar();
+
+         long bytesTexto = 0;
+         for (File file : files) {
+             bytesTexto += file.length();
+         }
+         long bytesBinario = Files.size(destino);
+         System.out.printf("Convertidos %d archivos (%d ventas) en %.2f s: %d bytes de texto a %d bytes (%.1f%%).%n",
+                 files.length, ventas, (System.nanoTime() - inicio) / 1e9, bytesTexto, bytesBinario,
+                 bytesTexto > 0 ? 100.0 * bytesBinario / bytesTexto : 0);
+         if (RegistroRechazos.global().getTotal() > 0) {
+             System.out.println(RegistroRechazos.global().resumen());
+         }
+         System.out.println("Archivo binario generado: " + destino);
+
+     } catch (IOException e) {
+         System.err.println("Error durante la conversión de archivos: " + e.getMessage());
+         e.printStackTrace();
+     }
+ }
+
+ /**
+  * Lee una opción de la línea de comandos con formato nombre=valor.
+  *
+  * @param args Argumentos de la línea de comandos
+  * @param nombre Nombre de la opción
+  * @param valorPorDefecto Valor a usar si la opción no está presente
+  * @return Valor de la opción
+  */
+ private static String leerOpcion(String[] args, String nombre, String valorPorDefecto) {
+     String prefijo = nombre + "=";
+     for (String arg : args) {
+         if (arg.startsWith(prefijo)) {
+             return arg.substring(prefijo.length());
+         }
+     }
+     return valorPorDefecto;
+ }
+}
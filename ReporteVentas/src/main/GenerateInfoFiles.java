@@ -3,6 +3,9 @@ package main;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
 * Clase principal para generar archivos de prueba del sistema.
@@ -33,48 +36,128 @@ public class GenerateInfoFiles {
      "Webcam", "Micrófono", "Escáner", "UPS"
  };
  
- private static final Random random = new Random();
- 
  /**
   * Método principal para generar archivos de prueba.
+  * 
+  * Opciones: --vendedores=N, --productos=N, --ventas-min=N, --ventas-max=N,
+  * --semilla=N, --hilos=N y --directorio=ruta. Sin opciones genera 10
+  * vendedores y 30 productos en la carpeta archivos.
   */
  public static void main(String[] args) {
      try {
-         // Crear directorio de archivos si no existe
-         Path directory = Paths.get("archivos");
-         if (!Files.exists(directory)) {
-             Files.createDirectory(directory);
-         }
-         
          // Generar archivos de prueba
-         int numVendedores = 10;
-         int numProductos = 30;
+         int numVendedores = Integer.parseInt(leerOpcion(args, "--vendedores", "10"));
+         int numProductos = Integer.parseInt(leerOpcion(args, "--productos", "30"));
+         int ventasMinimas = Integer.parseInt(leerOpcion(args, "--ventas-min", "5"));
+         int ventasMaximas = Integer.parseInt(leerOpcion(args, "--ventas-max", "20"));
+         long semilla = Long.parseLong(leerOpcion(args, "--semilla", String.valueOf(System.nanoTime())));
+         int hilos = Integer.parseInt(leerOpcion(args, "--hilos", 
+                 String.valueOf(Runtime.getRuntime().availableProcessors())));
+         String directorio = leerOpcion(args, "--directorio", "archivos");
          
-         // Generar archivo de productos
-         String productosFile = "archivos/productos.txt";
-         createProductsFile(numProductos, productosFile);
-         System.out.println("Archivo de productos generado: " + productosFile);
+         long inicio = System.nanoTime();
+         generarArchivos(directorio, numVendedores, numProductos, ventasMinimas, ventasMaximas, semilla, hilos);
          
-         // Generar archivo de vendedores
-         String vendedoresFile = "archivos/vendedores.txt";
-         List<String[]> vendedoresInfo = createSalesManInfoFile(numVendedores, vendedoresFile);
-         System.out.println("Archivo de vendedores generado: " + vendedoresFile);
+         System.out.println("Semilla usada: " + semilla);
+         System.out.printf("Generación de archivos completada exitosamente en %.2f s.%n", 
+                 (System.nanoTime() - inicio) / 1e9);
          
-         // Generar archivo de ventas para cada vendedor
-         for (String[] vendedor : vendedoresInfo) {
-             int randomSalesCount = random.nextInt(15) + 5; // Entre 5 y 20 ventas
+     } catch (Exception e) {
+         System.err.println("Error durante la generación de archivos: " + e.getMessage());
+         e.printStackTrace();
+     }
+ }
+ 
+ /**
+  * Genera los archivos de productos, vendedores y ventas en un directorio,
+  * con entre 5 y 20 ventas por vendedor y una semilla aleatoria.
+  * 
+  * @param directorio Directorio donde se crean los archivos
+  * @param numVendedores Cantidad de vendedores a generar
+  * @param numProductos Cantidad de productos a generar
+  * @throws IOException Si ocurre un error de escritura
+  */
+ public static void generarArchivos(String directorio, int numVendedores, int numProductos) throws IOException {
+     generarArchivos(directorio, numVendedores, numProductos, 5, 20, System.nanoTime(), 
+             Runtime.getRuntime().availableProcessors());
+ }
+ 
+ /**
+  * Genera los archivos de productos, vendedores y ventas en un directorio.
+  * 
+  * Con la misma semilla se generan siempre los mismos archivos, sin importar
+  * la cantidad de hilos: cada vendedor recibe su propia semilla derivada antes
+  * de escribir los archivos de ventas en paralelo.
+  * 
+  * @param directorio Directorio donde se crean los archivos
+  * @param numVendedores Cantidad de vendedores a generar
+  * @param numProductos Cantidad de productos a generar
+  * @param ventasMinimas Cantidad mínima de ventas por archivo
+  * @param ventasMaximas Cantidad máxima de ventas por archivo
+  * @param semilla Semilla del generador aleatorio
+  * @param hilos Cantidad de hilos para escribir los archivos de ventas
+  * @throws IOException Si ocurre un error de escritura
+  */
+ public static void generarArchivos(String directorio, int numVendedores, int numProductos, 
+                                    int ventasMinimas, int ventasMaximas, long semilla, 
+                                    int hilos) throws IOException {
+     if (numProductos < 1 || ventasMinimas < 1 || ventasMaximas < ventasMinimas || hilos < 1) {
+         throw new IllegalArgumentException("Parámetros de generación inválidos");
+     }
+     
+     // Crear directorio de archivos si no existe
+     Path directory = Paths.get(directorio);
+     if (!Files.exists(directory)) {
+         Files.createDirectories(directory);
+     }
+     
+     Random random = new Random(semilla);
+     
+     // Generar archivo de productos
+     String productosFile = directorio + "/productos.txt";
+     List<String> productIds = createProductsFile(numProductos, productosFile, random);
+     System.out.println("Archivo de productos generado: " + productosFile);
+     
+     // Generar archivo de vendedores
+     String vendedoresFile = directorio + "/vendedores.txt";
+     List<String[]> vendedoresInfo = createSalesManInfoFile(numVendedores, vendedoresFile, random);
+     System.out.println("Archivo de vendedores generado: " + vendedoresFile);
+     
+     // Semilla propia de cada vendedor para que la salida no dependa del orden de los hilos
+     long[] semillas = new long[vendedoresInfo.size()];
+     for (int i = 0; i < semillas.length; i++) {
+         semillas[i] = random.nextLong();
+     }
+     
+     // Generar archivo de ventas para cada vendedor
+     ForkJoinPool pool = new ForkJoinPool(hilos);
+     try {
+         pool.submit(() -> IntStream.range(0, vendedoresInfo.size()).parallel().forEach(i -> {
+             Random randomVendedor = new Random(semillas[i]);
+             int randomSalesCount = ventasMinimas + randomVendedor.nextInt(ventasMaximas - ventasMinimas + 1);
+             String[] vendedor = vendedoresInfo.get(i);
              String tipoDoc = vendedor[0];
              String numDoc = vendedor[1];
              String nombre = vendedor[2];
-             createSalesMenFile(randomSalesCount, nombre, tipoDoc, numDoc, productosFile);
+             try {
+                 createSalesMenFile(randomSalesCount, nombre, tipoDoc, numDoc, productIds, directorio, 
+                         randomVendedor);
+             } catch (IOException e) {
+                 throw new UncheckedIOException(e);
+             }
+         })).get();
+     } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IOException("Generación de archivos interrumpida", e);
+     } catch (ExecutionException e) {
+         if (e.getCause() instanceof UncheckedIOException) {
+             throw ((UncheckedIOException) e.getCause()).getCause();
          }
-         
-         System.out.println("Generación de archivos completada exitosamente.");
-         
-     } catch (Exception e) {
-         System.err.println("Error durante la generación de archivos: " + e.getMessage());
-         e.printStackTrace();
+         throw new IOException("Error generando archivos de ventas", e.getCause());
+     } finally {
+         pool.shutdown();
      }
+     System.out.println("Archivos de ventas generados: " + vendedoresInfo.size());
  }
  
  /**
@@ -84,19 +167,16 @@ public class GenerateInfoFiles {
   * @param name Nombre del vendedor
   * @param tipoDoc Tipo de documento
   * @param id Número de documento
-  * @param productosFilePath Ruta del archivo de productos
+  * @param productIds IDs de los productos disponibles
+  * @param directorio Directorio donde se crea el archivo de ventas
+  * @param random Generador aleatorio del vendedor
   * @throws IOException Si ocurre un error de escritura
   */
  private static void createSalesMenFile(int randomSalesCount, String name, String tipoDoc, 
-                                       String id, String productosFilePath) throws IOException {
-     // Leer IDs de productos
-     List<String> productIds = readProductIds(productosFilePath);
-     if (productIds.isEmpty()) {
-         throw new IOException("No se pudieron leer los IDs de productos desde " + productosFilePath);
-     }
-     
+                                       String id, List<String> productIds, String directorio, 
+                                       Random random) throws IOException {
      // Generar nombre de archivo basado en el nombre del vendedor
-     String fileName = "archivos/" + name.toLowerCase().replace(" ", "_") + "_" + id + ".txt";
+     String fileName = directorio + "/" + name.toLowerCase().replace(" ", "_") + "_" + id + ".txt";
      
      try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(fileName))) {
          writer.write(tipoDoc + ";" + id + "\n");
@@ -116,68 +196,54 @@ public class GenerateInfoFiles {
              int cantidad = random.nextInt(10) + 1;
              
              // Escribir línea de venta
-             writer.write(productId + ";" + cantidad + ";\n");
+             writer.write(productId);
+             writer.write(';');
+             writer.write(Integer.toString(cantidad));
+             writer.write(";\n");
          }
      }
-     
-     System.out.println("Archivo de ventas generado: " + fileName);
- }
- 
- /**
-  * Lee los IDs de productos desde un archivo.
-  * 
-  * @param filePath Ruta del archivo de productos
-  * @return Lista de IDs de productos
-  * @throws IOException Si ocurre un error de lectura
-  */
- private static List<String> readProductIds(String filePath) throws IOException {
-     List<String> productIds = new ArrayList<>();
-     
-     try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
-         String line;
-         while ((line = reader.readLine()) != null) {
-             String[] parts = line.split(";");
-             if (parts.length > 0) {
-                 productIds.add(parts[0]);
-             }
-         }
-     }
-     
-     return productIds;
  }
  
  /**
   * Crea un archivo con información de productos.
   * 
+  * Los primeros productos usan los nombres de NOMBRES_PRODUCTOS en orden
+  * aleatorio; cuando hay más productos que nombres, se agrega un sufijo
+  * numérico que garantiza nombres únicos sin reintentos.
+  * 
   * @param productsCount Cantidad de productos a generar
   * @param filePath Ruta del archivo a crear
+  * @param random Generador aleatorio
+  * @return Lista de IDs de los productos generados
   * @throws IOException Si ocurre un error de escritura
   */
- private static void createProductsFile(int productsCount, String filePath) throws IOException {
+ private static List<String> createProductsFile(int productsCount, String filePath, Random random) throws IOException {
+     List<String> productIds = new ArrayList<>(productsCount);
+     
+     // Orden aleatorio de los nombres base
+     List<String> nombresBase = new ArrayList<>(Arrays.asList(NOMBRES_PRODUCTOS));
+     Collections.shuffle(nombresBase, random);
+     
      try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(filePath))) {
-         Set<String> usedNames = new HashSet<>();
-         
          for (int i = 0; i < productsCount; i++) {
              String id = "P" + String.format("%03d", i + 1);
              
              // Seleccionar un nombre de producto único
-             String nombre;
-             do {
-                 nombre = NOMBRES_PRODUCTOS[random.nextInt(NOMBRES_PRODUCTOS.length)];
-                 if (usedNames.size() >= NOMBRES_PRODUCTOS.length) {
-                     nombre += " " + (random.nextInt(100) + 1);
-                 }
-             } while (usedNames.contains(nombre));
-             
-             usedNames.add(nombre);
+             String nombre = nombresBase.get(i % nombresBase.size());
+             if (i >= nombresBase.size()) {
+                 nombre += " " + (i / nombresBase.size() + 1);
+             }
              
              // Generar precio (entre 10,000 y 1,000,000)
              double precio = 10000 + random.nextInt(990000);
              
              // Escribir línea de producto
              writer.write(id + ";" + nombre + ";" + precio + "\n");
+             productIds.add(id);
          }
      }
+     
+     return productIds;
  }
  
  /**
@@ -185,11 +251,13 @@ public class GenerateInfoFiles {
   * 
   * @param salesmanCount Cantidad de vendedores a generar
   * @param filePath Ruta del archivo a crear
+  * @param random Generador aleatorio
   * @return Lista de información de vendedores generados
   * @throws IOException Si ocurre un error de escritura
   */
- private static List<String[]> createSalesManInfoFile(int salesmanCount, String filePath) throws IOException {
-     List<String[]> vendedoresInfo = new ArrayList<>();
+ private static List<String[]> createSalesManInfoFile(int salesmanCount, String filePath, 
+                                                      Random random) throws IOException {
+     List<String[]> vendedoresInfo = new ArrayList<>(salesmanCount);
      Set<String> usedIDs = new HashSet<>();
      
      try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(filePath))) {
@@ -219,4 +287,22 @@ public class GenerateInfoFiles {
      
      return vendedoresInfo;
  }
+ 
+ /**
+  * Lee una opción de la línea de comandos con formato nombre=valor.
+  * 
+  * @param args Argumentos de la línea de comandos
+  * @param nombre Nombre de la opción
+  * @param valorPorDefecto Valor a usar si la opción no está presente
+  * @return Valor de la opción
+  */
+ private static String leerOpcion(String[] args, String nombre, String valorPorDefecto) {
+     String prefijo = nombre + "=";
+     for (String arg : args) {
+         if (arg.startsWith(prefijo)) {
+             return arg.substring(prefijo.length());
+         }
+     }
+     return valorPorDefecto;
+ }
 }
\ No newline at end of file
@@ -1,11 +1,33 @@
 package main;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import modelo.Producto;
 import modelo.Vendedor;
+import utils.AgregacionExterna;
+import utils.CatalogoPerezoso;
+import utils.ConfiguracionIngesta;
+import utils.CuboVentas;
+import utils.Descompresion;
+import utils.Fragmento;
+import utils.Instantanea;
+import utils.LectorMapeado;
+import utils.MetricasPipeline;
+import utils.RegistroArchivos;
+import utils.RegistroContenidos;
+import utils.RegistroRechazos;
+import utils.SelectorEstrategia;
+import utils.ServidorConsultas;
 import utils.UtilsFile;
+import utils.VigilanteVentas;
 
 /**
 * Clase principal para procesar los archivos y generar reportes.
@@ -13,33 +35,333 @@ import utils.UtilsFile;
 public class Main {
 public static void main(String[] args) {
    try {
-       // Rutas de los archivos
-       String productosPath = "archivos/productos.txt";
-       String vendedoresPath = "archivos/vendedores.txt";
+       // Rutas de los archivos (o de su versión comprimida, por ejemplo productos.txt.gz)
+       String productosPath = Descompresion.resolver("archivos/productos.txt");
+       String vendedoresPath = Descompresion.resolver("archivos/vendedores.txt");
        String carpetaArchivos = "archivos";
        
        // Rutas de los archivos de salida
        String reporteVendedoresPath = "reporte_vendedores.csv";
        String reporteProductosPath = "reporte_productos.csv";
        
+       // Opciones de procesamiento (--paralelismo=N, --mmap, --pipeline)
+       ConfiguracionIngesta configuracion = new ConfiguracionIngesta();
+       configuracion.setParalelismo(leerOpcionEntera(args, "--paralelismo", 1));
+       configuracion.setMapeado(tieneOpcion(args, "--mmap"));
+       configuracion.setPipeline(tieneOpcion(args, "--pipeline"));
+       
+       // Sin esas opciones, o con --estrategia=auto, la estrategia se elige según el perfil de los
+       // archivos; --estrategia=nombre la fija
+       String estrategia = leerOpcion(args, "--estrategia", null);
+       boolean modoIndicado = tieneOpcion(args, "--mmap") || tieneOpcion(args, "--pipeline") 
+               || leerOpcion(args, "--paralelismo", null) != null;
+       if (estrategia != null || !modoIndicado) {
+           SelectorEstrategia.Estrategia forzada = estrategia == null || estrategia.equals("auto") ? null 
+                   : SelectorEstrategia.Estrategia.parsear(estrategia);
+           configuracion.setSelector(new SelectorEstrategia(forzada, leerOpcionEntera(args, "--paralelismo", 0)));
+       }
+       
+       // Procesamiento repartido: --fragmento=i/n procesa solo su parte de los archivos y guarda un
+       // parcial (--parcial=ruta); --fusionar=parcial1,parcial2 (o una carpeta) combina los parciales
+       String fragmentoTexto = leerOpcion(args, "--fragmento", null);
+       if (fragmentoTexto != null) {
+           configuracion.setFragmento(Fragmento.parsear(fragmentoTexto));
+       }
+       Fragmento fragmento = configuracion.getFragmento();
+       Path parcial = Paths.get(leerOpcion(args, "--parcial", 
+               "parcial-" + fragmento.getIndice() + "-de-" + fragmento.getTotal() + ".inst"));
+       String fusionar = leerOpcion(args, "--fusionar", null);
+       
+       // Exportar métricas al terminar (--metricas=ruta, JSON o .prom para Prometheus)
+       String metricasPath = leerOpcion(args, "--metricas", null);
+       Path metricas = metricasPath != null ? Paths.get(metricasPath) : null;
+       
+       // Cubo de ventas por vendedor × producto, tipo de documento y ventana (--analisis=carpeta, --ventana=dia|archivo)
+       String analisisPath = leerOpcion(args, "--analisis", null);
+       Path analisis = analisisPath != null ? Paths.get(analisisPath) : null;
+       if (analisis != null) {
+           String ventana = leerOpcion(args, "--ventana", "dia");
+           configuracion.setCubo(new CuboVentas(CuboVentas.Ventana.valueOf(ventana.toUpperCase(Locale.ROOT))));
+       }
+       
+       // Archivo con la primera aparición de cada valor rechazado (--rechazos=ruta)
+       RegistroRechazos.global().setArchivo(
+               Paths.get(leerOpcion(args, "--rechazos", RegistroRechazos.ARCHIVO_POR_DEFECTO)));
+       
+       // Omitir archivos con un contenido ya acumulado (--deduplicar); con --deduplicar=ruta el registro
+       // de contenidos se guarda junto con la instantánea, que tiene los totales de esos archivos
+       String contenidosPath = leerOpcion(args, "--deduplicar", null);
+       Path contenidos = contenidosPath != null ? Paths.get(contenidosPath) : null;
+       if (contenidos != null || tieneOpcion(args, "--deduplicar")) {
+           if (fragmentoTexto != null || fusionar != null) {
+               System.err.println("La opción --deduplicar no se puede usar con --fragmento ni --fusionar");
+               return;
+           }
+           String instantaneaDeduplicada = leerOpcion(args, "--instantanea", null);
+           if (contenidos != null && instantaneaDeduplicada == null) {
+               System.err.println("--deduplicar=ruta requiere --instantanea: sin los totales guardados, "
+                       + "los archivos registrados no se volverían a contar");
+               return;
+           }
+           if (contenidos != null && Files.exists(contenidos) && !Files.exists(Paths.get(instantaneaDeduplicada))) {
+               System.err.println("El registro de contenidos " + contenidos + " existe pero la instantánea " 
+                       + instantaneaDeduplicada + " no");
+               return;
+           }
+           configuracion.setContenidos(contenidos != null ? RegistroContenidos.cargar(contenidos) 
+                   : new RegistroContenidos());
+       }
+       
+       // Agregación externa (--memoria-maxima=MiB): reparte catálogo y ventas en particiones en disco
+       // (--temporal=carpeta) para generar los reportes sin cargar el catálogo completo
+       int memoriaMaxima = leerOpcionEntera(args, "--memoria-maxima", 0);
+       if (memoriaMaxima > 0) {
+           for (String opcion : new String[]{"--vigilar", "--servidor", "--instantanea", "--fragmento", "--fusionar", 
+                   "--analisis", "--deduplicar", "--catalogo-perezoso"}) {
+               if (tieneOpcion(args, opcion) || leerOpcion(args, opcion, null) != null) {
+                   System.err.println("La opción " + opcion + " no se puede usar con --memoria-maxima");
+                   return;
+               }
+           }
+           AgregacionExterna agregacion = new AgregacionExterna(memoriaMaxima * (1L << 20), 
+                   Paths.get(leerOpcion(args, "--temporal", System.getProperty("java.io.tmpdir"))));
+           agregacion.generarReportes(productosPath, vendedoresPath, carpetaArchivos, 
+                   reporteVendedoresPath, reporteProductosPath, leerOpcionEntera(args, "--top", 0));
+           mostrarRechazos();
+           
+           System.out.println("Procesamiento completado exitosamente.");
+           System.out.println("Reporte de vendedores generado: " + reporteVendedoresPath);
+           System.out.println("Reporte de productos generado: " + reporteProductosPath);
+           exportarResultados(configuracion, analisis, metricas);
+           return;
+       }
+       
+       // Catálogo perezoso (--catalogo-perezoso): indexa productos y vendedores sin crear sus objetos
+       // y lee los nombres solo para las filas de los reportes
+       if (tieneOpcion(args, "--catalogo-perezoso")) {
+           for (String opcion : new String[]{"--vigilar", "--servidor", "--instantanea", "--fragmento", "--fusionar"}) {
+               if (tieneOpcion(args, opcion) || leerOpcion(args, opcion, null) != null) {
+                   System.err.println("La opción " + opcion + " no se puede usar con --catalogo-perezoso");
+                   return;
+               }
+           }
+           long inicioCarga = System.nanoTime();
+           CatalogoPerezoso catalogo = CatalogoPerezoso.abrir(productosPath, vendedoresPath);
+           MetricasPipeline.global().registrarFase(MetricasPipeline.Fase.CARGA, System.nanoTime() - inicioCarga);
+           
+           UtilsFile.procesarArchivosVentas(carpetaArchivos, catalogo, configuracion);
+           mostrarRechazos();
+           
+           int topK = leerOpcionEntera(args, "--top", 0);
+           UtilsFile.generarReporteVendedores(catalogo, reporteVendedoresPath, topK);
+           UtilsFile.generarReporteProductos(catalogo, reporteProductosPath, topK);
+           
+           System.out.println("Procesamiento completado exitosamente.");
+           System.out.println("Reporte de vendedores generado: " + reporteVendedoresPath);
+           System.out.println("Reporte de productos generado: " + reporteProductosPath);
+           exportarResultados(configuracion, analisis, metricas);
+           return;
+       }
+       
        // Leer archivos de productos y vendedores
-       Map<String, Producto> productos =  UtilsFile.leerProductos(productosPath);
-       Map<String, Vendedor> vendedores =  UtilsFile.leerVendedores(vendedoresPath);
+       long inicioCarga = System.nanoTime();
+       Map<String, Producto> productos;
+       Map<String, Vendedor> vendedores;
+       if (configuracion.isMapeado()) {
+           productos = LectorMapeado.leerProductos(productosPath);
+           vendedores = LectorMapeado.leerVendedores(vendedoresPath);
+       } else {
+           productos = UtilsFile.leerProductos(productosPath);
+           vendedores = UtilsFile.leerVendedores(vendedoresPath);
+       }
+       MetricasPipeline.global().registrarFase(MetricasPipeline.Fase.CARGA, System.nanoTime() - inicioCarga);
+       
+       // Cargar la instantánea anterior (--instantanea=ruta) para procesar solo archivos nuevos
+       RegistroArchivos registro = new RegistroArchivos();
+       String instantaneaPath = leerOpcion(args, "--instantanea", null);
+       Path instantanea = instantaneaPath != null ? Paths.get(instantaneaPath) : null;
+       if (fusionar != null) {
+           Instantanea.fusionar(listarParciales(fusionar), productos, vendedores, registro);
+           System.out.println("Parciales fusionados: " + fusionar + " (" + registro.size() + " archivos)");
+       } else if (instantanea != null && Files.exists(instantanea)) {
+           Fragmento cargado = Instantanea.cargar(instantanea, productos, vendedores, registro);
+           if (!cargado.equals(fragmento)) {
+               throw new IOException("La instantánea " + instantanea + " es del fragmento " + cargado 
+                       + " y se está procesando el fragmento " + fragmento);
+           }
+           System.out.println("Instantánea cargada: " + instantanea + " (" + registro.size() + " archivos)");
+       }
+       
+       // Cantidad de filas de los reportes (--top=K para incluir solo los primeros K)
+       int topK = leerOpcionEntera(args, "--top", 0);
+       
+       // Servidor HTTP local de consultas (--servidor=puerto); publica los totales después de cada lote
+       ServidorConsultas servidor = null;
+       int puerto = leerOpcionEntera(args, "--servidor", -1);
+       if (puerto >= 0) {
+           servidor = new ServidorConsultas(puerto, Runtime.getRuntime().availableProcessors() * 2);
+           servidor.publicar(productos.values(), vendedores.values());
+           servidor.iniciar();
+           System.out.println("Servidor de consultas en http://localhost:" + servidor.getPuerto() + "/");
+       }
        
-       // Procesar archivos de ventas
-       UtilsFile.procesarArchivosVentas(carpetaArchivos, vendedores, productos);
+       // Modo continuo (--vigilar): procesa los archivos nuevos a medida que llegan
+       if (tieneOpcion(args, "--vigilar")) {
+           VigilanteVentas vigilante = new VigilanteVentas(carpetaArchivos, vendedores, productos, 
+                   configuracion, registro, reporteVendedoresPath, reporteProductosPath);
+           vigilante.setInstantanea(instantanea);
+           vigilante.setParcial(parcial);
+           vigilante.setContenidos(contenidos);
+           vigilante.setTopK(topK);
+           vigilante.setMetricas(metricas);
+           vigilante.setAnalisis(analisis);
+           vigilante.setServidor(servidor);
+           vigilante.ejecutar();
+           return;
+       }
        
-       // Generar reportes
-       UtilsFile.generarReporteVendedores(vendedores.values(), reporteVendedoresPath);
-       UtilsFile.generarReporteProductos(productos.values(), reporteProductosPath);
+       // Procesar archivos de ventas (al fusionar parciales ya están contados)
+       if (fusionar == null) {
+           int nuevos = UtilsFile.procesarArchivosVentas(carpetaArchivos, vendedores, productos, configuracion, registro);
+           if (instantanea != null) {
+               Instantanea.guardar(instantanea, productos.values(), vendedores.values(), registro, fragmento);
+               System.out.println("Archivos nuevos procesados: " + nuevos + ", instantánea guardada: " + instantanea);
+               if (contenidos != null) {
+                   configuracion.getContenidos().guardar(contenidos);
+                   System.out.println("Registro de contenidos guardado: " + contenidos 
+                           + " (" + configuracion.getContenidos().size() + " contenidos)");
+               }
+           }
+       }
        
-       System.out.println("Procesamiento completado exitosamente.");
-       System.out.println("Reporte de vendedores generado: " + reporteVendedoresPath);
-       System.out.println("Reporte de productos generado: " + reporteProductosPath);
+       mostrarRechazos();
+       
+       if (!fragmento.equals(Fragmento.COMPLETO)) {
+           // Un fragmento no genera reportes: su parcial se combina después con --fusionar
+           Instantanea.guardar(parcial, productos.values(), vendedores.values(), registro, fragmento);
+           System.out.println("Fragmento " + fragmento + " procesado (" + registro.size() + " archivos), parcial guardado: " + parcial);
+       } else {
+           // Generar reportes
+           UtilsFile.generarReporteVendedores(vendedores.values(), reporteVendedoresPath, topK);
+           UtilsFile.generarReporteProductos(productos.values(), reporteProductosPath, topK);
+           
+           System.out.println("Procesamiento completado exitosamente.");
+           System.out.println("Reporte de vendedores generado: " + reporteVendedoresPath);
+           System.out.println("Reporte de productos generado: " + reporteProductosPath);
+       }
+       
+       exportarResultados(configuracion, analisis, metricas);
+       
+       // El servidor sigue atendiendo consultas sobre los totales finales hasta que se detenga el proceso
+       if (servidor != null) {
+           servidor.publicar(productos.values(), vendedores.values());
+           System.out.println("Atendiendo consultas; Ctrl+C para terminar.");
+       }
        
    } catch (IOException e) {
        System.err.println("Error durante el procesamiento de archivos: " + e.getMessage());
        e.printStackTrace();
    }
 }
+
+/**
+* Indica si una opción sin valor está presente en la línea de comandos.
+* 
+* @param args Argumentos de la línea de comandos
+* @param nombre Nombre de la opción (por ejemplo --mmap)
+* @return true si la opción está presente
+*/
+private static boolean tieneOpcion(String[] args, String nombre) {
+   for (String arg : args) {
+       if (arg.equals(nombre)) {
+           return true;
+       }
+   }
+   return false;
+}
+
+/**
+* Espera a que se escriban las muestras de rechazos y muestra su resumen,
+* en lugar de un mensaje por línea.
+*/
+private static void mostrarRechazos() {
+   RegistroRechazos.global().cerrar();
+   if (RegistroRechazos.global().getTotal() > 0) {
+       System.out.println(RegistroRechazos.global().resumen());
+   }
+}
+
+/**
+* Exporta el cubo de ventas y las métricas, si se pidieron.
+* 
+* @param configuracion Opciones de procesamiento, con el cubo de ventas
+* @param analisis Carpeta del análisis de ventas, o null
+* @param metricas Ruta de las métricas, o null
+* @throws IOException Si ocurre un error de escritura
+*/
+private static void exportarResultados(ConfiguracionIngesta configuracion, Path analisis, 
+                                       Path metricas) throws IOException {
+   if (analisis != null) {
+       configuracion.getCubo().exportar(analisis);
+       System.out.println("Análisis de ventas generado en: " + analisis);
+   }
+   
+   if (metricas != null) {
+       MetricasPipeline.global().exportar(metricas);
+       System.out.println("Métricas exportadas: " + metricas);
+   }
+}
+
+/**
+* Obtiene las rutas de los parciales a fusionar: los archivos de una carpeta,
+* en orden alfabético, o una lista de rutas separadas por comas.
+* 
+* @param parciales Carpeta o lista de rutas
+* @return Rutas de los parciales
+* @throws IOException Si no se puede listar la carpeta
+*/
+private static List<Path> listarParciales(String parciales) throws IOException {
+   Path carpeta = Paths.get(parciales);
+   if (Files.isDirectory(carpeta)) {
+       try (Stream<Path> archivos = Files.list(carpeta)) {
+           return archivos.filter(Files::isRegularFile).sorted().toList();
+       }
+   }
+   List<Path> rutas = new ArrayList<>();
+   for (String ruta : parciales.split(",")) {
+       rutas.add(Paths.get(ruta.trim()));
+   }
+   return rutas;
+}
+
+/**
+* Lee una opción entera de la línea de comandos con formato nombre=valor.
+* 
+* @param args Argumentos de la línea de comandos
+* @param nombre Nombre de la opción (por ejemplo --paralelismo)
+* @param valorPorDefecto Valor a usar si la opción no está presente
+* @return Valor de la opción
+*/
+private static int leerOpcionEntera(String[] args, String nombre, int valorPorDefecto) {
+   String valor = leerOpcion(args, nombre, null);
+   return valor != null ? Integer.parseInt(valor) : valorPorDefecto;
+}
+
+/**
+* Lee una opción de la línea de comandos con formato nombre=valor.
+* 
+* @param args Argumentos de la línea de comandos
+* @param nombre Nombre de la opción (por ejemplo --instantanea)
+* @param valorPorDefecto Valor a usar si la opción no está presente
+* @return Valor de la opción
+*/
+private static String leerOpcion(String[] args, String nombre, String valorPorDefecto) {
+   String prefijo = nombre + "=";
+   for (String arg : args) {
+       if (arg.startsWith(prefijo)) {
+           return arg.substring(prefijo.length());
+       }
+   }
+   return valorPorDefecto;
+}
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package modelo;
+
+/**
+* Utilidades para manejar montos de dinero como centavos en un long.
+*
+* Los montos se guardan y se suman como enteros, por lo que los totales son
+* exactos y no dependen del orden de la suma; solo se convierten a texto
+* al generar los reportes.
+*/
+public final class Dinero {
+
+ private Dinero() {
+ }
+
+ /**
+  * Convierte un monto decimal a centavos, redondeando al centavo más cercano.
+  *
+  * @param monto Monto decimal
+  * @return Monto en centavos
+  */
+ public static long aCentavos(double monto) {
+     return Math.round(monto * 100);
+ }
+
+ /**
+  * Convierte un monto en centavos a decimal.
+  *
+  * @param centavos Monto en centavos
+  * @return Monto decimal
+  */
+ public static double aDecimal(long centavos) {
+     return centavos / 100.0;
+ }
+
+ /**
+  * Convierte un texto decimal (por ejemplo 891870.0 o 19.99) a centavos sin
+  * pasar por double. Los decimales después del segundo se redondean hacia
+  * arriba desde 5. Los formatos no decimales simples (notación científica,
+  * espacios) se delegan a Double.parseDouble.
+  *
+  * @param texto Texto con el monto
+  * @return Monto en centavos
+  * @throws NumberFormatException Si el texto no es un número válido
+  */
+ public static long parsearCentavos(CharSequence texto) {
+     int fin = texto.length();
+     int i = 0;
+     boolean negativo = false;
+     if (i < fin && (texto.charAt(i) == '-' || texto.charAt(i) == '+')) {
+         negativo = texto.charAt(i) == '-';
+         i++;
+     }
+     long entero = 0;
+     int digitos = 0;
+     for (; i < fin && texto.charAt(i) >= '0' && texto.charAt(i) <= '9'; i++) {
+         entero = entero * 10 + (texto.charAt(i) - '0');
+         digitos++;
+     }
+     long fraccion = 0;
+     int decimales = 0;
+     boolean redondearArriba = false;
+     if (i < fin && texto.charAt(i) == '.') {
+         for (i++; i < fin && texto.charAt(i) >= '0' && texto.charAt(i) <= '9'; i++) {
+             if (decimales < 2) {
+                 fraccion = fraccion * 10 + (texto.charAt(i) - '0');
+             } else if (decimales == 2) {
+                 redondearArriba = texto.charAt(i) >= '5';
+             }
+             decimales++;
+         }
+     }
+     if (i != fin || digitos + decimales == 0 || digitos > 16) {
+         return aCentavos(Double.parseDouble(texto.toString()));
+     }
+     for (int d = decimales; d < 2; d++) {
+         fraccion *= 10;
+     }
+     long centavos = entero * 100 + fraccion + (redondearArriba ? 1 : 0);
+     return negativo ? -centavos : centavos;
+ }
+
+ /**
+  * Da formato a un monto en centavos con dos decimales (por ejemplo
+  * 63653806.00), igual que String.format(Locale.ROOT, "%.2f") pero sin pasar
+  * por double. El separador decimal es siempre '.', sin importar la
+  * configuración regional por defecto, igual que en los precios.
+  *
+  * @param centavos Monto en centavos
+  * @return Texto con el monto
+  */
+ public static String formatear(long centavos) {
+     return formatear(centavos, new StringBuilder(24)).toString();
+ }
+
+ /**
+  * Agrega un monto en centavos con dos decimales a un StringBuilder.
+  *
+  * @param centavos Monto en centavos
+  * @param destino StringBuilder de destino
+  * @return El mismo StringBuilder
+  */
+ public static StringBuilder formatear(long centavos, StringBuilder destino) {
+     if (centavos < 0) {
+         destino.append('-');
+     }
+     long absoluto = Math.abs(centavos);
+     long fraccion = absoluto % 100;
+     destino.append(absoluto / 100).append('.');
+     if (fraccion < 10) {
+         destino.append('0');
+     }
+     return destino.append(fraccion);
+ }
+}
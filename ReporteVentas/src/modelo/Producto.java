@@ -1,13 +1,20 @@
 package modelo;
 
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
 * Clase que representa un producto en el sistema.
 */
 public class Producto {
 private String id;
 private String nombre;
-private double precioUnitario;
-private int cantidadVendida;
+private long precioCentavos;
+private long cantidadVendida;
+private volatile LongAdder cantidadVendidaConcurrente;
+
+private static final AtomicReferenceFieldUpdater<Producto, LongAdder> CANTIDAD_CONCURRENTE =
+       AtomicReferenceFieldUpdater.newUpdater(Producto.class, LongAdder.class, "cantidadVendidaConcurrente");
 
 /**
 * Constructor de la clase Producto.
@@ -17,10 +24,29 @@ private int cantidadVendida;
 * @param precioUnitario Precio por unidad del producto
 */
 public Producto(String id, String nombre, double precioUnitario) {
+   this(id, nombre, Dinero.aCentavos(precioUnitario), 0);
+}
+
+/**
+* Constructor privado que recibe el precio en centavos.
+*/
+private Producto(String id, String nombre, long precioCentavos, long cantidadVendida) {
    this.id = id;
    this.nombre = nombre;
-   this.precioUnitario = precioUnitario;
-   this.cantidadVendida = 0;
+   this.precioCentavos = precioCentavos;
+   this.cantidadVendida = cantidadVendida;
+}
+
+/**
+* Crea un producto con el precio expresado en centavos.
+* 
+* @param id Identificador único del producto
+* @param nombre Nombre descriptivo del producto
+* @param precioCentavos Precio por unidad del producto en centavos
+* @return Producto creado
+*/
+public static Producto conPrecioCentavos(String id, String nombre, long precioCentavos) {
+   return new Producto(id, nombre, precioCentavos, 0);
 }
 
 /**
@@ -47,16 +73,27 @@ public String getNombre() {
 * @return Precio unitario
 */
 public double getPrecioUnitario() {
-   return precioUnitario;
+   return Dinero.aDecimal(precioCentavos);
 }
 
 /**
-* Obtiene la cantidad vendida del producto.
+* Obtiene el precio unitario del producto en centavos.
+* 
+* @return Precio unitario en centavos
+*/
+public long getPrecioCentavos() {
+   return precioCentavos;
+}
+
+/**
+* Obtiene la cantidad vendida del producto, incluyendo lo acumulado
+* en modo concurrente.
 * 
 * @return Cantidad vendida
 */
-public int getCantidadVendida() {
-   return cantidadVendida;
+public long getCantidadVendida() {
+   LongAdder concurrente = cantidadVendidaConcurrente;
+   return concurrente == null ? cantidadVendida : cantidadVendida + concurrente.sum();
 }
 
 /**
@@ -64,19 +101,41 @@ public int getCantidadVendida() {
 * 
 * @param cantidad Cantidad a incrementar
 */
-public void incrementarCantidadVendida(int cantidad) {
+public void incrementarCantidadVendida(long cantidad) {
    if (cantidad > 0) {
        this.cantidadVendida += cantidad;
    }
 }
 
+/**
+* Incrementa la cantidad vendida del producto de forma segura entre hilos.
+* 
+* Usa un LongAdder que se crea con el primer incremento concurrente, por lo
+* que los productos que solo se actualizan desde un hilo no reservan celdas.
+* Varios hilos pueden actualizar el mismo producto sin contención de
+* bloqueos. No debe mezclarse con lecturas que requieran un valor exacto
+* mientras otros hilos siguen escribiendo.
+* 
+* @param cantidad Cantidad a incrementar
+*/
+public void incrementarCantidadVendidaConcurrente(long cantidad) {
+   if (cantidad > 0) {
+       LongAdder concurrente = cantidadVendidaConcurrente;
+       if (concurrente == null) {
+           CANTIDAD_CONCURRENTE.compareAndSet(this, null, new LongAdder());
+           concurrente = cantidadVendidaConcurrente;
+       }
+       concurrente.add(cantidad);
+   }
+}
+
 /**
 * Convierte el producto a formato CSV.
 * 
 * @return Representación del producto en formato CSV
 */
 public String toCSV() {
-   return id + ";" + nombre + ";" + precioUnitario;
+   return id + ";" + nombre + ";" + getPrecioUnitario();
 }
 
 /**
@@ -85,6 +144,6 @@ public String toCSV() {
 * @return Representación del producto en formato CSV para reporte
 */
 public String toReportCSV() {
-   return nombre + ";" + precioUnitario + ";" + cantidadVendida;
+   return nombre + ";" + getPrecioUnitario() + ";" + getCantidadVendida();
 }
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package modelo;
 
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
 * Clase que representa un vendedor en el sistema.
 */
@@ -8,7 +11,11 @@ private String tipoDocumento;
 private String numeroDocumento;
 private String nombres;
 private String apellidos;
-private double totalVentas;
+private long totalVentasCentavos;
+private volatile LongAdder totalVentasCentavosConcurrente;
+
+private static final AtomicReferenceFieldUpdater<Vendedor, LongAdder> VENTAS_CONCURRENTES =
+       AtomicReferenceFieldUpdater.newUpdater(Vendedor.class, LongAdder.class, "totalVentasCentavosConcurrente");
 
 /**
 * Constructor de la clase Vendedor.
@@ -23,7 +30,7 @@ public Vendedor(String tipoDocumento, String numeroDocumento, String nombres, St
    this.numeroDocumento = numeroDocumento;
    this.nombres = nombres;
    this.apellidos = apellidos;
-   this.totalVentas = 0.0;
+   this.totalVentasCentavos = 0;
 }
 
 /**
@@ -72,22 +79,74 @@ public String getNombreCompleto() {
 }
 
 /**
-* Obtiene el total de ventas realizadas por el vendedor.
+* Obtiene el total de ventas realizadas por el vendedor, incluyendo lo
+* acumulado en modo concurrente.
 * 
 * @return Total de ventas
 */
 public double getTotalVentas() {
-   return totalVentas;
+   return Dinero.aDecimal(getTotalVentasCentavos());
+}
+
+/**
+* Obtiene el total de ventas realizadas por el vendedor en centavos,
+* incluyendo lo acumulado en modo concurrente.
+* 
+* @return Total de ventas en centavos
+*/
+public long getTotalVentasCentavos() {
+   LongAdder concurrente = totalVentasCentavosConcurrente;
+   return concurrente == null ? totalVentasCentavos : totalVentasCentavos + concurrente.sum();
 }
 
 /**
 * Incrementa el total de ventas del vendedor.
 * 
-* @param monto Monto a incrementar
+* @param monto Monto a incrementar (se redondea al centavo)
 */
 public void incrementarVentas(double monto) {
-   if (monto > 0) {
-       this.totalVentas += monto;
+   incrementarVentasCentavos(Dinero.aCentavos(monto));
+}
+
+/**
+* Incrementa el total de ventas del vendedor en centavos.
+* 
+* @param centavos Monto a incrementar en centavos
+*/
+public void incrementarVentasCentavos(long centavos) {
+   if (centavos > 0) {
+       this.totalVentasCentavos += centavos;
+   }
+}
+
+/**
+* Incrementa el total de ventas del vendedor de forma segura entre hilos.
+* 
+* @param monto Monto a incrementar (se redondea al centavo)
+*/
+public void incrementarVentasConcurrente(double monto) {
+   incrementarVentasCentavosConcurrente(Dinero.aCentavos(monto));
+}
+
+/**
+* Incrementa el total de ventas del vendedor en centavos de forma segura
+* entre hilos.
+* 
+* Usa un LongAdder de centavos que se crea con el primer incremento
+* concurrente, por lo que los vendedores que solo se actualizan desde un hilo
+* no reservan celdas. Varios hilos pueden actualizar el mismo vendedor sin
+* contención de bloqueos y el total no depende del orden.
+* 
+* @param centavos Monto a incrementar en centavos
+*/
+public void incrementarVentasCentavosConcurrente(long centavos) {
+   if (centavos > 0) {
+       LongAdder concurrente = totalVentasCentavosConcurrente;
+       if (concurrente == null) {
+           VENTAS_CONCURRENTES.compareAndSet(this, null, new LongAdder());
+           concurrente = totalVentasCentavosConcurrente;
+       }
+       concurrente.add(centavos);
    }
 }
 
@@ -102,10 +161,12 @@ public String toCSV() {
 
 /**
 * Convierte el vendedor a formato CSV para reporte (nombre completo y total ventas).
+* El total se escribe con dos decimales y '.' como separador en cualquier
+* configuración regional.
 * 
 * @return Representación del vendedor en formato CSV para reporte
 */
 public String toReportCSV() {
-   return nombres + " " + apellidos + ";" + String.format("%.2f", totalVentas);
+   return nombres + " " + apellidos + ";" + Dinero.formatear(getTotalVentasCentavos());
 }
 }
@@ -5,4 +5,5 @@
  * 
  */
 module ReporteVentas {
-}
\ No newline at end of file
+    requires jdk.httpserver;
+}
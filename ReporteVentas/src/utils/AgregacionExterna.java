@@ -0,0 +1,787 @@
+package utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+import modelo.Dinero;
+
+/**
+* Genera los reportes sin tener en memoria el catálogo completo ni los
+* totales, para archivos de productos y vendedores que no caben en el heap.
+*
+* El trabajo se hace por particiones en archivos temporales:
+* <ol>
+* <li>Los productos y los vendedores se reparten por un hash de su ID en
+* particiones, tantas como hagan falta para que cada una quepa en el
+* presupuesto de memoria. La cabecera de cada archivo de ventas se reparte
+* por el hash del ID de su vendedor en las particiones de vendedores.</li>
+* <li>Cada partición de vendedores carga los vendedores de sus cabeceras,
+* marca los que aparecen al recorrer sus vendedores y escribe, en orden, los
+* archivos de ventas cuyo vendedor no aparece.</li>
+* <li>Las ventas de los demás archivos se reparten por el hash del ID del
+* producto en las mismas particiones que los productos.</li>
+* <li>Cada partición de productos se carga sola con sus ventas: se suman las
+* cantidades por producto, los montos de cada archivo se escriben en la
+* partición de su vendedor y los productos se escriben ordenados
+* (UtilsFile.ordenarPorValor) en una corrida.</li>
+* <li>Cada partición de vendedores suma solo los montos que le llegaron y
+* escribe sus vendedores ordenados en una corrida.</li>
+* <li>Las corridas de cada reporte se mezclan (k-way merge) en el CSV.</li>
+* </ol>
+* En memoria quedan una partición a la vez, en arreglos con un IndiceIds, y
+* un buffer por archivo temporal abierto; de los archivos de ventas solo se
+* guarda el listado de la carpeta.
+* A igual valor, las filas quedan en el orden de los archivos de productos
+* y vendedores, igual que con CatalogoPerezoso. Los archivos temporales se
+* borran al terminar.
+*/
+public class AgregacionExterna {
+ /** Memoria estimada de una fila del catálogo cargada, por byte de su línea. */
+ private static final int BYTES_POR_BYTE_DE_LINEA = 8;
+
+ /** Factor de compresión supuesto para estimar el tamaño de un catálogo comprimido. */
+ private static final int FACTOR_COMPRESION = 4;
+
+ private static final int MAX_PARTICIONES = 4096;
+ private static final int BUFFER_MINIMO = 4 * 1024;
+ private static final int BUFFER_MAXIMO = 256 * 1024;
+
+ /** Orden de los reportes: valor de mayor a menor y, a igual valor, orden del catálogo. */
+ private static final Comparator<Fila> ORDEN_REPORTE = (a, b) -> a.valor != b.valor
+         ? Long.compare(b.valor, a.valor) : Long.compare(a.orden, b.orden);
+
+ private final long presupuesto;
+ private final Path temporal;
+ private long nanosOrdenamiento;
+
+ /**
+  * Constructor de la clase AgregacionExterna.
+  *
+  * @param presupuesto Memoria en bytes que pueden ocupar las particiones y los buffers
+  * @param temporal Carpeta donde se crean los archivos temporales
+  */
+ public AgregacionExterna(long presupuesto, Path temporal) {
+     if (presupuesto <= 0) {
+         throw new IllegalArgumentException("El presupuesto de memoria debe ser mayor que cero: " + presupuesto);
+     }
+     this.presupuesto = presupuesto;
+     this.temporal = temporal;
+ }
+
+ /**
+  * Procesa los archivos de ventas de una carpeta y genera los reportes de
+  * vendedores y productos.
+  *
+  * @param productosPath Ruta del archivo de productos
+  * @param vendedoresPath Ruta del archivo de vendedores
+  * @param carpetaVentas Carpeta con los archivos de ventas de texto
+  * @param reporteVendedoresPath Ruta del reporte de vendedores
+  * @param reporteProductosPath Ruta del reporte de productos
+  * @param topK Cantidad de filas de cada reporte (0 para incluirlas todas)
+  * @throws IOException Si ocurre un error de lectura o escritura, o hay archivos .vbin
+  */
+ public void generarReportes(String productosPath, String vendedoresPath, String carpetaVentas,
+                             String reporteVendedoresPath, String reporteProductosPath,
+                             int topK) throws IOException {
+     File[] files = new File(carpetaVentas).listFiles((dir, name) -> UtilsFile.esArchivoVentas(name));
+     if (files == null) {
+         throw new IOException("No se encontró la carpeta de archivos: " + carpetaVentas);
+     }
+     for (File file : files) {
+         if (ArchivoVentasBinario.esArchivoBinario(file.getName())) {
+             throw new IOException("La agregación externa no procesa archivos de ventas binarios: " + file);
+         }
+     }
+
+     MetricasPipeline metricas = MetricasPipeline.global();
+     Path carpeta = Files.createTempDirectory(temporal, "agregacion-");
+     try {
+         long inicio = System.nanoTime();
+         int particionesProductos = particiones(productosPath);
+         int particionesVendedores = particiones(vendedoresPath);
+         repartirCatalogo(productosPath, 3, carpeta, "productos", particionesProductos);
+         repartirCatalogo(vendedoresPath, 4, carpeta, "vendedores", particionesVendedores);
+         repartirCabeceras(files, carpeta, particionesVendedores);
+         for (int j = 0; j < particionesVendedores; j++) {
+             validarVendedores(files, carpeta, j);
+         }
+         long finCarga = System.nanoTime();
+         metricas.registrarFase(MetricasPipeline.Fase.CARGA, finCarga - inicio);
+
+         repartirVentas(files, carpeta, particionesProductos, particionesVendedores);
+         long temporalMiB = tamanoMiB(carpeta);
+         DataOutputStream[] montos = abrir(carpeta, "montos", particionesVendedores);
+         try {
+             for (int i = 0; i < particionesProductos; i++) {
+                 sumarProductos(files, montos, carpeta, i);
+             }
+         } finally {
+             cerrar(montos);
+         }
+         for (int j = 0; j < particionesVendedores; j++) {
+             sumarVendedores(carpeta, j);
+         }
+         long finIngesta = System.nanoTime();
+         metricas.registrarFase(MetricasPipeline.Fase.INGESTA, finIngesta - finCarga - nanosOrdenamiento);
+         metricas.registrarFase(MetricasPipeline.Fase.ORDENAMIENTO, nanosOrdenamiento);
+
+         System.out.println("Agregación externa: " + particionesProductos + " particiones de productos y "
+                 + particionesVendedores + " de vendedores, " + temporalMiB + " MiB en archivos temporales");
+         mezclar(corridas(carpeta, "filas-vendedores", particionesVendedores), Paths.get(reporteVendedoresPath),
+                 "Nombre;TotalVentas", topK, (writer, fila) ->
+                         writer.escribir(fila.nombre).escribir(';').escribirCentavos(fila.valor).nuevaLinea());
+         mezclar(corridas(carpeta, "filas-productos", particionesProductos), Paths.get(reporteProductosPath),
+                 "Nombre;Precio;CantidadVendida", topK, (writer, fila) ->
+                         writer.escribir(fila.nombre).escribir(';').escribirDecimal(fila.precio)
+                               .escribir(';').escribirEntero(fila.valor).nuevaLinea());
+         metricas.registrarFase(MetricasPipeline.Fase.ESCRITURA, System.nanoTime() - finIngesta);
+     } finally {
+         borrar(carpeta);
+     }
+ }
+
+ /**
+  * Calcula cuántas particiones necesita un catálogo para que cada una,
+  * cargada en memoria, ocupe como mucho la mitad del presupuesto.
+  */
+ private int particiones(String filePath) throws IOException {
+     long bytes = Files.size(Paths.get(filePath)) * (Descompresion.esComprimido(filePath) ? FACTOR_COMPRESION : 1);
+     long porParticion = Math.max(1, presupuesto / 2);
+     long particiones = (bytes * BYTES_POR_BYTE_DE_LINEA + porParticion - 1) / porParticion;
+     return (int) Math.max(1, Math.min(MAX_PARTICIONES, particiones));
+ }
+
+ /**
+  * Calcula el buffer de cada archivo temporal cuando hay varios abiertos a
+  * la vez, para que entre todos usen como mucho un cuarto del presupuesto.
+  */
+ private int tamanoBuffer(int abiertos) {
+     long buffer = presupuesto / 4 / Math.max(1, abiertos);
+     return (int) Math.max(BUFFER_MINIMO, Math.min(BUFFER_MAXIMO, buffer));
+ }
+
+ /**
+  * Reparte las líneas válidas de un archivo de productos o vendedores en
+  * particiones. Cada registro lleva el ID, el nombre, el precio (0 para los
+  * vendedores) y el número de línea, que fija el orden de los empates. Las
+  * validaciones son las de UtilsFile.leerProductos y leerVendedores.
+  *
+  * @param filePath Ruta del archivo
+  * @param campos Campos mínimos de una línea válida: 3 para productos, 4 para vendedores
+  */
+ private void repartirCatalogo(String filePath, int campos, Path carpeta, String prefijo,
+                               int particiones) throws IOException {
+     DataOutputStream[] salidas = abrir(carpeta, prefijo, particiones);
+     try (BufferedReader reader = Descompresion.abrirTexto(Paths.get(filePath))) {
+         String line;
+         long linea = 0;
+         while ((line = reader.readLine()) != null) {
+             linea++;
+             String[] parts = line.split(";");
+             if (parts.length >= campos) {
+                 String id = campos == 3 ? parts[0] : parts[1];
+                 DataOutputStream out = salidas[particion(id, particiones)];
+                 out.writeUTF(id);
+                 if (campos == 3) {
+                     out.writeUTF(parts[1]);
+                     out.writeLong(Dinero.parsearCentavos(parts[2]));
+                 } else {
+                     out.writeUTF(parts[2] + " " + parts[3]);
+                     out.writeLong(0);
+                 }
+                 out.writeLong(linea);
+             }
+         }
+     } finally {
+         cerrar(salidas);
+     }
+ }
+
+ /**
+  * Lee el número de documento de la cabecera de un archivo de ventas, con
+  * las validaciones de UtilsFile.procesarArchivoVentas. Solo rechaza la
+  * cabecera si se indica, para no contarla dos veces.
+  *
+  * @return Número de documento, o null si el archivo está vacío o la cabecera es incorrecta
+  */
+ private static String leerCabecera(File file, BufferedReader reader, boolean rechazar) throws IOException {
+     String primeraLinea = reader.readLine();
+     if (primeraLinea == null) {
+         return null;
+     }
+     String[] vendedorInfo = primeraLinea.split(";");
+     if (vendedorInfo.length < 2) {
+         if (rechazar) {
+             RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.FORMATO_INCORRECTO, file.getPath(),
+                     primeraLinea);
+         }
+         return null;
+     }
+     return vendedorInfo[1];
+ }
+
+ /**
+  * Reparte la cabecera de cada archivo de ventas por el hash del ID de su
+  * vendedor. Cada registro lleva el índice del archivo y el ID, y cada
+  * partición queda en el orden de los archivos.
+  */
+ private void repartirCabeceras(File[] files, Path carpeta, int particiones) throws IOException {
+     DataOutputStream[] salidas = abrir(carpeta, "cabeceras", particiones);
+     try {
+         for (int i = 0; i < files.length; i++) {
+             try (BufferedReader reader = Descompresion.abrirTexto(files[i].toPath())) {
+                 String vendedor = leerCabecera(files[i], reader, true);
+                 if (vendedor != null) {
+                     DataOutputStream out = salidas[particion(vendedor, particiones)];
+                     out.writeInt(i);
+                     out.writeUTF(vendedor);
+                 }
+             }
+         }
+     } finally {
+         cerrar(salidas);
+     }
+ }
+
+ /**
+  * Busca los vendedores de las cabeceras de una partición entre los de la
+  * misma partición del catálogo. Se cargan los vendedores de las cabeceras,
+  * que son a lo sumo uno por archivo de ventas de la partición, y se marcan
+  * los que aparecen al recorrer el catálogo sin cargarlo. Los archivos cuyo
+  * vendedor no aparece se rechazan y sus índices se escriben, en orden,
+  * para descartarlos al repartir las ventas.
+  */
+ private void validarVendedores(File[] files, Path carpeta, int particion) throws IOException {
+     Path cabeceras = carpeta.resolve("cabeceras-" + particion + ".bin");
+     IndiceIds buscados = new IndiceIds(16);
+     try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cabeceras),
+             tamanoBuffer(1)))) {
+         while (true) {
+             try {
+                 in.readInt();
+             } catch (EOFException e) {
+                 break;
+             }
+             buscados.agregar(in.readUTF());
+         }
+     }
+     boolean[] encontrados = new boolean[buscados.size()];
+     try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+             Files.newInputStream(carpeta.resolve("vendedores-" + particion + ".bin")), tamanoBuffer(1)))) {
+         while (true) {
+             String id;
+             try {
+                 id = in.readUTF();
+             } catch (EOFException e) {
+                 break;
+             }
+             int buscado = buscados.buscar(id);
+             if (buscado != IndiceIds.NO_ENCONTRADO) {
+                 encontrados[buscado] = true;
+             }
+             // Nombre, precio y número de línea
+             in.skipBytes(in.readUnsignedShort() + 2 * Long.BYTES);
+         }
+     }
+
+     try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cabeceras),
+             tamanoBuffer(2)));
+          DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                  Files.newOutputStream(carpeta.resolve("invalidos-" + particion + ".bin")), tamanoBuffer(2)))) {
+         while (true) {
+             int archivo;
+             try {
+                 archivo = in.readInt();
+             } catch (EOFException e) {
+                 break;
+             }
+             String vendedor = in.readUTF();
+             if (!encontrados[buscados.buscar(vendedor)]) {
+                 RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.VENDEDOR_NO_ENCONTRADO,
+                         files[archivo].getPath(), vendedor);
+                 out.writeInt(archivo);
+             }
+         }
+     }
+     Files.delete(cabeceras);
+ }
+
+ /**
+  * Reparte las ventas de los archivos válidos por el hash del ID del
+  * producto. Cada registro lleva el índice del archivo, la cantidad y el ID;
+  * antes del primer registro de un archivo en una partición se escribe el
+  * índice del archivo como -1 - índice y el ID de su vendedor. Las
+  * cantidades inválidas se rechazan aquí, igual que al procesar un archivo
+  * en memoria.
+  */
+ private void repartirVentas(File[] files, Path carpeta, int particiones,
+                             int particionesVendedores) throws IOException {
+     MetricasPipeline metricas = MetricasPipeline.global();
+     RegistroRechazos rechazos = RegistroRechazos.global();
+     int[] ultimoArchivo = new int[particiones];
+     Arrays.fill(ultimoArchivo, -1);
+     DataOutputStream[] salidas = abrir(carpeta, "ventas", particiones);
+     try (Indices invalidos = new Indices(corridas(carpeta, "invalidos", particionesVendedores),
+             tamanoBuffer(particionesVendedores))) {
+         for (int i = 0; i < files.length; i++) {
+             if (invalidos.contiene(i)) {
+                 continue;
+             }
+             long inicio = System.nanoTime();
+             String filePath = files[i].getPath();
+             long lineas = 0;
+             try (BufferedReader reader = Descompresion.abrirTexto(files[i].toPath())) {
+                 // La cabecera ya se rechazó al repartir las cabeceras
+                 String vendedor = leerCabecera(files[i], reader, false);
+                 if (vendedor == null) {
+                     continue;
+                 }
+                 String line;
+                 while ((line = reader.readLine()) != null) {
+                     lineas++;
+                     int finId = line.indexOf(';');
+                     if (finId >= 0) {
+                         int finCantidad = line.indexOf(';', finId + 1);
+                         if (finCantidad < 0) {
+                             finCantidad = line.length();
+                         }
+                         if (finCantidad > finId + 1) {
+                             int cantidad;
+                             try {
+                                 cantidad = Integer.parseInt(line, finId + 1, finCantidad, 10);
+                             } catch (NumberFormatException e) {
+                                 rechazos.rechazar(RegistroRechazos.Categoria.CANTIDAD_INVALIDA, filePath, line);
+                                 continue;
+                             }
+                             String id = line.substring(0, finId);
+                             int particion = particion(id, particiones);
+                             DataOutputStream out = salidas[particion];
+                             if (ultimoArchivo[particion] != i) {
+                                 out.writeInt(-1 - i);
+                                 out.writeUTF(vendedor);
+                                 ultimoArchivo[particion] = i;
+                             }
+                             out.writeInt(i);
+                             out.writeInt(cantidad);
+                             out.writeUTF(id);
+                         }
+                     }
+                 }
+             }
+             metricas.registrarArchivo(files[i].length(), lineas, System.nanoTime() - inicio);
+         }
+     } finally {
+         cerrar(salidas);
+     }
+ }
+
+ /**
+  * Carga una partición de productos, le suma sus ventas y escribe sus
+  * productos ordenados por cantidad vendida. El monto que cada archivo de
+  * ventas aporta en la partición se escribe, con el ID de su vendedor, en
+  * la partición de ese vendedor.
+  */
+ private void sumarProductos(File[] files, DataOutputStream[] montos, Path carpeta, int particion) throws IOException {
+     Particion productos = cargarParticion(carpeta.resolve("productos-" + particion + ".bin"));
+     Path ventas = carpeta.resolve("ventas-" + particion + ".bin");
+     RegistroRechazos rechazos = RegistroRechazos.global();
+     String vendedor = null;
+     long monto = 0;
+     try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(ventas),
+             tamanoBuffer(1)))) {
+         while (true) {
+             int archivo;
+             try {
+                 archivo = in.readInt();
+             } catch (EOFException e) {
+                 break;
+             }
+             if (archivo < 0) {
+                 // Empiezan las ventas de otro archivo
+                 escribirMonto(montos, vendedor, monto);
+                 vendedor = in.readUTF();
+                 monto = 0;
+                 continue;
+             }
+             int cantidad = in.readInt();
+             String id = in.readUTF();
+             int producto = productos.indice.buscar(id);
+             if (producto == IndiceIds.NO_ENCONTRADO) {
+                 rechazos.rechazar(RegistroRechazos.Categoria.PRODUCTO_NO_ENCONTRADO, files[archivo].getPath(), id);
+             } else if (cantidad > 0) {
+                 productos.valores[producto] += cantidad;
+                 monto += cantidad * productos.precios[producto];
+             }
+         }
+     }
+     escribirMonto(montos, vendedor, monto);
+     Files.delete(ventas);
+     escribirCorrida(productos, carpeta.resolve("filas-productos-" + particion + ".bin"));
+ }
+
+ private static void escribirMonto(DataOutputStream[] montos, String vendedor, long monto) throws IOException {
+     if (monto != 0) {
+         DataOutputStream out = montos[particion(vendedor, montos.length)];
+         out.writeUTF(vendedor);
+         out.writeLong(monto);
+     }
+ }
+
+ /**
+  * Carga una partición de vendedores, le suma los montos escritos en ella
+  * y escribe sus vendedores ordenados por total de ventas.
+  */
+ private void sumarVendedores(Path carpeta, int particion) throws IOException {
+     Particion filas = cargarParticion(carpeta.resolve("vendedores-" + particion + ".bin"));
+     Path montos = carpeta.resolve("montos-" + particion + ".bin");
+     try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(montos),
+             tamanoBuffer(1)))) {
+         while (true) {
+             String vendedor;
+             try {
+                 vendedor = in.readUTF();
+             } catch (EOFException e) {
+                 break;
+             }
+             // Solo llegan montos de archivos cuyo vendedor se validó en esta partición
+             filas.valores[filas.indice.buscar(vendedor)] += in.readLong();
+         }
+     }
+     Files.delete(montos);
+     escribirCorrida(filas, carpeta.resolve("filas-vendedores-" + particion + ".bin"));
+ }
+
+ /**
+  * Carga una partición del catálogo. Si un ID se repite se usan los datos
+  * de su última línea y la posición de la primera, como en CatalogoPerezoso.
+  * Es la última lectura de la partición, así que su archivo se borra.
+  */
+ private Particion cargarParticion(Path path) throws IOException {
+     Particion particion = new Particion((int) Math.min(1 << 24, Math.max(16, Files.size(path) / 32)));
+     try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path),
+             tamanoBuffer(1)))) {
+         while (true) {
+             String id;
+             try {
+                 id = in.readUTF();
+             } catch (EOFException e) {
+                 break;
+             }
+             particion.agregar(id, in.readUTF(), in.readLong(), in.readLong());
+         }
+     }
+     Files.delete(path);
+     return particion;
+ }
+
+ /**
+  * Ordena las filas de una partición por valor (de mayor a menor) y, a
+  * igual valor, por orden de aparición, y las escribe en una corrida.
+  */
+ private void escribirCorrida(Particion particion, Path path) throws IOException {
+     long inicio = System.nanoTime();
+     int[] orden = UtilsFile.ordenarPorValor(Arrays.copyOf(particion.valores, particion.indice.size()), 0);
+     try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path),
+             tamanoBuffer(1)))) {
+         for (int i : orden) {
+             out.writeLong(particion.valores[i]);
+             out.writeLong(particion.ordenes[i]);
+             out.writeUTF(particion.nombres[i]);
+             out.writeLong(particion.precios[i]);
+         }
+     }
+     nanosOrdenamiento += System.nanoTime() - inicio;
+ }
+
+ /**
+  * Mezcla las corridas ordenadas en un reporte, tomando siempre la primera
+  * fila entre las de todas las corridas.
+  */
+ private void mezclar(List<Path> corridas, Path destino, String cabecera, int topK,
+                      EscritorFila escritorFila) throws IOException {
+     int buffer = tamanoBuffer(corridas.size());
+     PriorityQueue<Corrida> cola = new PriorityQueue<>(Math.max(1, corridas.size()),
+             Comparator.comparing((Corrida corrida) -> corrida.actual, ORDEN_REPORTE));
+     try (EscritorCSV writer = new EscritorCSV(destino)) {
+         try {
+             for (Path path : corridas) {
+                 Corrida corrida = new Corrida(path, buffer);
+                 if (corrida.avanzar()) {
+                     cola.add(corrida);
+                 } else {
+                     corrida.close();
+                 }
+             }
+             writer.escribir(cabecera).nuevaLinea();
+             long escritas = 0;
+             while (!cola.isEmpty() && (topK <= 0 || escritas < topK)) {
+                 Corrida corrida = cola.poll();
+                 escritorFila.escribir(writer, corrida.actual);
+                 escritas++;
+                 if (corrida.avanzar()) {
+                     cola.add(corrida);
+                 } else {
+                     corrida.close();
+                 }
+             }
+         } finally {
+             for (Corrida corrida : cola) {
+                 corrida.close();
+             }
+         }
+     }
+ }
+
+ private static List<Path> corridas(Path carpeta, String prefijo, int particiones) {
+     List<Path> corridas = new ArrayList<>();
+     for (int i = 0; i < particiones; i++) {
+         corridas.add(carpeta.resolve(prefijo + "-" + i + ".bin"));
+     }
+     return corridas;
+ }
+
+ private DataOutputStream[] abrir(Path carpeta, String prefijo, int particiones) throws IOException {
+     int buffer = tamanoBuffer(particiones);
+     DataOutputStream[] salidas = new DataOutputStream[particiones];
+     try {
+         for (int i = 0; i < particiones; i++) {
+             salidas[i] = new DataOutputStream(new BufferedOutputStream(
+                     Files.newOutputStream(carpeta.resolve(prefijo + "-" + i + ".bin")), buffer));
+         }
+     } catch (IOException e) {
+         cerrar(salidas);
+         throw e;
+     }
+     return salidas;
+ }
+
+ private static void cerrar(DataOutputStream[] salidas) throws IOException {
+     IOException error = null;
+     for (DataOutputStream salida : salidas) {
+         if (salida != null) {
+             try {
+                 salida.close();
+             } catch (IOException e) {
+                 error = error == null ? e : error;
+             }
+         }
+     }
+     if (error != null) {
+         throw error;
+     }
+ }
+
+ /**
+  * Elige la partición de un ID. Los bits del hash se mezclan para que IDs
+  * consecutivos no caigan en particiones consecutivas.
+  */
+ private static int particion(String id, int particiones) {
+     int h = id.hashCode() * 0x9E3779B9;
+     return Math.floorMod(h ^ (h >>> 16), particiones);
+ }
+
+ private static long tamanoMiB(Path carpeta) throws IOException {
+     try (Stream<Path> archivos = Files.list(carpeta)) {
+         long bytes = 0;
+         for (Path path : (Iterable<Path>) archivos::iterator) {
+             bytes += Files.size(path);
+         }
+         return bytes >> 20;
+     }
+ }
+
+ private static void borrar(Path carpeta) throws IOException {
+     try (Stream<Path> archivos = Files.list(carpeta)) {
+         for (Path path : (Iterable<Path>) archivos::iterator) {
+             Files.delete(path);
+         }
+     }
+     Files.delete(carpeta);
+ }
+
+ /**
+  * Escribe una fila de un reporte.
+  */
+ @FunctionalInterface
+ private interface EscritorFila {
+     void escribir(EscritorCSV writer, Fila fila) throws IOException;
+ }
+
+ /**
+  * Productos o vendedores de una partición, en arreglos indexados por un
+  * IndiceIds en el orden en que aparecen. Para un vendedor el nombre
+  * incluye los apellidos y el precio es 0.
+  */
+ private static class Particion {
+     private final IndiceIds indice;
+     private String[] nombres;
+     private long[] precios;
+     private long[] ordenes;
+     private long[] valores;
+
+     Particion(int capacidad) {
+         this.indice = new IndiceIds(capacidad);
+         this.nombres = new String[16];
+         this.precios = new long[16];
+         this.ordenes = new long[16];
+         this.valores = new long[16];
+     }
+
+     void agregar(String id, String nombre, long precio, long orden) {
+         int nuevo = indice.size();
+         int i = indice.agregar(id);
+         if (i == nombres.length) {
+             nombres = Arrays.copyOf(nombres, i * 2);
+             precios = Arrays.copyOf(precios, i * 2);
+             ordenes = Arrays.copyOf(ordenes, i * 2);
+             valores = Arrays.copyOf(valores, i * 2);
+         }
+         if (i == nuevo) {
+             ordenes[i] = orden;
+         }
+         nombres[i] = nombre;
+         precios[i] = precio;
+     }
+ }
+
+ /**
+  * Índices de archivos de ventas leídos en orden de varias corridas
+  * ordenadas, para consultarlos con índices crecientes sin cargarlos.
+  */
+ private static class Indices implements AutoCloseable {
+     private final PriorityQueue<Enteros> cola = new PriorityQueue<>(Comparator.comparingInt(e -> e.actual));
+     private final List<Enteros> abiertas = new ArrayList<>();
+
+     Indices(List<Path> corridas, int buffer) throws IOException {
+         try {
+             for (Path path : corridas) {
+                 Enteros enteros = new Enteros(path, buffer);
+                 abiertas.add(enteros);
+                 if (enteros.avanzar()) {
+                     cola.add(enteros);
+                 }
+             }
+         } catch (IOException e) {
+             close();
+             throw e;
+         }
+     }
+
+     /**
+      * Indica si el índice está en alguna corrida. Los índices consultados
+      * deben ser crecientes.
+      */
+     boolean contiene(int indice) throws IOException {
+         while (!cola.isEmpty() && cola.peek().actual < indice) {
+             Enteros enteros = cola.poll();
+             if (enteros.avanzar()) {
+                 cola.add(enteros);
+             }
+         }
+         return !cola.isEmpty() && cola.peek().actual == indice;
+     }
+
+     @Override
+     public void close() throws IOException {
+         IOException error = null;
+         for (Enteros enteros : abiertas) {
+             try {
+                 enteros.in.close();
+                 Files.deleteIfExists(enteros.path);
+             } catch (IOException e) {
+                 error = error == null ? e : error;
+             }
+         }
+         if (error != null) {
+             throw error;
+         }
+     }
+ }
+
+ /**
+  * Corrida de enteros ordenados que se lee de a uno.
+  */
+ private static class Enteros {
+     private final DataInputStream in;
+     private final Path path;
+     private int actual;
+
+     Enteros(Path path, int buffer) throws IOException {
+         this.path = path;
+         this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), buffer));
+     }
+
+     boolean avanzar() throws IOException {
+         try {
+             actual = in.readInt();
+             return true;
+         } catch (EOFException e) {
+             return false;
+         }
+     }
+ }
+
+ /**
+  * Fila de una corrida: producto o vendedor con su total.
+  */
+ private static class Fila {
+     private String nombre;
+     private long precio;
+     private long orden;
+     private long valor;
+ }
+
+ /**
+  * Corrida ordenada que se lee fila por fila durante la mezcla, sobre la
+  * misma Fila.
+  */
+ private static class Corrida implements AutoCloseable {
+     private final DataInputStream in;
+     private final Path path;
+     private final Fila actual = new Fila();
+
+     Corrida(Path path, int buffer) throws IOException {
+         this.path = path;
+         this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), buffer));
+     }
+
+     /**
+      * Lee la siguiente fila de la corrida.
+      *
+      * @return false si la corrida terminó
+      */
+     boolean avanzar() throws IOException {
+         Fila fila = actual;
+         try {
+             fila.valor = in.readLong();
+         } catch (EOFException e) {
+             return false;
+         }
+         fila.orden = in.readLong();
+         fila.nombre = in.readUTF();
+         fila.precio = in.readLong();
+         return true;
+     }
+
+     @Override
+     public void close() throws IOException {
+         in.close();
+         Files.deleteIfExists(path);
+     }
+ }
+}
@@ -0,0 +1,246 @@
+package utils;
+
+import java.io.File;
+
+/**
+* Acumulado de ventas en arreglos primitivos indexados por los índices
+* densos de un CatalogoIndexado. Los montos se suman en centavos, por lo
+* que el resultado es exacto y no depende del orden en que se combinan los
+* acumulados de cada hilo.
+*
+* Cada hilo de procesamiento llena su propio acumulado sin compartir estado
+* con los demás; al final los acumulados se combinan sumando los arreglos y
+* se aplican sobre el modelo.
+*
+* Si se indica un tipo de ventana, el acumulado llena además un CuboVentas
+* parcial con las ventas por vendedor × producto y por ventana × producto.
+*
+* Si se deduplica por contenido, las ventas de cada archivo quedan pendientes
+* en un MapaLongLong mientras se calcula el hash de su contenido, y solo se
+* suman al acumulado si el RegistroContenidos no tenía ese contenido.
+*
+* Un archivo cuenta en el cubo solo cuando el lector acepta su cabecera
+* (aceptarCabecera), y si se deduplica, solo cuando además se confirma.
+* El archivo pendiente se puede retirar (tomarPendiente) y confirmar en el
+* acumulado de otro hilo, para confirmar los archivos en el orden de la
+* lista aunque se lean en paralelo.
+*/
+class AgregadosIndexados {
+ private final CatalogoIndexado catalogo;
+ private final long[] cantidades;
+ private final long[] ventasCentavos;
+ private final CuboVentas cubo;
+
+ /** Ventas por vendedor y producto del archivo en curso, o null si no se deduplica. */
+ private MapaLongLong pendientes;
+ private HashContenido hashContenido;
+ private File archivoPendiente;
+ private boolean cabeceraAceptada;
+
+ /**
+  * Constructor de la clase AgregadosIndexados.
+  *
+  * @param catalogo Catálogo con los índices de productos y vendedores
+  */
+ AgregadosIndexados(CatalogoIndexado catalogo) {
+     this(catalogo, null);
+ }
+
+ /**
+  * Constructor de un acumulado que llena también un cubo de ventas.
+  *
+  * @param catalogo Catálogo con los índices de productos y vendedores
+  * @param tipoVentana Forma de agrupar los archivos en ventanas, o null para no llenar un cubo
+  */
+ AgregadosIndexados(CatalogoIndexado catalogo, CuboVentas.Ventana tipoVentana) {
+     this.catalogo = catalogo;
+     this.cantidades = new long[catalogo.getNumProductos()];
+     this.ventasCentavos = new long[catalogo.getNumVendedores()];
+     this.cubo = tipoVentana != null ? new CuboVentas(tipoVentana, catalogo) : null;
+ }
+
+ /**
+  * Indica el archivo al que pertenecen las ventas que se registren a
+  * continuación, para ubicarlas en su ventana del cubo.
+  *
+  * @param file Archivo de ventas
+  */
+ void iniciarArchivo(File file) {
+     if (cubo != null) {
+         cubo.iniciarArchivo(file);
+     }
+ }
+
+ /**
+  * Indica que el lector aceptó la cabecera del archivo en curso. El archivo
+  * cuenta entonces en su ventana del cubo o, si está pendiente, al
+  * confirmarlo.
+  */
+ void aceptarCabecera() {
+     if (pendientes != null) {
+         cabeceraAceptada = true;
+     } else if (cubo != null) {
+         cubo.contarArchivo();
+     }
+ }
+
+ /**
+  * Indica el archivo al que pertenecen las ventas que se registren a
+  * continuación y las deja pendientes hasta confirmarArchivo. Mientras
+  * tanto, el lector del archivo agrega sus bytes a getHashContenido().
+  *
+  * @param file Archivo de ventas
+  */
+ void iniciarArchivoPendiente(File file) {
+     archivoPendiente = file;
+     pendientes = new MapaLongLong(64);
+     hashContenido = new HashContenido();
+     cabeceraAceptada = false;
+ }
+
+ /**
+  * Obtiene el hash del contenido del archivo pendiente.
+  *
+  * @return Hash del contenido leído, o null si no hay un archivo pendiente
+  */
+ HashContenido getHashContenido() {
+     return hashContenido;
+ }
+
+ /**
+  * Retira el archivo pendiente, con sus ventas y su hash, para confirmarlo
+  * con confirmarArchivo en este acumulado o en el de otro hilo. Las ventas
+  * que se registren a continuación ya no quedan pendientes.
+  *
+  * @return Archivo pendiente, o null si no hay uno
+  */
+ ArchivoPendiente tomarPendiente() {
+     if (pendientes == null) {
+         return null;
+     }
+     ArchivoPendiente pendiente = new ArchivoPendiente(archivoPendiente, pendientes, hashContenido, cabeceraAceptada);
+     archivoPendiente = null;
+     pendientes = null;
+     hashContenido = null;
+     return pendiente;
+ }
+
+ /**
+  * Termina un archivo pendiente: si su cabecera fue aceptada y su contenido
+  * no estaba registrado, lo registra y suma sus ventas a este acumulado; si
+  * no, las descarta. Un archivo con la cabecera rechazada no se registra,
+  * porque se dejó de leer y su hash no cubre todo el contenido.
+  *
+  * @param pendiente Archivo retirado con tomarPendiente
+  * @param contenidos Registro de contenidos ya acumulados
+  * @return false si el archivo se descartó por tener un contenido ya registrado
+  */
+ boolean confirmarArchivo(ArchivoPendiente pendiente, RegistroContenidos contenidos) {
+     if (!pendiente.cabeceraAceptada) {
+         return true;
+     }
+     if (!contenidos.registrar(pendiente.hash.getValue(), pendiente.hash.getLongitud())) {
+         return false;
+     }
+     iniciarArchivo(pendiente.archivo);
+     if (cubo != null) {
+         cubo.contarArchivo();
+     }
+     pendiente.ventas.recorrer((clave, cantidad) -> sumar((int) (clave >>> 32), (int) clave, cantidad));
+     return true;
+ }
+
+ /**
+  * Obtiene el cubo de ventas parcial de este acumulado.
+  *
+  * @return Cubo de ventas, o null si no se llena un cubo
+  */
+ CuboVentas getCubo() {
+     return cubo;
+ }
+
+ /**
+  * Registra una venta.
+  *
+  * @param vendedor Índice del vendedor que realizó la venta
+  * @param producto Índice del producto vendido
+  * @param cantidad Cantidad vendida
+  */
+ void registrar(int vendedor, int producto, long cantidad) {
+     if (cantidad > 0) {
+         if (pendientes != null) {
+             pendientes.sumar((long) vendedor << 32 | producto, cantidad);
+         } else {
+             sumar(vendedor, producto, cantidad);
+         }
+     }
+ }
+
+ private void sumar(int vendedor, int producto, long cantidad) {
+     cantidades[producto] += cantidad;
+     ventasCentavos[vendedor] += cantidad * catalogo.getPrecioCentavos(producto);
+     if (cubo != null) {
+         cubo.registrar(vendedor, producto, cantidad);
+     }
+ }
+
+ /**
+  * Combina otro acumulado dentro de este.
+  *
+  * @param otro Acumulado a combinar
+  */
+ void combinar(AgregadosIndexados otro) {
+     for (int i = 0; i < cantidades.length; i++) {
+         cantidades[i] += otro.cantidades[i];
+     }
+     for (int i = 0; i < ventasCentavos.length; i++) {
+         ventasCentavos[i] += otro.ventasCentavos[i];
+     }
+     if (cubo != null) {
+         cubo.combinar(otro.cubo);
+     }
+ }
+
+ /**
+  * Aplica el acumulado sobre los totales del catálogo.
+  */
+ void aplicar() {
+     catalogo.aplicar(cantidades, ventasCentavos);
+ }
+
+ /**
+  * Archivo de ventas leído cuyas ventas esperan a que se confirme su
+  * contenido.
+  */
+ static final class ArchivoPendiente {
+     private final File archivo;
+     private final MapaLongLong ventas;
+     private final HashContenido hash;
+     private final boolean cabeceraAceptada;
+
+     private ArchivoPendiente(File archivo, MapaLongLong ventas, HashContenido hash, boolean cabeceraAceptada) {
+         this.archivo = archivo;
+         this.ventas = ventas;
+         this.hash = hash;
+         this.cabeceraAceptada = cabeceraAceptada;
+     }
+
+     /**
+      * Obtiene el archivo de ventas.
+      *
+      * @return Archivo de ventas
+      */
+     File getArchivo() {
+         return archivo;
+     }
+
+     /**
+      * Obtiene el hash del contenido del archivo.
+      *
+      * @return Hash del contenido
+      */
+     HashContenido getHash() {
+         return hash;
+     }
+ }
+}
@@ -0,0 +1,391 @@
+package utils;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+* Formato binario columnar para archivos de ventas (.vbin).
+*
+* Formato (big-endian; los textos son int longitud + bytes UTF-8):
+* <pre>
+* int magia, int version
+* bloques, uno por vendedor:
+*   texto tipoDocumento, texto numeroDocumento
+*   int ventas, int bytesColumnas
+*   columna de productos: ventas × varint (índice en el diccionario)
+*   columna de cantidades: ventas × varint zigzag
+* diccionario: int n, n × texto idProducto
+* long posición del diccionario
+* </pre>
+* Los IDs de producto se guardan una sola vez en el diccionario, al final
+* para que el conversor no tenga que leer dos veces los archivos de texto.
+* Al leer, cada entrada del diccionario se busca una sola vez en el catálogo,
+* así que las ventas se acumulan sin buscar IDs por línea.
+*/
+public class ArchivoVentasBinario {
+ /** Extensión de los archivos de ventas binarios. */
+ public static final String EXTENSION = ".vbin";
+
+ private static final int MAGIA = 0x5642494E; // "VBIN"
+ private static final int VERSION = 1;
+ private static final int TAMANO_BUFFER = 1 << 20;
+
+ /**
+  * Indica si un nombre de archivo corresponde a un archivo de ventas binario.
+  *
+  * @param name Nombre del archivo
+  * @return true si tiene la extensión .vbin
+  */
+ public static boolean esArchivoBinario(String name) {
+     return name.endsWith(EXTENSION);
+ }
+
+ /**
+  * Convierte archivos de ventas de texto a un archivo binario. Los archivos
+  * de un mismo vendedor quedan en un solo bloque. Las líneas con cantidad
+  * inválida y los archivos con cabecera incorrecta se registran en
+  * RegistroRechazos y no se convierten; los productos y vendedores no se
+  * validan, eso se hace al leer con el catálogo vigente.
+  *
+  * @param files Archivos de ventas de texto
+  * @param destino Ruta del archivo binario a crear
+  * @return Cantidad de ventas convertidas
+  * @throws IOException Si ocurre un error de lectura o escritura
+  */
+ public static long convertir(File[] files, Path destino) throws IOException {
+     // Agrupar los archivos por vendedor según su cabecera
+     Map<String, List<File>> archivosPorVendedor = new LinkedHashMap<>();
+     for (File file : files) {
+         try (BufferedReader reader = Descompresion.abrirTexto(file.toPath())) {
+             String primeraLinea = reader.readLine();
+             if (primeraLinea == null) {
+                 continue;
+             }
+             String[] vendedorInfo = primeraLinea.split(";");
+             if (vendedorInfo.length < 2) {
+                 RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.FORMATO_INCORRECTO,
+                         file.getPath(), primeraLinea);
+                 continue;
+             }
+             String vendedor = vendedorInfo[0] + ';' + vendedorInfo[1];
+             archivosPorVendedor.computeIfAbsent(vendedor, k -> new ArrayList<>()).add(file);
+         }
+     }
+
+     Map<String, Integer> diccionario = new HashMap<>();
+     List<String> ids = new ArrayList<>();
+     long totalVentas = 0;
+     try (FileOutputStream salida = new FileOutputStream(destino.toFile());
+          DataOutputStream out = new DataOutputStream(new BufferedOutputStream(salida, TAMANO_BUFFER))) {
+         out.writeInt(MAGIA);
+         out.writeInt(VERSION);
+
+         ColumnaVarint productos = new ColumnaVarint();
+         ColumnaVarint cantidades = new ColumnaVarint();
+         for (Map.Entry<String, List<File>> entry : archivosPorVendedor.entrySet()) {
+             productos.limpiar();
+             cantidades.limpiar();
+             int ventas = 0;
+             for (File file : entry.getValue()) {
+                 ventas += leerVentas(file, diccionario, ids, productos, cantidades);
+             }
+
+             int separador = entry.getKey().indexOf(';');
+             escribirTexto(out, entry.getKey().substring(0, separador));
+             escribirTexto(out, entry.getKey().substring(separador + 1));
+             out.writeInt(ventas);
+             out.writeInt(productos.tamano + cantidades.tamano);
+             out.write(productos.datos, 0, productos.tamano);
+             out.write(cantidades.datos, 0, cantidades.tamano);
+             totalVentas += ventas;
+         }
+
+         out.flush();
+         long posicionDiccionario = salida.getChannel().position();
+         out.writeInt(ids.size());
+         for (String id : ids) {
+             escribirTexto(out, id);
+         }
+         out.writeLong(posicionDiccionario);
+     }
+     return totalVentas;
+ }
+
+ /**
+  * Lee las ventas de un archivo de texto y las agrega a las columnas.
+  *
+  * @return Cantidad de ventas agregadas
+  */
+ private static int leerVentas(File file, Map<String, Integer> diccionario, List<String> ids,
+                               ColumnaVarint productos, ColumnaVarint cantidades) throws IOException {
+     int ventas = 0;
+     try (BufferedReader reader = Descompresion.abrirTexto(file.toPath())) {
+         reader.readLine(); // La cabecera ya se leyó al agrupar
+         String line;
+         while ((line = reader.readLine()) != null) {
+             int finId = line.indexOf(';');
+             if (finId >= 0) {
+                 int finCantidad = line.indexOf(';', finId + 1);
+                 if (finCantidad < 0) {
+                     finCantidad = line.length();
+                 }
+                 if (finCantidad > finId + 1) {
+                     int cantidad;
+                     try {
+                         cantidad = Integer.parseInt(line, finId + 1, finCantidad, 10);
+                     } catch (NumberFormatException e) {
+                         RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.CANTIDAD_INVALIDA,
+                                 file.getPath(), line);
+                         continue;
+                     }
+                     String id = line.substring(0, finId);
+                     Integer indice = diccionario.get(id);
+                     if (indice == null) {
+                         indice = ids.size();
+                         diccionario.put(id, indice);
+                         ids.add(id);
+                     }
+                     productos.agregar(indice);
+                     cantidades.agregar((cantidad << 1) ^ (cantidad >> 31));
+                     ventas++;
+                 }
+             }
+         }
+     }
+     return ventas;
+ }
+
+ /**
+  * Procesa un archivo de ventas binario.
+  *
+  * @param filePath Ruta del archivo binario
+  * @param catalogo Catálogo indexado de productos y vendedores
+  * @param resultado Acumulado donde se registran las ventas
+  * @return Cantidad de ventas leídas
+  * @throws IOException Si ocurre un error de lectura o el formato es inválido
+  */
+ static long procesarArchivoVentas(Path filePath, CatalogoIndexado catalogo,
+                                   AgregadosIndexados resultado) throws IOException {
+     try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+         long size = channel.size();
+         Entrada cabecera = new Entrada(channel, 0, Math.min(size, 8));
+         if (size < 20 || cabecera.leerInt() != MAGIA) {
+             throw new IOException("El archivo no es un archivo de ventas binario: " + filePath);
+         }
+         int version = cabecera.leerInt();
+         if (version != VERSION) {
+             throw new IOException("Versión de archivo de ventas binario no soportada: " + version);
+         }
+         long posicionDiccionario = new Entrada(channel, size - 8, size).leerLong();
+         if (posicionDiccionario < 8 || posicionDiccionario > size - 12) {
+             throw new IOException("Archivo de ventas binario dañado: " + filePath);
+         }
+         resultado.aceptarCabecera();
+
+         // Cada ID del diccionario se busca una sola vez en el catálogo
+         Entrada entradaDiccionario = new Entrada(channel, posicionDiccionario, size - 8);
+         int numProductos = entradaDiccionario.leerInt();
+         String[] ids = new String[numProductos];
+         int[] productos = new int[numProductos];
+         IndiceIds indiceProductos = catalogo.getIndiceProductos();
+         for (int i = 0; i < numProductos; i++) {
+             ids[i] = entradaDiccionario.leerTexto();
+             productos[i] = indiceProductos.buscar(ids[i]);
+         }
+
+         RegistroRechazos rechazos = RegistroRechazos.global();
+         String archivo = filePath.toString();
+         Entrada entrada = new Entrada(channel, 8, posicionDiccionario);
+         int[] columnaProductos = new int[0];
+         long ventasLeidas = 0;
+         while (entrada.quedan()) {
+             entrada.leerTexto(); // Tipo de documento
+             String numDoc = entrada.leerTexto();
+             int ventas = entrada.leerInt();
+             int bytesColumnas = entrada.leerInt();
+             int vendedor = catalogo.getIndiceVendedores().buscar(numDoc);
+             if (vendedor == IndiceIds.NO_ENCONTRADO) {
+                 rechazos.rechazar(RegistroRechazos.Categoria.VENDEDOR_NO_ENCONTRADO, archivo, numDoc);
+                 entrada.saltar(bytesColumnas);
+                 continue;
+             }
+
+             ByteBuffer columnas = entrada.leer(bytesColumnas);
+             if (columnaProductos.length < ventas) {
+                 columnaProductos = new int[ventas];
+             }
+             for (int i = 0; i < ventas; i++) {
+                 columnaProductos[i] = leerVarint(columnas);
+             }
+             for (int i = 0; i < ventas; i++) {
+                 int zigzag = leerVarint(columnas);
+                 int cantidad = (zigzag >>> 1) ^ -(zigzag & 1);
+                 int indice = columnaProductos[i];
+                 if (indice < 0 || indice >= numProductos) {
+                     throw new IOException("Archivo de ventas binario dañado: " + filePath);
+                 }
+                 int producto = productos[indice];
+                 if (producto != IndiceIds.NO_ENCONTRADO) {
+                     resultado.registrar(vendedor, producto, cantidad);
+                 } else {
+                     rechazos.rechazar(RegistroRechazos.Categoria.PRODUCTO_NO_ENCONTRADO, archivo, ids[indice]);
+                 }
+             }
+             ventasLeidas += ventas;
+         }
+         return ventasLeidas;
+     }
+ }
+
+ private static int leerVarint(ByteBuffer buffer) throws IOException {
+     int valor = 0;
+     for (int desplazamiento = 0; desplazamiento < 35; desplazamiento += 7) {
+         byte b = buffer.get();
+         valor |= (b & 0x7F) << desplazamiento;
+         if (b >= 0) {
+             return valor;
+         }
+     }
+     throw new IOException("Varint inválido en archivo de ventas binario");
+ }
+
+ private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+     byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+     out.writeInt(bytes.length);
+     out.write(bytes);
+ }
+
+ /**
+  * Columna de enteros codificados como varint en un arreglo que crece.
+  */
+ private static class ColumnaVarint {
+     private byte[] datos = new byte[1024];
+     private int tamano;
+
+     void agregar(int valor) {
+         if (tamano + 5 > datos.length) {
+             datos = Arrays.copyOf(datos, datos.length * 2);
+         }
+         while ((valor & ~0x7F) != 0) {
+             datos[tamano++] = (byte) (valor & 0x7F | 0x80);
+             valor >>>= 7;
+         }
+         datos[tamano++] = (byte) valor;
+     }
+
+     void limpiar() {
+         tamano = 0;
+     }
+ }
+
+ /**
+  * Lectura secuencial de la región [desde, hasta) de un archivo con un
+  * buffer que se recarga a medida que se consume.
+  */
+ private static class Entrada {
+     private final FileChannel channel;
+     private final long hasta;
+     private long posicion;
+     private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+     Entrada(FileChannel channel, long desde, long hasta) {
+         this.channel = channel;
+         this.posicion = desde;
+         this.hasta = hasta;
+     }
+
+     boolean quedan() {
+         return buffer.hasRemaining() || posicion < hasta;
+     }
+
+     int leerInt() throws IOException {
+         return asegurar(4).getInt();
+     }
+
+     long leerLong() throws IOException {
+         return asegurar(8).getLong();
+     }
+
+     String leerTexto() throws IOException {
+         int longitud = leerInt();
+         if (longitud < 0) {
+             throw new IOException("Texto inválido en archivo de ventas binario");
+         }
+         ByteBuffer datos = asegurar(longitud);
+         String texto = new String(datos.array(), datos.arrayOffset() + datos.position(), longitud,
+                 StandardCharsets.UTF_8);
+         datos.position(datos.position() + longitud);
+         return texto;
+     }
+
+     /**
+      * Retorna el buffer con los siguientes bytes disponibles y avanza la
+      * lectura sobre ellos.
+      */
+     ByteBuffer leer(int bytes) throws IOException {
+         ByteBuffer datos = asegurar(bytes);
+         ByteBuffer region = datos.slice();
+         region.limit(bytes);
+         datos.position(datos.position() + bytes);
+         return region;
+     }
+
+     void saltar(int bytes) throws IOException {
+         int enBuffer = Math.min(bytes, buffer.remaining());
+         buffer.position(buffer.position() + enBuffer);
+         posicion += bytes - enBuffer;
+         if (posicion > hasta) {
+             throw new EOFException("Archivo de ventas binario incompleto");
+         }
+     }
+
+     /**
+      * Garantiza que haya al menos la cantidad de bytes indicada en el buffer.
+      */
+     private ByteBuffer asegurar(int bytes) throws IOException {
+         if (buffer.remaining() >= bytes) {
+             return buffer;
+         }
+         if (bytes < 0 || bytes > hasta - posicion + buffer.remaining()) {
+             throw new EOFException("Archivo de ventas binario incompleto");
+         }
+         // El buffer no supera lo que queda de la región, salvo para una columna más grande
+         int capacidad = (int) Math.min(Math.max(bytes, TAMANO_BUFFER), hasta - posicion + buffer.remaining());
+         ByteBuffer nuevo = buffer.capacity() >= capacidad ? buffer : ByteBuffer.allocate(capacidad);
+         if (nuevo != buffer) {
+             nuevo.put(buffer);
+         } else {
+             nuevo.compact();
+         }
+         int porLeer = (int) Math.min(nuevo.remaining(), hasta - posicion);
+         nuevo.limit(nuevo.position() + porLeer);
+         while (nuevo.hasRemaining()) {
+             int leidos = channel.read(nuevo, posicion);
+             if (leidos < 0) {
+                 throw new EOFException("Archivo de ventas binario incompleto");
+             }
+             posicion += leidos;
+         }
+         nuevo.flip();
+         buffer = nuevo;
+         return buffer;
+     }
+ }
+}
@@ -0,0 +1,151 @@
+package utils;
+
+import java.util.Map;
+
+import modelo.Producto;
+import modelo.Vendedor;
+
+/**
+* Catálogo de productos y vendedores con índices densos.
+*
+* Asigna a cada producto y vendedor un entero consecutivo para que las
+* ventas se acumulen en arreglos primitivos (ver AgregadosIndexados) en
+* lugar de mapas de objetos.
+*
+* CatalogoPerezoso es una variante que no crea los objetos del modelo al
+* cargar: solo indexa los IDs y sus posiciones en los archivos.
+*/
+public class CatalogoIndexado {
+ private final Producto[] productos;
+ private final Vendedor[] vendedores;
+ private final long[] precios;
+ private final IndiceIds indiceProductos;
+ private final IndiceIds indiceVendedores;
+ private final int numVendedores;
+
+ /**
+  * Construye el catálogo a partir de los mapas de productos y vendedores.
+  *
+  * @param productos Mapa de productos con el ID como clave
+  * @param vendedores Mapa de vendedores con el número de documento como clave
+  */
+ public CatalogoIndexado(Map<String, Producto> productos, Map<String, Vendedor> vendedores) {
+     this.productos = new Producto[productos.size()];
+     this.precios = new long[productos.size()];
+     this.indiceProductos = new IndiceIds(productos.size());
+     for (Map.Entry<String, Producto> entry : productos.entrySet()) {
+         int indice = indiceProductos.agregar(entry.getKey());
+         this.productos[indice] = entry.getValue();
+         this.precios[indice] = entry.getValue().getPrecioCentavos();
+     }
+
+     this.vendedores = new Vendedor[vendedores.size()];
+     this.indiceVendedores = new IndiceIds(vendedores.size());
+     for (Map.Entry<String, Vendedor> entry : vendedores.entrySet()) {
+         this.vendedores[indiceVendedores.agregar(entry.getKey())] = entry.getValue();
+     }
+     this.numVendedores = vendedores.size();
+ }
+
+ /**
+  * Construye un catálogo sin objetos del modelo, para las subclases que los
+  * crean a demanda.
+  *
+  * @param precios Precio en centavos de cada producto, por índice
+  * @param indiceProductos Índice de productos por ID
+  * @param indiceVendedores Índice de vendedores por número de documento
+  */
+ CatalogoIndexado(long[] precios, IndiceIds indiceProductos, IndiceIds indiceVendedores) {
+     this.productos = null;
+     this.vendedores = null;
+     this.precios = precios;
+     this.indiceProductos = indiceProductos;
+     this.indiceVendedores = indiceVendedores;
+     this.numVendedores = indiceVendedores.size();
+ }
+
+ /**
+  * Obtiene el índice de productos por ID.
+  *
+  * @return Índice de productos
+  */
+ public IndiceIds getIndiceProductos() {
+     return indiceProductos;
+ }
+
+ /**
+  * Obtiene el índice de vendedores por número de documento.
+  *
+  * @return Índice de vendedores
+  */
+ public IndiceIds getIndiceVendedores() {
+     return indiceVendedores;
+ }
+
+ /**
+  * Obtiene la cantidad de productos del catálogo.
+  *
+  * @return Cantidad de productos
+  */
+ public int getNumProductos() {
+     return precios.length;
+ }
+
+ /**
+  * Obtiene la cantidad de vendedores del catálogo.
+  *
+  * @return Cantidad de vendedores
+  */
+ public int getNumVendedores() {
+     return numVendedores;
+ }
+
+ /**
+  * Obtiene el producto con un índice denso.
+  *
+  * @param indice Índice del producto
+  * @return Producto
+  */
+ public Producto getProducto(int indice) {
+     return productos[indice];
+ }
+
+ /**
+  * Obtiene el vendedor con un índice denso.
+  *
+  * @param indice Índice del vendedor
+  * @return Vendedor
+  */
+ public Vendedor getVendedor(int indice) {
+     return vendedores[indice];
+ }
+
+ /**
+  * Obtiene el precio unitario en centavos del producto con un índice denso.
+  *
+  * @param indice Índice del producto
+  * @return Precio unitario en centavos
+  */
+ public long getPrecioCentavos(int indice) {
+     return precios[indice];
+ }
+
+ /**
+  * Suma las ventas acumuladas, por índice, a los productos y vendedores.
+  *
+  * @param cantidades Cantidad vendida de cada producto
+  * @param ventasCentavos Total vendido por cada vendedor, en centavos
+  */
+ void aplicar(long[] cantidades, long[] ventasCentavos) {
+     for (int i = 0; i < cantidades.length; i++) {
+         if (cantidades[i] > 0) {
+             productos[i].incrementarCantidadVendida(cantidades[i]);
+         }
+     }
+     for (int i = 0; i < ventasCentavos.length; i++) {
+         if (ventasCentavos[i] > 0) {
+             vendedores[i].incrementarVentasCentavos(ventasCentavos[i]);
+         }
+     }
+ }
+}
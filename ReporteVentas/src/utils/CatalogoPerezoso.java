@@ -0,0 +1,302 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import modelo.Producto;
+import modelo.Vendedor;
+
+/**
+* Catálogo indexado que no crea objetos Producto ni Vendedor al cargar.
+*
+* Los archivos de productos y vendedores se recorren una vez en memoria
+* mapeada para construir el índice de IDs, los precios y la posición de
+* cada línea en el archivo (ocho bytes por fila). Los nombres se leen del
+* archivo mapeado solo cuando se piden, por ejemplo al escribir una fila de
+* un reporte, y los totales de ventas quedan en arreglos primitivos.
+*
+* Si un ID aparece más de una vez se usa su última línea, igual que al
+* cargar los mapas con UtilsFile.leerProductos y leerVendedores.
+*/
+public class CatalogoPerezoso extends CatalogoIndexado {
+ /** Tamaño máximo de cada región mapeada de un archivo. */
+ private static final int VENTANA = 1 << 30;
+
+ private final ArchivoMapeado archivoProductos;
+ private final ArchivoMapeado archivoVendedores;
+ private final long[] lineasProductos;
+ private final long[] lineasVendedores;
+ private final long[] cantidadesVendidas;
+ private final long[] ventasCentavos;
+
+ private CatalogoPerezoso(long[] precios, IndiceIds indiceProductos, IndiceIds indiceVendedores,
+                          ArchivoMapeado archivoProductos, long[] lineasProductos,
+                          ArchivoMapeado archivoVendedores, long[] lineasVendedores) {
+     super(precios, indiceProductos, indiceVendedores);
+     this.archivoProductos = archivoProductos;
+     this.archivoVendedores = archivoVendedores;
+     this.lineasProductos = lineasProductos;
+     this.lineasVendedores = lineasVendedores;
+     this.cantidadesVendidas = new long[precios.length];
+     this.ventasCentavos = new long[lineasVendedores.length];
+ }
+
+ /**
+  * Indexa los archivos de productos y vendedores.
+  *
+  * @param productosPath Ruta del archivo de productos
+  * @param vendedoresPath Ruta del archivo de vendedores
+  * @return Catálogo con los totales en cero
+  * @throws IOException Si ocurre un error de lectura o algún archivo está comprimido
+  */
+ public static CatalogoPerezoso abrir(String productosPath, String vendedoresPath) throws IOException {
+     ArchivoMapeado productos = new ArchivoMapeado(productosPath);
+     IndiceIds indiceProductos = new IndiceIds(productos.estimarLineas());
+     long[] precios = new long[16];
+     long[] lineasProductos = new long[16];
+     for (int r = 0; r < productos.regiones.size(); r++) {
+         ByteBuffer buffer = productos.regiones.get(r);
+         int inicio = 0;
+         while (inicio < buffer.limit()) {
+             int finLinea = LectorMapeado.buscar(buffer, inicio, buffer.limit(), (byte) '\n');
+             int fin = finLinea > inicio && buffer.get(finLinea - 1) == '\r' ? finLinea - 1 : finLinea;
+             // Mismas validaciones que LectorMapeado.leerProductos
+             int finId = LectorMapeado.buscar(buffer, inicio, fin, (byte) ';');
+             int finNombre = LectorMapeado.buscar(buffer, finId + 1, fin, (byte) ';');
+             if (finNombre < fin) {
+                 int finPrecio = LectorMapeado.buscar(buffer, finNombre + 1, fin, (byte) ';');
+                 if (finPrecio > finNombre + 1) {
+                     int indice = indiceProductos.agregar(buffer, inicio, finId);
+                     if (indice == precios.length) {
+                         precios = Arrays.copyOf(precios, indice * 2);
+                         lineasProductos = Arrays.copyOf(lineasProductos, indice * 2);
+                     }
+                     precios[indice] = LectorMapeado.parsearCentavos(buffer, finNombre + 1, finPrecio);
+                     lineasProductos[indice] = posicion(r, inicio);
+                 }
+             }
+             inicio = finLinea + 1;
+         }
+     }
+
+     ArchivoMapeado vendedores = new ArchivoMapeado(vendedoresPath);
+     IndiceIds indiceVendedores = new IndiceIds(vendedores.estimarLineas());
+     long[] lineasVendedores = new long[16];
+     for (int r = 0; r < vendedores.regiones.size(); r++) {
+         ByteBuffer buffer = vendedores.regiones.get(r);
+         int inicio = 0;
+         while (inicio < buffer.limit()) {
+             int finLinea = LectorMapeado.buscar(buffer, inicio, buffer.limit(), (byte) '\n');
+             int fin = finLinea > inicio && buffer.get(finLinea - 1) == '\r' ? finLinea - 1 : finLinea;
+             // Mismas validaciones que LectorMapeado.leerVendedores
+             int finTipo = LectorMapeado.buscar(buffer, inicio, fin, (byte) ';');
+             int finNumero = LectorMapeado.buscar(buffer, finTipo + 1, fin, (byte) ';');
+             int finNombres = LectorMapeado.buscar(buffer, finNumero + 1, fin, (byte) ';');
+             if (finNombres < fin) {
+                 int finApellidos = LectorMapeado.buscar(buffer, finNombres + 1, fin, (byte) ';');
+                 if (finApellidos > finNombres + 1) {
+                     int indice = indiceVendedores.agregar(buffer, finTipo + 1, finNumero);
+                     if (indice == lineasVendedores.length) {
+                         lineasVendedores = Arrays.copyOf(lineasVendedores, indice * 2);
+                     }
+                     lineasVendedores[indice] = posicion(r, inicio);
+                 }
+             }
+             inicio = finLinea + 1;
+         }
+     }
+
+     int numProductos = indiceProductos.size();
+     int numVendedores = indiceVendedores.size();
+     return new CatalogoPerezoso(Arrays.copyOf(precios, numProductos), indiceProductos, indiceVendedores,
+             productos, Arrays.copyOf(lineasProductos, numProductos),
+             vendedores, Arrays.copyOf(lineasVendedores, numVendedores));
+ }
+
+ /**
+  * Suma las ventas acumuladas a los totales del catálogo.
+  */
+ @Override
+ void aplicar(long[] cantidades, long[] ventas) {
+     for (int i = 0; i < cantidades.length; i++) {
+         cantidadesVendidas[i] += cantidades[i];
+     }
+     for (int i = 0; i < ventas.length; i++) {
+         ventasCentavos[i] += ventas[i];
+     }
+ }
+
+ /**
+  * Crea un producto con los datos de su línea y su cantidad vendida actual.
+  * Cada llamada crea un objeto nuevo, que no se actualiza con ventas
+  * posteriores.
+  *
+  * @param indice Índice del producto
+  * @return Producto
+  */
+ @Override
+ public Producto getProducto(int indice) {
+     String[] campos = archivoProductos.campos(lineasProductos[indice], 2);
+     Producto producto = Producto.conPrecioCentavos(campos[0], campos[1], getPrecioCentavos(indice));
+     producto.incrementarCantidadVendida(cantidadesVendidas[indice]);
+     return producto;
+ }
+
+ /**
+  * Crea un vendedor con los datos de su línea y su total de ventas actual.
+  * Cada llamada crea un objeto nuevo, que no se actualiza con ventas
+  * posteriores.
+  *
+  * @param indice Índice del vendedor
+  * @return Vendedor
+  */
+ @Override
+ public Vendedor getVendedor(int indice) {
+     String[] campos = archivoVendedores.campos(lineasVendedores[indice], 4);
+     Vendedor vendedor = new Vendedor(campos[0], campos[1], campos[2], campos[3]);
+     vendedor.incrementarVentasCentavos(ventasCentavos[indice]);
+     return vendedor;
+ }
+
+ /**
+  * Lee el nombre de un producto de su línea.
+  *
+  * @param indice Índice del producto
+  * @return Nombre del producto
+  */
+ public String getNombreProducto(int indice) {
+     return archivoProductos.texto(lineasProductos[indice], 1, 1);
+ }
+
+ /**
+  * Lee el nombre completo (nombres y apellidos) de un vendedor de su línea.
+  *
+  * @param indice Índice del vendedor
+  * @return Nombre completo del vendedor
+  */
+ public String getNombreVendedor(int indice) {
+     // Nombres y apellidos son campos contiguos: se leen juntos y el ';' entre ellos pasa a ser un espacio
+     return archivoVendedores.texto(lineasVendedores[indice], 2, 3).replace(';', ' ');
+ }
+
+ /**
+  * Obtiene la cantidad vendida de un producto.
+  *
+  * @param indice Índice del producto
+  * @return Cantidad vendida
+  */
+ public long getCantidadVendida(int indice) {
+     return cantidadesVendidas[indice];
+ }
+
+ /**
+  * Obtiene el total de ventas de un vendedor.
+  *
+  * @param indice Índice del vendedor
+  * @return Total de ventas en centavos
+  */
+ public long getVentasCentavos(int indice) {
+     return ventasCentavos[indice];
+ }
+
+ /**
+  * Empaqueta la región y la posición dentro de ella de una línea.
+  */
+ private static long posicion(int region, int inicio) {
+     return (long) region << 32 | inicio;
+ }
+
+ /**
+  * Archivo mapeado en regiones de hasta VENTANA bytes que terminan en un
+  * salto de línea, para que cada línea quede completa en una región.
+  */
+ private static class ArchivoMapeado {
+     private final Path path;
+     private final List<ByteBuffer> regiones = new ArrayList<>();
+     private final long size;
+
+     ArchivoMapeado(String filePath) throws IOException {
+         if (Descompresion.esComprimido(filePath)) {
+             throw new IOException("El catálogo perezoso necesita archivos sin comprimir: " + filePath);
+         }
+         this.path = Paths.get(filePath);
+         // Las regiones mapeadas siguen siendo válidas después de cerrar el canal
+         try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+             size = channel.size();
+             long posicion = 0;
+             while (posicion < size) {
+                 int longitud = (int) Math.min(VENTANA, size - posicion);
+                 MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, posicion, longitud);
+                 if (posicion + longitud < size) {
+                     int fin = longitud;
+                     while (fin > 0 && region.get(fin - 1) != '\n') {
+                         fin--;
+                     }
+                     if (fin == 0) {
+                         throw new IOException("Línea demasiado larga en archivo: " + path);
+                     }
+                     longitud = fin;
+                     region.limit(longitud);
+                 }
+                 regiones.add(region);
+                 posicion += longitud;
+             }
+         }
+     }
+
+     /**
+      * Cantidad aproximada de líneas, para dimensionar los índices.
+      */
+     int estimarLineas() {
+         return (int) Math.min(1 << 24, Math.max(16, size / 32));
+     }
+
+     /**
+      * Lee los primeros campos, separados por ';', de la línea que empieza
+      * en una posición empaquetada.
+      */
+     String[] campos(long posicion, int cantidad) {
+         ByteBuffer buffer = regiones.get((int) (posicion >>> 32));
+         int inicio = (int) posicion;
+         int finLinea = LectorMapeado.buscar(buffer, inicio, buffer.limit(), (byte) '\n');
+         int fin = finLinea > inicio && buffer.get(finLinea - 1) == '\r' ? finLinea - 1 : finLinea;
+         String[] campos = new String[cantidad];
+         for (int i = 0; i < cantidad; i++) {
+             int finCampo = LectorMapeado.buscar(buffer, inicio, fin, (byte) ';');
+             campos[i] = LectorMapeado.texto(buffer, inicio, finCampo);
+             inicio = Math.min(finCampo + 1, fin);
+         }
+         return campos;
+     }
+
+     /**
+      * Lee como un solo texto los campos desde..hasta (inclusive, desde 0),
+      * con sus separadores, de la línea que empieza en una posición empaquetada.
+      */
+     String texto(long posicion, int desde, int hasta) {
+         ByteBuffer buffer = regiones.get((int) (posicion >>> 32));
+         int inicio = (int) posicion;
+         int finLinea = LectorMapeado.buscar(buffer, inicio, buffer.limit(), (byte) '\n');
+         int fin = finLinea > inicio && buffer.get(finLinea - 1) == '\r' ? finLinea - 1 : finLinea;
+         for (int i = 0; i < desde; i++) {
+             inicio = Math.min(LectorMapeado.buscar(buffer, inicio, fin, (byte) ';') + 1, fin);
+         }
+         int finTexto = inicio;
+         for (int i = desde; i <= hasta; i++) {
+             finTexto = LectorMapeado.buscar(buffer, i == desde ? inicio : finTexto + 1, fin, (byte) ';');
+             if (finTexto == fin) {
+                 break;
+             }
+         }
+         return LectorMapeado.texto(buffer, inicio, finTexto);
+     }
+ }
+}
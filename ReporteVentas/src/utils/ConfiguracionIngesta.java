@@ -0,0 +1,174 @@
+package utils;
+
+/**
+* Opciones para el procesamiento de los archivos de ventas.
+*/
+public class ConfiguracionIngesta {
+ private int paralelismo = 1;
+ private boolean mapeado = false;
+ private boolean pipeline = false;
+ private CuboVentas cubo;
+ private Fragmento fragmento = Fragmento.COMPLETO;
+ private RegistroContenidos contenidos;
+ private SelectorEstrategia selector;
+
+ /**
+  * Obtiene la cantidad de hilos usados para procesar los archivos.
+  *
+  * @return Paralelismo (1 para procesamiento secuencial)
+  */
+ public int getParalelismo() {
+     return paralelismo;
+ }
+
+ /**
+  * Establece la cantidad de hilos usados para procesar los archivos.
+  *
+  * @param paralelismo Paralelismo (1 para procesamiento secuencial)
+  */
+ public void setParalelismo(int paralelismo) {
+     if (paralelismo < 1) {
+         throw new IllegalArgumentException("El paralelismo debe ser mayor que cero: " + paralelismo);
+     }
+     this.paralelismo = paralelismo;
+ }
+
+ /**
+  * Indica si los archivos se leen con memoria mapeada.
+  *
+  * @return true si se usa LectorMapeado
+  */
+ public boolean isMapeado() {
+     return mapeado;
+ }
+
+ /**
+  * Establece si los archivos se leen con memoria mapeada.
+  *
+  * @param mapeado true para usar LectorMapeado
+  */
+ public void setMapeado(boolean mapeado) {
+     this.mapeado = mapeado;
+ }
+
+ /**
+  * Indica si los archivos se procesan en etapas (lectura, análisis y
+  * acumulación) conectadas por colas acotadas.
+  *
+  * @return true si se usa PipelineIngesta
+  */
+ public boolean isPipeline() {
+     return pipeline;
+ }
+
+ /**
+  * Establece si los archivos se procesan en etapas. El paralelismo indica
+  * entonces la cantidad de hilos analizadores.
+  *
+  * @param pipeline true para usar PipelineIngesta
+  */
+ public void setPipeline(boolean pipeline) {
+     this.pipeline = pipeline;
+ }
+
+ /**
+  * Obtiene el cubo donde se acumulan las ventas por vendedor × producto y
+  * por ventana.
+  *
+  * @return Cubo de ventas, o null si no se llena
+  */
+ public CuboVentas getCubo() {
+     return cubo;
+ }
+
+ /**
+  * Establece un cubo donde acumular, en la misma pasada, las ventas por
+  * vendedor × producto y por ventana de los archivos procesados.
+  *
+  * @param cubo Cubo de ventas, o null para no llenarlo
+  */
+ public void setCubo(CuboVentas cubo) {
+     this.cubo = cubo;
+ }
+
+ /**
+  * Obtiene el fragmento de los archivos de ventas que se procesa.
+  *
+  * @return Fragmento (Fragmento.COMPLETO para procesar todos los archivos)
+  */
+ public Fragmento getFragmento() {
+     return fragmento;
+ }
+
+ /**
+  * Establece el fragmento de los archivos de ventas que se procesa; los
+  * archivos de otros fragmentos se ignoran al listar la carpeta.
+  *
+  * @param fragmento Fragmento a procesar
+  */
+ public void setFragmento(Fragmento fragmento) {
+     if (fragmento == null) {
+         throw new IllegalArgumentException("El fragmento no puede ser null");
+     }
+     this.fragmento = fragmento;
+ }
+
+ /**
+  * Obtiene el registro de contenidos usado para omitir archivos repetidos.
+  *
+  * @return Registro de contenidos, o null si no se deduplica
+  */
+ public RegistroContenidos getContenidos() {
+     return contenidos;
+ }
+
+ /**
+  * Establece el registro de contenidos. Con un registro, cada archivo de
+  * ventas de texto cuyo contenido ya está registrado se lee pero no se
+  * acumula.
+  *
+  * @param contenidos Registro de contenidos, o null para no deduplicar
+  */
+ public void setContenidos(RegistroContenidos contenidos) {
+     this.contenidos = contenidos;
+ }
+
+ /**
+  * Obtiene el selector que elige la estrategia de cada lote.
+  *
+  * @return Selector de estrategia, o null si se usan el paralelismo, la
+  *         memoria mapeada y el pipeline de esta configuración
+  */
+ public SelectorEstrategia getSelector() {
+     return selector;
+ }
+
+ /**
+  * Establece un selector que, antes de procesar cada lote de archivos,
+  * reemplaza el paralelismo, la memoria mapeada y el pipeline de esta
+  * configuración por los de la estrategia elegida.
+  *
+  * @param selector Selector de estrategia, o null para usar esta configuración tal cual
+  */
+ public void setSelector(SelectorEstrategia selector) {
+     this.selector = selector;
+ }
+
+ /**
+  * Crea una copia de esta configuración que comparte el cubo, el registro
+  * de contenidos y el selector.
+  *
+  * @return Copia de la configuración
+  */
+ ConfiguracionIngesta copiar() {
+     ConfiguracionIngesta copia = new ConfiguracionIngesta();
+     copia.paralelismo = paralelismo;
+     copia.mapeado = mapeado;
+     copia.pipeline = pipeline;
+     copia.cubo = cubo;
+     copia.fragmento = fragmento;
+     copia.contenidos = contenidos;
+     copia.selector = selector;
+     return copia;
+ }
+}
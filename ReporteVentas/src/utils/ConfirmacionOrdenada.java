@@ -0,0 +1,75 @@
+package utils;
+
+/**
+* Confirma los archivos pendientes de deduplicación en el orden de la lista
+* de archivos, aunque varios hilos terminen de leerlos en otro orden.
+*
+* Cada hilo entrega el archivo que terminó de leer con su índice en la
+* lista. Los archivos se confirman contra el RegistroContenidos solo cuando
+* ya se entregaron todos los anteriores, así que entre dos archivos con el
+* mismo contenido siempre se acumula el de menor índice, sin importar qué
+* hilo termina primero, y las ventanas del cubo no dependen del reparto.
+*
+* Los archivos que esperan a uno anterior quedan retenidos con sus ventas
+* pendientes. Para acotar esa memoria, un hilo que entrega cuando ya hay
+* más de la capacidad retenidos espera a que se confirmen antes de leer el
+* siguiente archivo.
+*/
+final class ConfirmacionOrdenada {
+ private final RegistroContenidos contenidos;
+ private final AgregadosIndexados.ArchivoPendiente[] pendientes;
+ private final boolean[] entregados;
+ private final int capacidad;
+ private int siguiente;
+ private int retenidos;
+ private boolean cancelada;
+
+ /**
+  * Constructor de la clase ConfirmacionOrdenada.
+  *
+  * @param contenidos Registro de contenidos ya acumulados
+  * @param archivos Cantidad de archivos de la lista
+  * @param capacidad Cantidad de archivos retenidos a partir de la cual se espera
+  */
+ ConfirmacionOrdenada(RegistroContenidos contenidos, int archivos, int capacidad) {
+     this.contenidos = contenidos;
+     this.pendientes = new AgregadosIndexados.ArchivoPendiente[archivos];
+     this.entregados = new boolean[archivos];
+     this.capacidad = capacidad;
+ }
+
+ /**
+  * Entrega un archivo leído y confirma, en el acumulado del hilo que
+  * entrega, todos los archivos que ya tienen entregados a los anteriores.
+  *
+  * @param indice Índice del archivo en la lista
+  * @param pendiente Archivo pendiente, o null si no se deduplica (por ejemplo, un .vbin)
+  * @param parcial Acumulado del hilo que entrega
+  * @throws InterruptedException Si el hilo es interrumpido mientras espera
+  */
+ synchronized void entregar(int indice, AgregadosIndexados.ArchivoPendiente pendiente,
+                            AgregadosIndexados parcial) throws InterruptedException {
+     pendientes[indice] = pendiente;
+     entregados[indice] = true;
+     retenidos++;
+     while (siguiente < entregados.length && entregados[siguiente]) {
+         UtilsFile.confirmarArchivo(parcial, pendientes[siguiente], contenidos);
+         pendientes[siguiente] = null;
+         siguiente++;
+         retenidos--;
+     }
+     notifyAll();
+     while (retenidos > capacidad && !cancelada) {
+         wait();
+     }
+ }
+
+ /**
+  * Libera a los hilos que esperan, porque otro hilo falló y los archivos
+  * anteriores no se van a entregar.
+  */
+ synchronized void cancelar() {
+     cancelada = true;
+     notifyAll();
+ }
+}
@@ -0,0 +1,422 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import modelo.Producto;
+import modelo.Vendedor;
+
+/**
+* Cubo de ventas en varias dimensiones, llenado en la misma pasada que
+* acumula los totales de los reportes.
+*
+* Guarda las unidades vendidas por cada combinación vendedor × producto y
+* por cada combinación ventana × producto, en mapas de claves long sin
+* objetos por entrada. Como el precio de un producto es fijo, los ingresos
+* por producto, las ventas por vendedor, los totales por tipo de documento
+* y los totales por ventana se derivan de esas unidades al consultarlos,
+* sin guardarlos aparte.
+*
+* Cada hilo de procesamiento llena un cubo parcial propio; al final los
+* parciales se combinan en el cubo de la ConfiguracionIngesta.
+*/
+public class CuboVentas {
+
+ /**
+  * Forma de agrupar los archivos de ventas en ventanas.
+  */
+ public enum Ventana {
+     /** Una ventana por día: la fecha del nombre del archivo (2024-05-31 o 20240531) o, si no tiene, la de modificación. */
+     DIA,
+     /** Una ventana por archivo, con el nombre del archivo como clave. */
+     ARCHIVO
+ }
+
+ /**
+  * Totales de un grupo del cubo.
+  */
+ public static class Totales {
+     private long elementos;
+     private long unidades;
+     private long centavos;
+
+     /**
+      * Obtiene la cantidad de elementos del grupo (vendedores con ventas en
+      * los totales por tipo de documento, archivos en los totales por ventana).
+      *
+      * @return Cantidad de elementos
+      */
+     public long getElementos() {
+         return elementos;
+     }
+
+     /**
+      * Obtiene las unidades vendidas en el grupo.
+      *
+      * @return Unidades vendidas
+      */
+     public long getUnidades() {
+         return unidades;
+     }
+
+     /**
+      * Obtiene el total vendido en el grupo.
+      *
+      * @return Total en centavos
+      */
+     public long getCentavos() {
+         return centavos;
+     }
+ }
+
+ /** Fecha en el nombre del archivo, con o sin guiones, que no sea parte de un número más largo. */
+ private static final Pattern FECHA = Pattern.compile("(?<!\\d)(\\d{4})-?(\\d{2})-?(\\d{2})(?!\\d)");
+
+ private static final int CAPACIDAD_INICIAL = 1024;
+
+ private final Ventana tipoVentana;
+ private CatalogoIndexado catalogo;
+ private final MapaLongLong vendedorProducto = new MapaLongLong(CAPACIDAD_INICIAL);
+ private final MapaLongLong ventanaProducto = new MapaLongLong(CAPACIDAD_INICIAL);
+ private final List<String> ventanas = new ArrayList<>();
+ private final Map<String, Integer> indiceVentanas = new HashMap<>();
+ private long[] archivosVentana = new long[8];
+ private File archivoActual;
+ /** Ventana del archivo actual, o -1 si aún no se ha resuelto. */
+ private int ventanaActual = -1;
+
+ /**
+  * Constructor de la clase CuboVentas. El cubo queda asociado al catálogo
+  * del primer cubo parcial que se combine en él.
+  *
+  * @param tipoVentana Forma de agrupar los archivos en ventanas
+  */
+ public CuboVentas(Ventana tipoVentana) {
+     this.tipoVentana = tipoVentana;
+ }
+
+ /**
+  * Constructor de un cubo parcial sobre un catálogo.
+  */
+ CuboVentas(Ventana tipoVentana, CatalogoIndexado catalogo) {
+     this.tipoVentana = tipoVentana;
+     this.catalogo = catalogo;
+ }
+
+ /**
+  * Obtiene la forma de agrupar los archivos en ventanas.
+  *
+  * @return Tipo de ventana
+  */
+ public Ventana getTipoVentana() {
+     return tipoVentana;
+ }
+
+ /**
+  * Indica el archivo al que pertenecen las ventas que se registren a
+  * continuación. El archivo no cuenta en su ventana hasta contarArchivo, y
+  * la ventana no se crea hasta que el archivo cuenta o aporta ventas.
+  *
+  * @param file Archivo de ventas
+  */
+ void iniciarArchivo(File file) {
+     if (!file.equals(archivoActual)) {
+         archivoActual = file;
+         ventanaActual = -1;
+     }
+ }
+
+ /**
+  * Cuenta el archivo actual en su ventana. Se llama una vez por archivo,
+  * cuando su cabecera fue aceptada.
+  */
+ void contarArchivo() {
+     // La ventana se resuelve antes de indexar: indiceVentana puede agrandar el arreglo
+     int ventana = ventanaActual();
+     archivosVentana[ventana]++;
+ }
+
+ private int ventanaActual() {
+     if (ventanaActual < 0) {
+         ventanaActual = indiceVentana(claveVentana(archivoActual, tipoVentana));
+     }
+     return ventanaActual;
+ }
+
+ /**
+  * Registra una venta del archivo actual.
+  *
+  * @param vendedor Índice del vendedor
+  * @param producto Índice del producto
+  * @param cantidad Cantidad vendida (mayor que cero)
+  */
+ void registrar(int vendedor, int producto, long cantidad) {
+     vendedorProducto.sumar(clave(vendedor, producto), cantidad);
+     ventanaProducto.sumar(clave(ventanaActual(), producto), cantidad);
+ }
+
+ /**
+  * Combina otro cubo dentro de este. Las ventanas se unen por su clave.
+  *
+  * @param otro Cubo a combinar
+  * @throws IllegalArgumentException Si los cubos tienen catálogos de distinto tamaño
+  */
+ public synchronized void combinar(CuboVentas otro) {
+     if (otro.catalogo == null) {
+         return;
+     }
+     if (catalogo == null) {
+         catalogo = otro.catalogo;
+     } else if (catalogo.getNumProductos() != otro.catalogo.getNumProductos()
+             || catalogo.getNumVendedores() != otro.catalogo.getNumVendedores()) {
+         throw new IllegalArgumentException("Los cubos de ventas tienen catálogos distintos");
+     }
+     vendedorProducto.combinar(otro.vendedorProducto);
+
+     int[] traduccion = new int[otro.ventanas.size()];
+     for (int i = 0; i < traduccion.length; i++) {
+         traduccion[i] = indiceVentana(otro.ventanas.get(i));
+         archivosVentana[traduccion[i]] += otro.archivosVentana[i];
+     }
+     otro.ventanaProducto.recorrer((clave, unidades) ->
+             ventanaProducto.sumar(clave(traduccion[(int) (clave >>> 32)], (int) clave), unidades));
+ }
+
+ /**
+  * Obtiene las unidades vendidas por un vendedor de un producto.
+  *
+  * @param vendedor Índice del vendedor en el catálogo
+  * @param producto Índice del producto en el catálogo
+  * @return Unidades vendidas
+  */
+ public synchronized long getUnidades(int vendedor, int producto) {
+     return vendedorProducto.obtener(clave(vendedor, producto));
+ }
+
+ /**
+  * Obtiene las unidades vendidas de cada producto.
+  *
+  * @return Unidades por índice de producto
+  */
+ public synchronized long[] unidadesPorProducto() {
+     long[] unidades = new long[numProductos()];
+     vendedorProducto.recorrer((clave, cantidad) -> unidades[(int) clave] += cantidad);
+     return unidades;
+ }
+
+ /**
+  * Obtiene los ingresos de cada producto: unidades vendidas por su precio.
+  *
+  * @return Ingresos en centavos por índice de producto
+  */
+ public synchronized long[] ingresosPorProducto() {
+     long[] ingresos = unidadesPorProducto();
+     for (int i = 0; i < ingresos.length; i++) {
+         ingresos[i] *= catalogo.getPrecioCentavos(i);
+     }
+     return ingresos;
+ }
+
+ /**
+  * Obtiene los totales de ventas agrupados por tipo de documento del
+  * vendedor.
+  *
+  * @return Totales por tipo de documento, ordenados por tipo
+  */
+ public synchronized Map<String, Totales> totalesPorTipoDocumento() {
+     int numVendedores = catalogo != null ? catalogo.getNumVendedores() : 0;
+     long[] unidades = new long[numVendedores];
+     long[] centavos = new long[numVendedores];
+     vendedorProducto.recorrer((clave, cantidad) -> {
+         int vendedor = (int) (clave >>> 32);
+         unidades[vendedor] += cantidad;
+         centavos[vendedor] += cantidad * catalogo.getPrecioCentavos((int) clave);
+     });
+
+     Map<String, Totales> totales = new TreeMap<>();
+     for (int i = 0; i < numVendedores; i++) {
+         if (unidades[i] > 0) {
+             Totales grupo = totales.computeIfAbsent(catalogo.getVendedor(i).getTipoDocumento(), t -> new Totales());
+             grupo.elementos++;
+             grupo.unidades += unidades[i];
+             grupo.centavos += centavos[i];
+         }
+     }
+     return totales;
+ }
+
+ /**
+  * Obtiene los totales de ventas de cada ventana.
+  *
+  * @return Totales por clave de ventana, ordenados por clave
+  */
+ public synchronized Map<String, Totales> totalesPorVentana() {
+     Map<String, Totales> totales = new TreeMap<>();
+     for (int i = 0; i < ventanas.size(); i++) {
+         Totales grupo = new Totales();
+         grupo.elementos = archivosVentana[i];
+         totales.put(ventanas.get(i), grupo);
+     }
+     ventanaProducto.recorrer((clave, cantidad) -> {
+         Totales grupo = totales.get(ventanas.get((int) (clave >>> 32)));
+         grupo.unidades += cantidad;
+         grupo.centavos += cantidad * catalogo.getPrecioCentavos((int) clave);
+     });
+     return totales;
+ }
+
+ /**
+  * Escribe los resultados del cubo como archivos CSV en una carpeta:
+  * analisis_vendedor_producto.csv, analisis_productos.csv,
+  * analisis_tipo_documento.csv, analisis_ventanas.csv y
+  * analisis_ventana_producto.csv.
+  *
+  * @param carpeta Carpeta de destino (se crea si no existe)
+  * @throws IOException Si ocurre un error de escritura
+  */
+ public synchronized void exportar(Path carpeta) throws IOException {
+     Files.createDirectories(carpeta);
+
+     try (EscritorCSV writer = new EscritorCSV(carpeta.resolve("analisis_vendedor_producto.csv"))) {
+         writer.escribir("TipoDocumento;NumeroDocumento;IdProducto;Cantidad;TotalVentas").nuevaLinea();
+         for (long clave : vendedorProducto.clavesOrdenadas()) {
+             Vendedor vendedor = catalogo.getVendedor((int) (clave >>> 32));
+             long unidades = vendedorProducto.obtener(clave);
+             writer.escribir(vendedor.getTipoDocumento()).escribir(';').escribir(vendedor.getNumeroDocumento())
+                   .escribir(';').escribir(catalogo.getProducto((int) clave).getId())
+                   .escribir(';').escribirEntero(unidades)
+                   .escribir(';').escribirCentavos(unidades * catalogo.getPrecioCentavos((int) clave)).nuevaLinea();
+         }
+     }
+
+     // Productos de mayor a menor ingreso; a igual ingreso, en el orden del catálogo
+     long[] unidades = unidadesPorProducto();
+     Integer[] orden = new Integer[unidades.length];
+     for (int i = 0; i < orden.length; i++) {
+         orden[i] = i;
+     }
+     Arrays.sort(orden, (a, b) -> Long.compare(unidades[b] * catalogo.getPrecioCentavos(b),
+             unidades[a] * catalogo.getPrecioCentavos(a)));
+     try (EscritorCSV writer = new EscritorCSV(carpeta.resolve("analisis_productos.csv"))) {
+         writer.escribir("IdProducto;Nombre;Cantidad;Ingresos").nuevaLinea();
+         for (int i : orden) {
+             if (unidades[i] > 0) {
+                 Producto producto = catalogo.getProducto(i);
+                 writer.escribir(producto.getId()).escribir(';').escribir(producto.getNombre())
+                       .escribir(';').escribirEntero(unidades[i])
+                       .escribir(';').escribirCentavos(unidades[i] * producto.getPrecioCentavos()).nuevaLinea();
+             }
+         }
+     }
+
+     try (EscritorCSV writer = new EscritorCSV(carpeta.resolve("analisis_tipo_documento.csv"))) {
+         writer.escribir("TipoDocumento;Vendedores;Cantidad;TotalVentas").nuevaLinea();
+         for (Map.Entry<String, Totales> grupo : totalesPorTipoDocumento().entrySet()) {
+             escribirTotales(writer.escribir(grupo.getKey()), grupo.getValue());
+         }
+     }
+
+     try (EscritorCSV writer = new EscritorCSV(carpeta.resolve("analisis_ventanas.csv"))) {
+         writer.escribir("Ventana;Archivos;Cantidad;TotalVentas").nuevaLinea();
+         for (Map.Entry<String, Totales> grupo : totalesPorVentana().entrySet()) {
+             escribirTotales(writer.escribir(grupo.getKey()), grupo.getValue());
+         }
+     }
+
+     // Ordenado por clave de ventana y, dentro de cada una, por índice de producto
+     Integer[] ventanasOrdenadas = new Integer[ventanas.size()];
+     for (int i = 0; i < ventanasOrdenadas.length; i++) {
+         ventanasOrdenadas[i] = i;
+     }
+     Arrays.sort(ventanasOrdenadas, (a, b) -> ventanas.get(a).compareTo(ventanas.get(b)));
+     long[] claves = ventanaProducto.clavesOrdenadas();
+     try (EscritorCSV writer = new EscritorCSV(carpeta.resolve("analisis_ventana_producto.csv"))) {
+         writer.escribir("Ventana;IdProducto;Cantidad;Ingresos").nuevaLinea();
+         for (int ventana : ventanasOrdenadas) {
+             int desde = buscarPrimera(claves, ventana);
+             for (int i = desde; i < claves.length && (int) (claves[i] >>> 32) == ventana; i++) {
+                 Producto producto = catalogo.getProducto((int) claves[i]);
+                 long cantidad = ventanaProducto.obtener(claves[i]);
+                 writer.escribir(ventanas.get(ventana)).escribir(';').escribir(producto.getId())
+                       .escribir(';').escribirEntero(cantidad)
+                       .escribir(';').escribirCentavos(cantidad * producto.getPrecioCentavos()).nuevaLinea();
+             }
+         }
+     }
+ }
+
+ /**
+  * Calcula la clave de ventana de un archivo de ventas.
+  *
+  * @param file Archivo de ventas
+  * @param tipoVentana Forma de agrupar los archivos
+  * @return Nombre del archivo sin extensión de compresión, o fecha en formato ISO (2024-05-31)
+  */
+ static String claveVentana(File file, Ventana tipoVentana) {
+     String nombre = Descompresion.sinCompresion(file.getName());
+     if (tipoVentana == Ventana.ARCHIVO) {
+         return nombre;
+     }
+     Matcher fecha = FECHA.matcher(nombre);
+     while (fecha.find()) {
+         try {
+             return LocalDate.of(Integer.parseInt(fecha.group(1)), Integer.parseInt(fecha.group(2)),
+                     Integer.parseInt(fecha.group(3))).toString();
+         } catch (DateTimeException e) {
+             // No es una fecha válida; se prueba con la siguiente coincidencia
+         }
+     }
+     return LocalDate.ofInstant(Instant.ofEpochMilli(file.lastModified()), ZoneId.systemDefault()).toString();
+ }
+
+ private int indiceVentana(String clave) {
+     Integer indice = indiceVentanas.get(clave);
+     if (indice == null) {
+         indice = ventanas.size();
+         ventanas.add(clave);
+         indiceVentanas.put(clave, indice);
+         if (indice == archivosVentana.length) {
+             archivosVentana = Arrays.copyOf(archivosVentana, indice * 2);
+         }
+     }
+     return indice;
+ }
+
+ private int numProductos() {
+     return catalogo != null ? catalogo.getNumProductos() : 0;
+ }
+
+ private static void escribirTotales(EscritorCSV writer, Totales totales) throws IOException {
+     writer.escribir(';').escribirEntero(totales.elementos).escribir(';').escribirEntero(totales.unidades)
+           .escribir(';').escribirCentavos(totales.centavos).nuevaLinea();
+ }
+
+ /**
+  * Posición de la primera clave de la ventana en un arreglo de claves ordenadas.
+  */
+ private static int buscarPrimera(long[] claves, int ventana) {
+     int posicion = Arrays.binarySearch(claves, clave(ventana, 0));
+     return posicion >= 0 ? posicion : -posicion - 1;
+ }
+
+ /**
+  * Empaqueta dos índices no negativos en una clave.
+  */
+ private static long clave(int alto, int bajo) {
+     return (long) alto << 32 | bajo;
+ }
+}
@@ -0,0 +1,317 @@
+package utils;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
+import java.util.zip.GZIPInputStream;
+
+/**
+* Lectura transparente de archivos comprimidos.
+*
+* Los archivos .gz se descomprimen con GZIPInputStream en un hilo aparte que
+* entrega bloques por una cola acotada, así que la descompresión avanza
+* mientras se analizan los bloques anteriores. Los archivos .zst se
+* descomprimen con el programa zstd del sistema (zstd -dc), que corre como
+* otro proceso; el JDK no trae un descompresor Zstandard.
+*/
+public final class Descompresion {
+ private static final String GZIP = ".gz";
+ private static final String ZSTD = ".zst";
+
+ private static final int TAMANO_BLOQUE = 256 * 1024;
+ private static final int BLOQUES_EN_COLA = 4;
+
+ private Descompresion() {
+ }
+
+ /**
+  * Indica si un nombre de archivo tiene una extensión de compresión conocida.
+  *
+  * @param name Nombre del archivo
+  * @return true si termina en .gz o .zst
+  */
+ public static boolean esComprimido(String name) {
+     return name.endsWith(GZIP) || name.endsWith(ZSTD);
+ }
+
+ /**
+  * Quita la extensión de compresión de un nombre de archivo.
+  *
+  * @param name Nombre del archivo (por ejemplo ventas.txt.gz)
+  * @return Nombre sin la extensión de compresión (ventas.txt)
+  */
+ public static String sinCompresion(String name) {
+     if (name.endsWith(GZIP)) {
+         return name.substring(0, name.length() - GZIP.length());
+     }
+     if (name.endsWith(ZSTD)) {
+         return name.substring(0, name.length() - ZSTD.length());
+     }
+     return name;
+ }
+
+ /**
+  * Busca un archivo o, si no existe, su versión comprimida.
+  *
+  * @param filePath Ruta del archivo sin comprimir (por ejemplo archivos/productos.txt)
+  * @return La ruta indicada si existe; si no, la primera de ruta.gz o ruta.zst que exista;
+  *         si ninguna existe, la ruta indicada
+  */
+ public static String resolver(String filePath) {
+     if (Files.exists(Paths.get(filePath))) {
+         return filePath;
+     }
+     for (String extension : new String[]{GZIP, ZSTD}) {
+         if (Files.exists(Paths.get(filePath + extension))) {
+             return filePath + extension;
+         }
+     }
+     return filePath;
+ }
+
+ /**
+  * Abre un archivo, descomprimiéndolo según su extensión.
+  *
+  * @param path Ruta del archivo
+  * @return Flujo con el contenido sin comprimir
+  * @throws IOException Si no se puede abrir el archivo
+  */
+ public static InputStream abrir(Path path) throws IOException {
+     String name = path.getFileName().toString();
+     if (name.endsWith(GZIP)) {
+         InputStream in = Files.newInputStream(path);
+         try {
+             GZIPInputStream gzip = new GZIPInputStream(in, TAMANO_BLOQUE);
+             // Para un archivo pequeño no compensa crear un hilo
+             return Files.size(path) < TAMANO_BLOQUE ? gzip : new EntradaAsincrona(gzip, path);
+         } catch (IOException e) {
+             in.close();
+             throw e;
+         }
+     }
+     if (name.endsWith(ZSTD)) {
+         return abrirZstd(path);
+     }
+     return Files.newInputStream(path);
+ }
+
+ /**
+  * Abre un archivo de texto UTF-8, descomprimiéndolo según su extensión. Los
+  * archivos sin comprimir se abren con Files.newBufferedReader.
+  *
+  * @param path Ruta del archivo
+  * @return Lector del contenido sin comprimir
+  * @throws IOException Si no se puede abrir el archivo
+  */
+ public static BufferedReader abrirTexto(Path path) throws IOException {
+     if (!esComprimido(path.getFileName().toString())) {
+         return Files.newBufferedReader(path);
+     }
+     // Mismo decodificador estricto que Files.newBufferedReader
+     return new BufferedReader(new InputStreamReader(abrir(path), StandardCharsets.UTF_8.newDecoder()),
+             TAMANO_BLOQUE);
+ }
+
+ /**
+  * Abre un archivo de texto UTF-8 como abrirTexto(path), agregando a un
+  * checksum los bytes sin comprimir a medida que se leen.
+  *
+  * @param path Ruta del archivo
+  * @param checksum Checksum que recibe los bytes leídos, o null para no calcularlo
+  * @return Lector del contenido sin comprimir
+  * @throws IOException Si no se puede abrir el archivo
+  */
+ public static BufferedReader abrirTexto(Path path, Checksum checksum) throws IOException {
+     if (checksum == null) {
+         return abrirTexto(path);
+     }
+     InputStreamReader lector = new InputStreamReader(new CheckedInputStream(abrir(path), checksum),
+             StandardCharsets.UTF_8.newDecoder());
+     // Sin comprimir se usa el mismo tamaño de buffer que Files.newBufferedReader
+     return esComprimido(path.getFileName().toString()) ? new BufferedReader(lector, TAMANO_BLOQUE)
+             : new BufferedReader(lector);
+ }
+
+ /**
+  * Descomprime un archivo .zst con el programa zstd del sistema.
+  */
+ private static InputStream abrirZstd(Path path) throws IOException {
+     Process proceso;
+     try {
+         proceso = new ProcessBuilder("zstd", "-dcq", "--", path.toString())
+                 .redirectError(ProcessBuilder.Redirect.DISCARD)
+                 .start();
+     } catch (IOException e) {
+         throw new IOException("No se puede leer " + path + ": los archivos .zst requieren el programa zstd", e);
+     }
+     proceso.getOutputStream().close();
+     return new FilterInputStream(proceso.getInputStream()) {
+         private boolean verificado;
+
+         @Override
+         public int read() throws IOException {
+             int b = super.read();
+             if (b < 0) {
+                 verificar();
+             }
+             return b;
+         }
+
+         @Override
+         public int read(byte[] b, int off, int len) throws IOException {
+             int leidos = super.read(b, off, len);
+             if (leidos < 0) {
+                 verificar();
+             }
+             return leidos;
+         }
+
+         @Override
+         public void close() throws IOException {
+             super.close();
+             if (!verificado) {
+                 proceso.destroy();
+             }
+         }
+
+         /** Un archivo dañado termina el flujo antes de tiempo; el código de salida lo distingue. */
+         private void verificar() throws IOException {
+             if (verificado) {
+                 return;
+             }
+             verificado = true;
+             try {
+                 int codigo = proceso.waitFor();
+                 if (codigo != 0) {
+                     throw new IOException("zstd terminó con código " + codigo + " al leer " + path);
+                 }
+             } catch (InterruptedException e) {
+                 Thread.currentThread().interrupt();
+                 throw new IOException("Lectura interrumpida: " + path, e);
+             }
+         }
+     };
+ }
+
+ /**
+  * Flujo que lee otro flujo en un hilo aparte, por bloques y con una cola
+  * acotada, para que la fuente (por ejemplo la descompresión) avance en
+  * paralelo con quien consume los datos.
+  */
+ private static class EntradaAsincrona extends InputStream {
+     private static final byte[] FIN = new byte[0];
+
+     private final BlockingQueue<byte[]> bloques = new ArrayBlockingQueue<>(BLOQUES_EN_COLA);
+     private final InputStream fuente;
+     private final Thread hilo;
+     private volatile IOException error;
+     private byte[] actual = new byte[0];
+     private int posicion;
+     private boolean terminado;
+
+     EntradaAsincrona(InputStream fuente, Path path) {
+         this.fuente = fuente;
+         this.hilo = new Thread(this::producir, "descompresion-" + path.getFileName());
+         this.hilo.setDaemon(true);
+         this.hilo.start();
+     }
+
+     private void producir() {
+         try {
+             while (true) {
+                 byte[] bloque = new byte[TAMANO_BLOQUE];
+                 int longitud = 0;
+                 int leidos;
+                 while (longitud < bloque.length && (leidos = fuente.read(bloque, longitud, bloque.length - longitud)) >= 0) {
+                     longitud += leidos;
+                 }
+                 if (longitud > 0) {
+                     bloques.put(longitud == bloque.length ? bloque : Arrays.copyOf(bloque, longitud));
+                 }
+                 if (longitud < bloque.length) {
+                     break;
+                 }
+             }
+         } catch (IOException e) {
+             error = e;
+         } catch (InterruptedException e) {
+             return;
+         }
+         try {
+             bloques.put(FIN);
+         } catch (InterruptedException e) {
+             Thread.currentThread().interrupt();
+         }
+     }
+
+     @Override
+     public int read() throws IOException {
+         if (!disponible()) {
+             return -1;
+         }
+         return actual[posicion++] & 0xFF;
+     }
+
+     @Override
+     public int read(byte[] b, int off, int len) throws IOException {
+         if (len == 0) {
+             return 0;
+         }
+         if (!disponible()) {
+             return -1;
+         }
+         int copiados = Math.min(len, actual.length - posicion);
+         System.arraycopy(actual, posicion, b, off, copiados);
+         posicion += copiados;
+         return copiados;
+     }
+
+     /**
+      * Toma el siguiente bloque si el actual se consumió.
+      *
+      * @return false si ya no hay más datos
+      */
+     private boolean disponible() throws IOException {
+         while (!terminado && posicion == actual.length) {
+             try {
+                 actual = bloques.take();
+             } catch (InterruptedException e) {
+                 Thread.currentThread().interrupt();
+                 throw new IOException("Lectura interrumpida", e);
+             }
+             posicion = 0;
+             if (actual == FIN) {
+                 terminado = true;
+                 if (error != null) {
+                     throw error;
+                 }
+             }
+         }
+         return !terminado;
+     }
+
+     @Override
+     public void close() throws IOException {
+         // El hilo termina al intentar entregar su bloque actual; se espera para no cerrar la fuente en uso
+         hilo.interrupt();
+         try {
+             hilo.join();
+         } catch (InterruptedException e) {
+             Thread.currentThread().interrupt();
+         } finally {
+             fuente.close();
+         }
+     }
+ }
+}
@@ -0,0 +1,101 @@
+package utils;
+
+/**
+* Fragmento i de n de los archivos de ventas, para repartir el
+* procesamiento entre varios procesos o máquinas.
+*
+* Cada archivo pertenece a un solo fragmento según un hash de su nombre (sin
+* la extensión de compresión), así que todos los procesos asignan los
+* archivos igual sin coordinarse. Cada proceso guarda sus totales como una
+* Instantanea parcial y luego Instantanea.fusionar los suma.
+*/
+public final class Fragmento {
+ /** Fragmento único que contiene todos los archivos. */
+ public static final Fragmento COMPLETO = new Fragmento(0, 1);
+
+ private final int indice;
+ private final int total;
+
+ /**
+  * Constructor de la clase Fragmento.
+  *
+  * @param indice Índice del fragmento, desde 0
+  * @param total Cantidad de fragmentos
+  * @throws IllegalArgumentException Si el índice no está entre 0 y total - 1
+  */
+ public Fragmento(int indice, int total) {
+     if (total < 1 || indice < 0 || indice >= total) {
+         throw new IllegalArgumentException("Fragmento inválido: " + indice + "/" + total);
+     }
+     this.indice = indice;
+     this.total = total;
+ }
+
+ /**
+  * Lee un fragmento con formato i/n (por ejemplo 0/4).
+  *
+  * @param texto Texto del fragmento
+  * @return Fragmento leído
+  * @throws IllegalArgumentException Si el texto no tiene el formato i/n
+  */
+ public static Fragmento parsear(String texto) {
+     int barra = texto.indexOf('/');
+     if (barra < 0) {
+         throw new IllegalArgumentException("El fragmento debe tener el formato i/n: " + texto);
+     }
+     try {
+         return new Fragmento(Integer.parseInt(texto.substring(0, barra).trim()),
+                 Integer.parseInt(texto.substring(barra + 1).trim()));
+     } catch (NumberFormatException e) {
+         throw new IllegalArgumentException("El fragmento debe tener el formato i/n: " + texto, e);
+     }
+ }
+
+ /**
+  * Indica si un archivo pertenece a este fragmento.
+  *
+  * @param nombreArchivo Nombre del archivo de ventas
+  * @return true si el archivo se procesa en este fragmento
+  */
+ public boolean contiene(String nombreArchivo) {
+     if (total == 1) {
+         return true;
+     }
+     // String.hashCode está definido por la especificación, así que es igual en todas las JVM
+     long h = Descompresion.sinCompresion(nombreArchivo).hashCode() * 0x9E3779B97F4A7C15L;
+     return Math.floorMod(h ^ (h >>> 32), (long) total) == indice;
+ }
+
+ /**
+  * Obtiene el índice del fragmento.
+  *
+  * @return Índice, desde 0
+  */
+ public int getIndice() {
+     return indice;
+ }
+
+ /**
+  * Obtiene la cantidad de fragmentos.
+  *
+  * @return Cantidad de fragmentos
+  */
+ public int getTotal() {
+     return total;
+ }
+
+ @Override
+ public boolean equals(Object otro) {
+     return otro instanceof Fragmento && ((Fragmento) otro).indice == indice && ((Fragmento) otro).total == total;
+ }
+
+ @Override
+ public int hashCode() {
+     return indice * 31 + total;
+ }
+
+ @Override
+ public String toString() {
+     return indice + "/" + total;
+ }
+}
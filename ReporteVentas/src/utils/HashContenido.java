@@ -0,0 +1,126 @@
+package utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.Checksum;
+
+/**
+* Hash no criptográfico de 64 bits del contenido de un archivo, calculado
+* mientras se lee.
+*
+* Los bytes se mezclan de a ocho como long little-endian, con la ronda y la
+* mezcla final de xxHash64 en un solo carril. Los bytes que no completan un
+* long quedan pendientes para el siguiente bloque, así que el resultado no
+* depende de cómo se parta la lectura: un archivo leído como flujo, por
+* bloques o en memoria mapeada da el mismo hash.
+*/
+final class HashContenido implements Checksum {
+ private static final long PRIMO_1 = 0x9E3779B185EBCA87L;
+ private static final long PRIMO_2 = 0xC2B2AE3D27D4EB4FL;
+ private static final long SEMILLA = 0x27D4EB2F165667C5L;
+
+ private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+ private long estado = SEMILLA;
+ private long pendiente;
+ private int bytesPendientes;
+ private long longitud;
+
+ @Override
+ public void update(int b) {
+     pendiente |= (b & 0xFFL) << (8 * bytesPendientes);
+     longitud++;
+     if (++bytesPendientes == 8) {
+         mezclar(pendiente);
+         pendiente = 0;
+         bytesPendientes = 0;
+     }
+ }
+
+ @Override
+ public void update(byte[] b, int off, int len) {
+     int fin = off + len;
+     while (off < fin && bytesPendientes != 0) {
+         update(b[off++]);
+     }
+     while (fin - off >= 8) {
+         mezclar((long) LONG_LE.get(b, off));
+         off += 8;
+         longitud += 8;
+     }
+     while (off < fin) {
+         update(b[off++]);
+     }
+ }
+
+ @Override
+ public void update(ByteBuffer buffer) {
+     actualizar(buffer, buffer.position(), buffer.limit());
+     buffer.position(buffer.limit());
+ }
+
+ /**
+  * Mezcla buffer[desde, hasta) sin mover la posición del buffer.
+  *
+  * @param buffer Buffer con los bytes, por ejemplo una región mapeada
+  * @param desde Posición inicial (inclusive)
+  * @param hasta Posición final (exclusiva)
+  */
+ void actualizar(ByteBuffer buffer, int desde, int hasta) {
+     while (desde < hasta && bytesPendientes != 0) {
+         update(buffer.get(desde++));
+     }
+     ByteBuffer ordenado = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+     while (hasta - desde >= 8) {
+         mezclar(ordenado.getLong(desde));
+         desde += 8;
+         longitud += 8;
+     }
+     while (desde < hasta) {
+         update(buffer.get(desde++));
+     }
+ }
+
+ /**
+  * Obtiene el hash de los bytes mezclados hasta ahora, sin alterar el
+  * estado.
+  *
+  * @return Hash de 64 bits
+  */
+ @Override
+ public long getValue() {
+     long h = estado;
+     if (bytesPendientes > 0) {
+         h = Long.rotateLeft(h + pendiente * PRIMO_2, 31) * PRIMO_1;
+     }
+     h ^= longitud;
+     h ^= h >>> 33;
+     h *= PRIMO_2;
+     h ^= h >>> 29;
+     h *= PRIMO_1;
+     return h ^ (h >>> 32);
+ }
+
+ /**
+  * Obtiene la cantidad de bytes mezclados.
+  *
+  * @return Cantidad de bytes
+  */
+ long getLongitud() {
+     return longitud;
+ }
+
+ @Override
+ public void reset() {
+     estado = SEMILLA;
+     pendiente = 0;
+     bytesPendientes = 0;
+     longitud = 0;
+ }
+
+ private void mezclar(long palabra) {
+     estado = Long.rotateLeft(estado + palabra * PRIMO_2, 31) * PRIMO_1;
+ }
+}
@@ -0,0 +1,131 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* Histograma de latencias con cubetas log-lineales, al estilo de
+* HdrHistogram.
+*
+* Los valores menores que 64 tienen una cubeta cada uno; desde ahí cada
+* potencia de dos se divide en 32 cubetas, lo que da un error relativo
+* menor al 3% con memoria fija y registro sin bloqueos desde varios hilos.
+*/
+public class HistogramaLatencia {
+ private static final int SUB_CUBETAS = 32;
+ private static final int LINEALES = 2 * SUB_CUBETAS;
+ private static final int CUBETAS = LINEALES + 57 * SUB_CUBETAS;
+
+ private final AtomicLongArray conteos = new AtomicLongArray(CUBETAS);
+ private final LongAdder cantidad = new LongAdder();
+ private final LongAdder suma = new LongAdder();
+ private final LongAccumulator minimo = new LongAccumulator(Math::min, Long.MAX_VALUE);
+ private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+ /**
+  * Registra un valor.
+  *
+  * @param valor Valor a registrar (negativos se registran como 0)
+  */
+ public void registrar(long valor) {
+     long v = Math.max(0, valor);
+     conteos.incrementAndGet(cubeta(v));
+     cantidad.increment();
+     suma.add(v);
+     minimo.accumulate(v);
+     maximo.accumulate(v);
+ }
+
+ /**
+  * Obtiene la cantidad de valores registrados.
+  *
+  * @return Cantidad de valores
+  */
+ public long getCantidad() {
+     return cantidad.sum();
+ }
+
+ /**
+  * Obtiene la suma de los valores registrados.
+  *
+  * @return Suma de los valores
+  */
+ public long getSuma() {
+     return suma.sum();
+ }
+
+ /**
+  * Obtiene el menor valor registrado.
+  *
+  * @return Mínimo, o 0 si no hay valores
+  */
+ public long getMinimo() {
+     return getCantidad() == 0 ? 0 : minimo.get();
+ }
+
+ /**
+  * Obtiene el mayor valor registrado.
+  *
+  * @return Máximo
+  */
+ public long getMaximo() {
+     return maximo.get();
+ }
+
+ /**
+  * Obtiene la media de los valores registrados.
+  *
+  * @return Media, o 0 si no hay valores
+  */
+ public double getMedia() {
+     long n = getCantidad();
+     return n == 0 ? 0 : (double) getSuma() / n;
+ }
+
+ /**
+  * Obtiene un percentil aproximado.
+  *
+  * @param percentil Percentil entre 0 y 100
+  * @return Valor del percentil (punto medio de su cubeta, acotado al máximo)
+  */
+ public long getPercentil(double percentil) {
+     long total = 0;
+     long[] copia = new long[CUBETAS];
+     for (int i = 0; i < CUBETAS; i++) {
+         copia[i] = conteos.get(i);
+         total += copia[i];
+     }
+     if (total == 0) {
+         return 0;
+     }
+     long objetivo = Math.max(1, (long) Math.ceil(total * percentil / 100.0));
+     long acumulado = 0;
+     for (int i = 0; i < CUBETAS; i++) {
+         acumulado += copia[i];
+         if (acumulado >= objetivo) {
+             return Math.min(puntoMedio(i), getMaximo());
+         }
+     }
+     return getMaximo();
+ }
+
+ private static int cubeta(long valor) {
+     if (valor < LINEALES) {
+         return (int) valor;
+     }
+     int bitAlto = 63 - Long.numberOfLeadingZeros(valor);
+     int desplazamiento = bitAlto - 5;
+     int mantisa = (int) (valor >>> desplazamiento);
+     return LINEALES + (desplazamiento - 1) * SUB_CUBETAS + (mantisa - SUB_CUBETAS);
+ }
+
+ private static long puntoMedio(int cubeta) {
+     if (cubeta < LINEALES) {
+         return cubeta;
+     }
+     int desplazamiento = (cubeta - LINEALES) / SUB_CUBETAS + 1;
+     long mantisa = (cubeta - LINEALES) % SUB_CUBETAS + SUB_CUBETAS;
+     return (mantisa << desplazamiento) + (1L << desplazamiento) / 2;
+ }
+}
@@ -0,0 +1,244 @@
+package utils;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+* Índice denso de IDs: asigna a cada ID un entero consecutivo desde 0.
+*
+* Los IDs con formato de una letra mayúscula opcional seguida de hasta 16
+* dígitos (P001, 1205589469) se codifican en un long y se guardan en una
+* tabla de direccionamiento abierto sin objetos por entrada, por lo que
+* buscarlos desde un String o desde los bytes de un archivo no reserva
+* memoria. Los demás IDs se guardan en un HashMap auxiliar.
+*/
+public class IndiceIds {
+ /** Valor devuelto cuando un ID no está en el índice. */
+ public static final int NO_ENCONTRADO = -1;
+
+ /** Resultado de codificar un ID que no tiene el formato soportado. */
+ static final long NO_CODIFICABLE = -1L;
+
+ private static final int MAX_DIGITOS = 16;
+
+ private long[] claves;
+ private int[] indices;
+ private int mascara;
+ private int ocupadas;
+ private int tamano;
+ private final Map<String, Integer> otros = new HashMap<>();
+
+ /**
+  * Constructor de la clase IndiceIds.
+  *
+  * @param capacidadEsperada Cantidad aproximada de IDs que se agregarán
+  */
+ public IndiceIds(int capacidadEsperada) {
+     int capacidad = Integer.highestOneBit(Math.max(2, capacidadEsperada * 2 - 1)) << 1;
+     claves = new long[capacidad];
+     indices = new int[capacidad];
+     mascara = capacidad - 1;
+ }
+
+ /**
+  * Agrega un ID al índice si no existe.
+  *
+  * @param id ID a agregar
+  * @return Índice denso del ID
+  */
+ public int agregar(String id) {
+     int existente = buscar(id);
+     if (existente != NO_ENCONTRADO) {
+         return existente;
+     }
+     int indice = tamano++;
+     long clave = codificar(id, 0, id.length());
+     if (clave == NO_CODIFICABLE) {
+         otros.put(id, indice);
+     } else {
+         insertar(clave, indice);
+     }
+     return indice;
+ }
+
+ /**
+  * Agrega al índice el ID formado por los bytes buffer[inicio, fin), si no
+  * existe, sin crear un String si el ID tiene el formato codificable.
+  *
+  * @param buffer Buffer que contiene el ID en ASCII/UTF-8
+  * @param inicio Posición inicial (inclusiva)
+  * @param fin Posición final (exclusiva)
+  * @return Índice denso del ID
+  */
+ public int agregar(ByteBuffer buffer, int inicio, int fin) {
+     long clave = codificar(buffer, inicio, fin);
+     if (clave == NO_CODIFICABLE) {
+         return agregar(LectorMapeado.texto(buffer, inicio, fin));
+     }
+     int existente = buscar(clave);
+     if (existente != NO_ENCONTRADO) {
+         return existente;
+     }
+     int indice = tamano++;
+     insertar(clave, indice);
+     return indice;
+ }
+
+ /**
+  * Busca un ID.
+  *
+  * @param id ID a buscar
+  * @return Índice denso del ID, o NO_ENCONTRADO
+  */
+ public int buscar(CharSequence id) {
+     return buscar(id, 0, id.length());
+ }
+
+ /**
+  * Busca el ID formado por id[inicio, fin), sin crear un String si el ID
+  * tiene el formato codificable.
+  *
+  * @param id Texto que contiene el ID
+  * @param inicio Posición inicial (inclusiva)
+  * @param fin Posición final (exclusiva)
+  * @return Índice denso del ID, o NO_ENCONTRADO
+  */
+ public int buscar(CharSequence id, int inicio, int fin) {
+     long clave = codificar(id, inicio, fin);
+     if (clave != NO_CODIFICABLE) {
+         return buscar(clave);
+     }
+     Integer indice = otros.get(id.subSequence(inicio, fin).toString());
+     return indice != null ? indice : NO_ENCONTRADO;
+ }
+
+ /**
+  * Busca el ID formado por los bytes buffer[inicio, fin), sin crear un
+  * String si el ID tiene el formato codificable.
+  *
+  * @param buffer Buffer que contiene el ID en ASCII/UTF-8
+  * @param inicio Posición inicial (inclusiva)
+  * @param fin Posición final (exclusiva)
+  * @return Índice denso del ID, o NO_ENCONTRADO
+  */
+ public int buscar(ByteBuffer buffer, int inicio, int fin) {
+     long clave = codificar(buffer, inicio, fin);
+     if (clave != NO_CODIFICABLE) {
+         return buscar(clave);
+     }
+     if (otros.isEmpty()) {
+         return NO_ENCONTRADO;
+     }
+     Integer indice = otros.get(LectorMapeado.texto(buffer, inicio, fin));
+     return indice != null ? indice : NO_ENCONTRADO;
+ }
+
+ /**
+  * Obtiene la cantidad de IDs del índice.
+  *
+  * @return Cantidad de IDs
+  */
+ public int size() {
+     return tamano;
+ }
+
+ private int buscar(long clave) {
+     int posicion = mezclar(clave) & mascara;
+     while (indices[posicion] != 0) {
+         if (claves[posicion] == clave) {
+             return indices[posicion] - 1;
+         }
+         posicion = (posicion + 1) & mascara;
+     }
+     return NO_ENCONTRADO;
+ }
+
+ private void insertar(long clave, int indice) {
+     if ((ocupadas + 1) * 2 > claves.length) {
+         redimensionar();
+     }
+     int posicion = mezclar(clave) & mascara;
+     while (indices[posicion] != 0) {
+         posicion = (posicion + 1) & mascara;
+     }
+     claves[posicion] = clave;
+     // Se guarda indice + 1 para que 0 marque una posición libre
+     indices[posicion] = indice + 1;
+     ocupadas++;
+ }
+
+ private void redimensionar() {
+     long[] clavesAnteriores = claves;
+     int[] indicesAnteriores = indices;
+     claves = new long[clavesAnteriores.length * 2];
+     indices = new int[indicesAnteriores.length * 2];
+     mascara = claves.length - 1;
+     ocupadas = 0;
+     for (int i = 0; i < clavesAnteriores.length; i++) {
+         if (indicesAnteriores[i] != 0) {
+             insertar(clavesAnteriores[i], indicesAnteriores[i] - 1);
+         }
+     }
+ }
+
+ private static int mezclar(long clave) {
+     long h = clave * 0x9E3779B97F4A7C15L;
+     return (int) (h ^ (h >>> 32));
+ }
+
+ /**
+  * Codifica un ID de texto. Bits 0-53: valor numérico; bits 54-58: cantidad
+  * de dígitos (para distinguir P01 de P001); bits 59-63: letra del prefijo
+  * (0 sin prefijo, 1-26 para A-Z).
+  *
+  * @return ID codificado, o NO_CODIFICABLE si no tiene el formato soportado
+  */
+ static long codificar(CharSequence id, int inicio, int fin) {
+     int i = inicio;
+     long letra = 0;
+     if (i < fin && id.charAt(i) >= 'A' && id.charAt(i) <= 'Z') {
+         letra = id.charAt(i) - 'A' + 1;
+         i++;
+     }
+     int digitos = fin - i;
+     if (digitos < 1 || digitos > MAX_DIGITOS) {
+         return NO_CODIFICABLE;
+     }
+     long valor = 0;
+     for (; i < fin; i++) {
+         int digito = id.charAt(i) - '0';
+         if (digito < 0 || digito > 9) {
+             return NO_CODIFICABLE;
+         }
+         valor = valor * 10 + digito;
+     }
+     return letra << 59 | (long) digitos << 54 | valor;
+ }
+
+ /**
+  * Codifica un ID a partir de sus bytes, con las mismas reglas que
+  * codificar(CharSequence, int, int).
+  */
+ static long codificar(ByteBuffer buffer, int inicio, int fin) {
+     int i = inicio;
+     long letra = 0;
+     if (i < fin && buffer.get(i) >= 'A' && buffer.get(i) <= 'Z') {
+         letra = buffer.get(i) - 'A' + 1;
+         i++;
+     }
+     int digitos = fin - i;
+     if (digitos < 1 || digitos > MAX_DIGITOS) {
+         return NO_CODIFICABLE;
+     }
+     long valor = 0;
+     for (; i < fin; i++) {
+         int digito = buffer.get(i) - '0';
+         if (digito < 0 || digito > 9) {
+             return NO_CODIFICABLE;
+         }
+         valor = valor * 10 + digito;
+     }
+     return letra << 59 | (long) digitos << 54 | valor;
+ }
+}
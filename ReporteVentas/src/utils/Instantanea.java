@@ -0,0 +1,223 @@
+package utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import modelo.Dinero;
+import modelo.Producto;
+import modelo.Vendedor;
+
+/**
+* Instantánea binaria de los totales acumulados y de los archivos ya
+* procesados, para reiniciar sin volver a leer todos los archivos de ventas.
+*
+* Formato (DataOutputStream, big-endian):
+* <pre>
+* int magia, int version
+* int indiceFragmento, int totalFragmentos
+* int n, n × (UTF idProducto, long cantidadVendida)
+* int n, n × (UTF numeroDocumento, long totalVentasCentavos)
+* int n, n × (UTF nombreArchivo, long tamano, long modificado)
+* </pre>
+* Solo se guardan los productos y vendedores con ventas. Las versiones
+* anteriores se pueden cargar: hasta la 3 la cantidad vendida era int, la 2
+* no tenía el fragmento (equivale a 0/1) y la 1 además guardaba los totales
+* de vendedores como double.
+*
+* Como los totales se suman al cargar, las instantáneas de los fragmentos de
+* un procesamiento repartido son resultados parciales que se combinan con
+* fusionar().
+*/
+public class Instantanea {
+ private static final int MAGIA = 0x56454E54; // "VENT"
+ private static final int VERSION = 4;
+
+ /**
+  * Guarda la instantánea. Se escribe en un archivo temporal que luego
+  * reemplaza al anterior, para no dejar una instantánea incompleta.
+  *
+  * @param path Ruta de la instantánea
+  * @param productos Productos con sus cantidades vendidas
+  * @param vendedores Vendedores con sus totales de ventas
+  * @param registro Archivos ya procesados
+  * @throws IOException Si ocurre un error de escritura
+  */
+ public static void guardar(Path path, Collection<Producto> productos, Collection<Vendedor> vendedores,
+                            RegistroArchivos registro) throws IOException {
+     guardar(path, productos, vendedores, registro, Fragmento.COMPLETO);
+ }
+
+ /**
+  * Guarda la instantánea de un fragmento de los archivos de ventas.
+  *
+  * @param path Ruta de la instantánea
+  * @param productos Productos con sus cantidades vendidas
+  * @param vendedores Vendedores con sus totales de ventas
+  * @param registro Archivos ya procesados
+  * @param fragmento Fragmento de los archivos que cubre la instantánea
+  * @throws IOException Si ocurre un error de escritura
+  */
+ public static void guardar(Path path, Collection<Producto> productos, Collection<Vendedor> vendedores,
+                            RegistroArchivos registro, Fragmento fragmento) throws IOException {
+     Path temporal = path.resolveSibling(path.getFileName() + ".tmp");
+     try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporal)))) {
+         out.writeInt(MAGIA);
+         out.writeInt(VERSION);
+         out.writeInt(fragmento.getIndice());
+         out.writeInt(fragmento.getTotal());
+
+         out.writeInt((int) productos.stream().filter(p -> p.getCantidadVendida() > 0).count());
+         for (Producto producto : productos) {
+             if (producto.getCantidadVendida() > 0) {
+                 out.writeUTF(producto.getId());
+                 out.writeLong(producto.getCantidadVendida());
+             }
+         }
+
+         out.writeInt((int) vendedores.stream().filter(v -> v.getTotalVentasCentavos() > 0).count());
+         for (Vendedor vendedor : vendedores) {
+             if (vendedor.getTotalVentasCentavos() > 0) {
+                 out.writeUTF(vendedor.getNumeroDocumento());
+                 out.writeLong(vendedor.getTotalVentasCentavos());
+             }
+         }
+
+         Map<String, long[]> archivos = registro.copia();
+         out.writeInt(archivos.size());
+         for (Map.Entry<String, long[]> entry : archivos.entrySet()) {
+             out.writeUTF(entry.getKey());
+             out.writeLong(entry.getValue()[0]);
+             out.writeLong(entry.getValue()[1]);
+         }
+     }
+     Files.move(temporal, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+ }
+
+ /**
+  * Carga una instantánea sumando sus totales sobre los mapas de productos
+  * y vendedores, y registrando sus archivos como procesados.
+  *
+  * @param path Ruta de la instantánea
+  * @param productos Mapa de productos
+  * @param vendedores Mapa de vendedores
+  * @param registro Registro donde se agregan los archivos procesados
+  * @return Fragmento de los archivos que cubre la instantánea
+  * @throws IOException Si ocurre un error de lectura o el formato es inválido
+  */
+ public static Fragmento cargar(Path path, Map<String, Producto> productos, Map<String, Vendedor> vendedores,
+                           RegistroArchivos registro) throws IOException {
+     try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+         if (in.readInt() != MAGIA) {
+             throw new IOException("El archivo no es una instantánea de ventas: " + path);
+         }
+         int version = in.readInt();
+         if (version < 1 || version > VERSION) {
+             throw new IOException("Versión de instantánea no soportada: " + version);
+         }
+         Fragmento fragmento = Fragmento.COMPLETO;
+         if (version >= 3) {
+             try {
+                 fragmento = new Fragmento(in.readInt(), in.readInt());
+             } catch (IllegalArgumentException e) {
+                 throw new IOException("Instantánea con fragmento inválido: " + path, e);
+             }
+         }
+
+         int desconocidos = 0;
+         int numProductos = in.readInt();
+         for (int i = 0; i < numProductos; i++) {
+             String id = in.readUTF();
+             long cantidad = version >= 4 ? in.readLong() : in.readInt();
+             Producto producto = productos.get(id);
+             if (producto != null) {
+                 producto.incrementarCantidadVendida(cantidad);
+             } else {
+                 desconocidos++;
+             }
+         }
+
+         int numVendedores = in.readInt();
+         for (int i = 0; i < numVendedores; i++) {
+             String numDoc = in.readUTF();
+             long totalCentavos = version == 1 ? Dinero.aCentavos(in.readDouble()) : in.readLong();
+             Vendedor vendedor = vendedores.get(numDoc);
+             if (vendedor != null) {
+                 vendedor.incrementarVentasCentavos(totalCentavos);
+             } else {
+                 desconocidos++;
+             }
+         }
+
+         int numArchivos = in.readInt();
+         for (int i = 0; i < numArchivos; i++) {
+             registro.registrar(in.readUTF(), in.readLong(), in.readLong());
+         }
+
+         if (desconocidos > 0) {
+             System.out.println("Instantánea con " + desconocidos + " productos o vendedores que ya no existen: " + path);
+         }
+         return fragmento;
+     }
+ }
+
+ /**
+  * Combina las instantáneas parciales de los fragmentos de un procesamiento
+  * repartido, sumando sus totales sobre los mapas de productos y vendedores.
+  *
+  * Antes de aceptar el resultado se verifica que estén todos los fragmentos
+  * de 0 a n-1, cada uno una sola vez, y que ningún archivo de ventas se haya
+  * contado en dos parciales.
+  *
+  * @param parciales Rutas de las instantáneas parciales
+  * @param productos Mapa de productos
+  * @param vendedores Mapa de vendedores
+  * @param registro Registro donde se agregan los archivos procesados
+  * @throws IOException Si ocurre un error de lectura o los parciales no forman un procesamiento completo
+  */
+ public static void fusionar(List<Path> parciales, Map<String, Producto> productos, Map<String, Vendedor> vendedores,
+                             RegistroArchivos registro) throws IOException {
+     if (parciales.isEmpty()) {
+         throw new IOException("No se indicaron instantáneas parciales para fusionar");
+     }
+     int total = -1;
+     TreeSet<Integer> indices = new TreeSet<>();
+     for (Path parcial : parciales) {
+         RegistroArchivos archivos = new RegistroArchivos();
+         Fragmento fragmento = cargar(parcial, productos, vendedores, archivos);
+         if (total == -1) {
+             total = fragmento.getTotal();
+         } else if (fragmento.getTotal() != total) {
+             throw new IOException("El parcial " + parcial + " es del fragmento " + fragmento
+                     + ", pero los anteriores son de " + total + " fragmentos");
+         }
+         if (!indices.add(fragmento.getIndice())) {
+             throw new IOException("El fragmento " + fragmento + " está repetido: " + parcial);
+         }
+         for (Map.Entry<String, long[]> archivo : archivos.copia().entrySet()) {
+             if (registro.contiene(archivo.getKey())) {
+                 throw new IOException("El archivo " + archivo.getKey() + " está en dos parciales, el último es " + parcial);
+             }
+             registro.registrar(archivo.getKey(), archivo.getValue()[0], archivo.getValue()[1]);
+         }
+     }
+     if (indices.size() != total) {
+         TreeSet<Integer> faltantes = new TreeSet<>();
+         for (int i = 0; i < total; i++) {
+             if (!indices.contains(i)) {
+                 faltantes.add(i);
+             }
+         }
+         throw new IOException("Faltan los parciales de los fragmentos " + faltantes + " de " + total);
+     }
+ }
+}
@@ -0,0 +1,566 @@
+package utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+import modelo.Dinero;
+import modelo.Producto;
+import modelo.Vendedor;
+
+/**
+* Lector de archivos basado en memoria mapeada.
+*
+* Recorre los bytes del archivo buscando ';' y '\n' directamente, y convierte
+* cantidades y precios (a centavos) sin pasar por String. En los archivos de ventas los
+* productos se buscan en el IndiceIds directamente desde los bytes, por lo
+* que no se reserva memoria por línea. Un archivo de ventas grande se puede
+* repartir por rangos de líneas entre varios hilos.
+*/
+public class LectorMapeado {
+ /** Tamaño máximo de cada región mapeada del archivo. */
+ private static final int VENTANA = 1 << 30;
+
+ /** Tamaño desde el que conviene repartir un archivo de ventas por rangos. */
+ static final long ARCHIVO_POR_RANGOS = 16L << 20;
+
+ /** Tamaño mínimo de cada rango de un archivo repartido. */
+ private static final long RANGO_MINIMO = 4L << 20;
+
+ /**
+  * Recibe cada línea del archivo como un rango de bytes del buffer mapeado.
+  */
+ @FunctionalInterface
+ interface ProcesadorLinea {
+     /**
+      * Procesa la línea buffer[inicio, fin), sin el salto de línea.
+      *
+      * @param buffer Región mapeada del archivo
+      * @param inicio Posición inicial de la línea
+      * @param fin Posición final de la línea (exclusiva)
+      * @throws IOException Si la línea no puede procesarse
+      */
+     void procesar(ByteBuffer buffer, int inicio, int fin) throws IOException;
+ }
+
+ /**
+  * Recibe cada venta válida de un archivo de ventas, cuyo vendedor es el de
+  * la cabecera.
+  */
+ @FunctionalInterface
+ private interface RegistroVenta {
+     void registrar(int producto, int cantidad);
+ }
+
+ /**
+  * Lee un archivo de productos usando memoria mapeada. Un archivo comprimido
+  * no se puede mapear, así que se lee con UtilsFile.
+  *
+  * @param filePath Ruta del archivo de productos
+  * @return Mapa de productos con el ID como clave
+  * @throws IOException Si ocurre un error de lectura
+  */
+ public static Map<String, Producto> leerProductos(String filePath) throws IOException {
+     if (Descompresion.esComprimido(filePath)) {
+         return UtilsFile.leerProductos(filePath);
+     }
+     Map<String, Producto> productos = new HashMap<>();
+
+     recorrerLineas(Paths.get(filePath), 0, (buffer, inicio, fin) -> {
+         int finId = buscar(buffer, inicio, fin, (byte) ';');
+         int finNombre = buscar(buffer, finId + 1, fin, (byte) ';');
+         if (finNombre < fin) {
+             int finPrecio = buscar(buffer, finNombre + 1, fin, (byte) ';');
+             if (finPrecio > finNombre + 1) {
+                 String id = texto(buffer, inicio, finId);
+                 String nombre = texto(buffer, finId + 1, finNombre);
+                 long precioCentavos = parsearCentavos(buffer, finNombre + 1, finPrecio);
+                 productos.put(id, Producto.conPrecioCentavos(id, nombre, precioCentavos));
+             }
+         }
+     });
+
+     return productos;
+ }
+
+ /**
+  * Lee un archivo de vendedores usando memoria mapeada. Un archivo
+  * comprimido no se puede mapear, así que se lee con UtilsFile.
+  *
+  * @param filePath Ruta del archivo de vendedores
+  * @return Mapa de vendedores con el número de documento como clave
+  * @throws IOException Si ocurre un error de lectura
+  */
+ public static Map<String, Vendedor> leerVendedores(String filePath) throws IOException {
+     if (Descompresion.esComprimido(filePath)) {
+         return UtilsFile.leerVendedores(filePath);
+     }
+     Map<String, Vendedor> vendedores = new HashMap<>();
+
+     recorrerLineas(Paths.get(filePath), 0, (buffer, inicio, fin) -> {
+         int finTipo = buscar(buffer, inicio, fin, (byte) ';');
+         int finNumero = buscar(buffer, finTipo + 1, fin, (byte) ';');
+         int finNombres = buscar(buffer, finNumero + 1, fin, (byte) ';');
+         if (finNombres < fin) {
+             int finApellidos = buscar(buffer, finNombres + 1, fin, (byte) ';');
+             if (finApellidos > finNombres + 1) {
+                 String tipoDoc = texto(buffer, inicio, finTipo);
+                 String numDoc = texto(buffer, finTipo + 1, finNumero);
+                 String nombres = texto(buffer, finNumero + 1, finNombres);
+                 String apellidos = texto(buffer, finNombres + 1, finApellidos);
+                 vendedores.put(numDoc, new Vendedor(tipoDoc, numDoc, nombres, apellidos));
+             }
+         }
+     });
+
+     return vendedores;
+ }
+
+ /**
+  * Procesa un archivo de ventas individual usando memoria mapeada.
+  *
+  * @param filePath Ruta del archivo de ventas
+  * @param catalogo Catálogo indexado de productos y vendedores
+  * @param resultado Acumulado donde se registran las ventas
+  * @return Cantidad de líneas de venta leídas
+  * @throws IOException Si ocurre un error de lectura
+  */
+ static long procesarArchivoVentas(Path filePath, CatalogoIndexado catalogo,
+                                   AgregadosIndexados resultado) throws IOException {
+     HashContenido hash = resultado.getHashContenido();
+     try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+         Cabecera cabecera = leerCabecera(channel, filePath, catalogo, hash);
+         if (cabecera == null) {
+             return 0;
+         }
+         resultado.aceptarCabecera();
+         int vendedor = cabecera.vendedor;
+         return recorrerLineas(channel, filePath, cabecera.inicioVentas, channel.size(), hash,
+                 lineaVenta(filePath, catalogo, (producto, cantidad) -> resultado.registrar(vendedor, producto, cantidad)));
+     }
+ }
+
+ /**
+  * Procesa un archivo de ventas grande repartiendo sus líneas entre los
+  * hilos de un ForkJoinPool.
+  *
+  * Después de la cabecera, el archivo se divide en rangos de bytes que
+  * empiezan en un inicio de línea. Cada hilo suma las cantidades de sus
+  * rangos por producto en un arreglo propio (todas las ventas son del mismo
+  * vendedor) y al final los arreglos se suman y se registran en el
+  * acumulado, una vez por producto. Si el acumulado calcula el hash del
+  * contenido, el hilo que llama lo calcula en orden mientras los demás
+  * analizan los rangos.
+  *
+  * @param filePath Ruta del archivo de ventas
+  * @param catalogo Catálogo indexado de productos y vendedores
+  * @param resultado Acumulado donde se registran las ventas
+  * @param pool Hilos que analizan los rangos
+  * @return Cantidad de líneas de venta leídas
+  * @throws IOException Si ocurre un error de lectura
+  */
+ static long procesarArchivoVentasEnRangos(Path filePath, CatalogoIndexado catalogo, AgregadosIndexados resultado,
+                                           ForkJoinPool pool) throws IOException {
+     HashContenido hash = resultado.getHashContenido();
+     try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+         long size = channel.size();
+         Cabecera cabecera = leerCabecera(channel, filePath, catalogo, hash);
+         if (cabecera == null) {
+             return 0;
+         }
+         resultado.aceptarCabecera();
+
+         // Dos rangos por hilo reparten mejor la carga si un hilo se retrasa
+         long ventas = size - cabecera.inicioVentas;
+         int partes = (int) Math.max(1, Math.min(pool.getParallelism() * 2L, ventas / RANGO_MINIMO));
+         long[] inicios = new long[partes + 1];
+         inicios[0] = cabecera.inicioVentas;
+         inicios[partes] = size;
+         for (int i = 1; i < partes; i++) {
+             inicios[i] = Math.max(inicios[i - 1], inicioLinea(channel, cabecera.inicioVentas + ventas * i / partes));
+         }
+
+         int numProductos = catalogo.getNumProductos();
+         ForkJoinTask<VentasRango> tarea = pool.submit(() -> IntStream.range(0, partes).parallel().collect(
+                 () -> new VentasRango(numProductos),
+                 (parcial, i) -> {
+                     long[] cantidades = parcial.cantidades;
+                     try {
+                         parcial.lineas += recorrerLineas(channel, filePath, inicios[i], inicios[i + 1], null,
+                                 lineaVenta(filePath, catalogo, (producto, cantidad) -> {
+                                     if (cantidad > 0) {
+                                         cantidades[producto] += cantidad;
+                                     }
+                                 }));
+                     } catch (IOException e) {
+                         throw new UncheckedIOException(e);
+                     }
+                 },
+                 VentasRango::combinar));
+
+         VentasRango total;
+         try {
+             if (hash != null) {
+                 actualizarHash(channel, cabecera.inicioVentas, size, hash);
+             }
+             total = tarea.get();
+         } catch (InterruptedException e) {
+             Thread.currentThread().interrupt();
+             throw new IOException("Procesamiento de ventas interrumpido", e);
+         } catch (ExecutionException e) {
+             if (e.getCause() instanceof UncheckedIOException) {
+                 throw ((UncheckedIOException) e.getCause()).getCause();
+             }
+             throw new IOException("Error procesando el archivo de ventas " + filePath, e.getCause());
+         }
+
+         for (int producto = 0; producto < numProductos; producto++) {
+             if (total.cantidades[producto] > 0) {
+                 resultado.registrar(cabecera.vendedor, producto, total.cantidades[producto]);
+             }
+         }
+         return total.lineas;
+     }
+ }
+
+ /**
+  * Lee y valida la cabecera tipoDoc;numDoc de un archivo de ventas. Los
+  * rechazos se informan a RegistroRechazos.
+  *
+  * @param channel Canal abierto sobre el archivo
+  * @param filePath Ruta del archivo, para los rechazos
+  * @param catalogo Catálogo indexado de productos y vendedores
+  * @param hash Hash que recibe los bytes de la cabecera, o null para no calcularlo
+  * @return Cabecera leída, o null si el archivo está vacío o se rechazó
+  * @throws IOException Si ocurre un error de lectura
+  */
+ private static Cabecera leerCabecera(FileChannel channel, Path filePath, CatalogoIndexado catalogo, 
+                                      HashContenido hash) throws IOException {
+     long size = channel.size();
+     if (size == 0) {
+         return null;
+     }
+
+     // La cabecera es corta; se mapea solo su región para leerla
+     MappedByteBuffer cabecera = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, 4096));
+     int finCabecera = buscar(cabecera, 0, cabecera.limit(), (byte) '\n');
+     if (finCabecera == cabecera.limit() && size > cabecera.limit()) {
+         RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.FORMATO_INCORRECTO, filePath.toString(),
+                 texto(cabecera, 0, Math.min(finCabecera, 80)));
+         return null;
+     }
+     long inicioVentas = finCabecera + 1L;
+     if (hash != null) {
+         hash.actualizar(cabecera, 0, (int) Math.min(inicioVentas, cabecera.limit()));
+     }
+     int finLinea = finCabecera > 0 && cabecera.get(finCabecera - 1) == '\r' ? finCabecera - 1 : finCabecera;
+     int finTipo = buscar(cabecera, 0, finLinea, (byte) ';');
+     if (finTipo >= finLinea - 1) {
+         RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.FORMATO_INCORRECTO, filePath.toString(),
+                 texto(cabecera, 0, finLinea));
+         return null;
+     }
+     int finNumero = buscar(cabecera, finTipo + 1, finLinea, (byte) ';');
+     int vendedor = catalogo.getIndiceVendedores().buscar(cabecera, finTipo + 1, finNumero);
+     if (vendedor == IndiceIds.NO_ENCONTRADO) {
+         RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.VENDEDOR_NO_ENCONTRADO, filePath.toString(),
+                 texto(cabecera, finTipo + 1, finNumero));
+         return null;
+     }
+     return new Cabecera(vendedor, inicioVentas);
+ }
+
+ /**
+  * Crea el procesador de las líneas producto;cantidad de un archivo de
+  * ventas. Las líneas inválidas se informan a RegistroRechazos.
+  *
+  * @param filePath Ruta del archivo, para los rechazos
+  * @param catalogo Catálogo indexado de productos y vendedores
+  * @param venta Destino de cada venta válida
+  * @return Procesador de líneas
+  */
+ private static ProcesadorLinea lineaVenta(Path filePath, CatalogoIndexado catalogo, RegistroVenta venta) {
+     IndiceIds productos = catalogo.getIndiceProductos();
+     RegistroRechazos rechazos = RegistroRechazos.global();
+     return (buffer, inicio, fin) -> {
+         int finId = buscar(buffer, inicio, fin, (byte) ';');
+         if (finId < fin) {
+             int finCantidad = buscar(buffer, finId + 1, fin, (byte) ';');
+             if (finCantidad > finId + 1) {
+                 int cantidad;
+                 try {
+                     cantidad = parsearEntero(buffer, finId + 1, finCantidad);
+                 } catch (NumberFormatException e) {
+                     rechazos.rechazar(RegistroRechazos.Categoria.CANTIDAD_INVALIDA, filePath.toString(),
+                             texto(buffer, inicio, fin));
+                     return;
+                 }
+                 int producto = productos.buscar(buffer, inicio, finId);
+                 if (producto != IndiceIds.NO_ENCONTRADO) {
+                     venta.registrar(producto, cantidad);
+                 } else {
+                     rechazos.rechazar(RegistroRechazos.Categoria.PRODUCTO_NO_ENCONTRADO, filePath.toString(),
+                             texto(buffer, inicio, finId));
+                 }
+             }
+         }
+     };
+ }
+
+ /**
+  * Busca el inicio de la primera línea que empieza después de una posición.
+  *
+  * @param channel Canal abierto sobre el archivo
+  * @param posicion Posición desde la que se busca el salto de línea
+  * @return Posición siguiente al salto de línea, o el tamaño del archivo si no hay otro
+  * @throws IOException Si ocurre un error de lectura
+  */
+ private static long inicioLinea(FileChannel channel, long posicion) throws IOException {
+     ByteBuffer buffer = ByteBuffer.allocate(4096);
+     int leidos;
+     while ((leidos = channel.read(buffer.clear(), posicion)) > 0) {
+         for (int i = 0; i < leidos; i++) {
+             if (buffer.get(i) == '\n') {
+                 return posicion + i + 1;
+             }
+         }
+         posicion += leidos;
+     }
+     return channel.size();
+ }
+
+ /**
+  * Agrega a un hash los bytes [desde, hasta) del archivo, en orden.
+  */
+ private static void actualizarHash(FileChannel channel, long desde, long hasta, HashContenido hash) throws IOException {
+     for (long posicion = desde; posicion < hasta; posicion += VENTANA) {
+         int longitud = (int) Math.min(VENTANA, hasta - posicion);
+         hash.actualizar(channel.map(FileChannel.MapMode.READ_ONLY, posicion, longitud), 0, longitud);
+     }
+ }
+
+ /**
+  * Recorre las líneas de un archivo a partir de una posición, mapeando el
+  * archivo por regiones de hasta VENTANA bytes.
+  *
+  * @param filePath Ruta del archivo
+  * @param desde Posición del archivo donde inicia la primera línea
+  * @param procesador Procesador de cada línea
+  * @return Cantidad de líneas recorridas
+  * @throws IOException Si ocurre un error de lectura o una línea no cabe en la región
+  */
+ static long recorrerLineas(Path filePath, long desde, ProcesadorLinea procesador) throws IOException {
+     return recorrerLineas(filePath, desde, null, procesador);
+ }
+
+ /**
+  * Recorre las líneas como recorrerLineas(filePath, desde, procesador),
+  * agregando además a un hash los bytes recorridos, en orden.
+  *
+  * @param filePath Ruta del archivo
+  * @param desde Posición del archivo donde inicia la primera línea
+  * @param hash Hash que recibe los bytes recorridos, o null para no calcularlo
+  * @param procesador Procesador de cada línea
+  * @return Cantidad de líneas recorridas
+  * @throws IOException Si ocurre un error de lectura o una línea no cabe en la región
+  */
+ static long recorrerLineas(Path filePath, long desde, HashContenido hash, 
+                            ProcesadorLinea procesador) throws IOException {
+     try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+         return recorrerLineas(channel, filePath, desde, channel.size(), hash, procesador);
+     }
+ }
+
+ /**
+  * Recorre las líneas de archivo[desde, hasta). Si hasta no es el final del
+  * archivo, debe ser un inicio de línea.
+  *
+  * @param channel Canal abierto sobre el archivo
+  * @param filePath Ruta del archivo, para los errores
+  * @param desde Posición del archivo donde inicia la primera línea
+  * @param hasta Posición final del rango (exclusiva)
+  * @param hash Hash que recibe los bytes recorridos, o null para no calcularlo
+  * @param procesador Procesador de cada línea
+  * @return Cantidad de líneas recorridas
+  * @throws IOException Si ocurre un error de lectura o una línea no cabe en la región
+  */
+ private static long recorrerLineas(FileChannel channel, Path filePath, long desde, long hasta, HashContenido hash,
+                                    ProcesadorLinea procesador) throws IOException {
+     long posicion = desde;
+     long lineas = 0;
+     while (posicion < hasta) {
+         int longitud = (int) Math.min(VENTANA, hasta - posicion);
+         boolean ultimaRegion = posicion + longitud == hasta;
+         MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, posicion, longitud);
+
+         int inicioLinea = 0;
+         for (int i = 0; i < longitud; i++) {
+             if (buffer.get(i) == '\n') {
+                 int finLinea = i > inicioLinea && buffer.get(i - 1) == '\r' ? i - 1 : i;
+                 procesador.procesar(buffer, inicioLinea, finLinea);
+                 lineas++;
+                 inicioLinea = i + 1;
+             }
+         }
+
+         if (hash != null) {
+             // Las regiones se superponen en la línea incompleta, que se agrega con la siguiente
+             hash.actualizar(buffer, 0, ultimaRegion ? longitud : inicioLinea);
+         }
+         if (ultimaRegion) {
+             if (inicioLinea < longitud) {
+                 int finLinea = buffer.get(longitud - 1) == '\r' ? longitud - 1 : longitud;
+                 procesador.procesar(buffer, inicioLinea, finLinea);
+                 lineas++;
+             }
+             posicion = hasta;
+         } else if (inicioLinea == 0) {
+             throw new IOException("Línea demasiado larga en archivo: " + filePath);
+         } else {
+             // La última línea incompleta se procesa en la siguiente región
+             posicion += inicioLinea;
+         }
+     }
+     return lineas;
+ }
+
+ /**
+  * Busca la primera aparición de un byte en buffer[inicio, fin).
+  *
+  * @return Posición del byte, o fin si no aparece
+  */
+ static int buscar(ByteBuffer buffer, int inicio, int fin, byte valor) {
+     for (int i = inicio; i < fin; i++) {
+         if (buffer.get(i) == valor) {
+             return i;
+         }
+     }
+     return fin;
+ }
+
+ /**
+  * Convierte buffer[inicio, fin) en un entero con las mismas reglas que
+  * Integer.parseInt, sin crear un String.
+  *
+  * @throws NumberFormatException Si el rango no es un entero válido
+  */
+ static int parsearEntero(ByteBuffer buffer, int inicio, int fin) {
+     int i = inicio;
+     boolean negativo = false;
+     if (i < fin && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+         negativo = buffer.get(i) == '-';
+         i++;
+     }
+     if (i == fin) {
+         throw new NumberFormatException("For input string: \"" + texto(buffer, inicio, fin) + "\"");
+     }
+     long valor = 0;
+     for (; i < fin; i++) {
+         int digito = buffer.get(i) - '0';
+         if (digito < 0 || digito > 9 || valor > Integer.MAX_VALUE + 1L) {
+             throw new NumberFormatException("For input string: \"" + texto(buffer, inicio, fin) + "\"");
+         }
+         valor = valor * 10 + digito;
+     }
+     valor = negativo ? -valor : valor;
+     if (valor < Integer.MIN_VALUE || valor > Integer.MAX_VALUE) {
+         throw new NumberFormatException("For input string: \"" + texto(buffer, inicio, fin) + "\"");
+     }
+     return (int) valor;
+ }
+
+ /**
+  * Convierte buffer[inicio, fin) en centavos con las mismas reglas que
+  * Dinero.parsearCentavos, sin crear un String para los decimales simples.
+  *
+  * @throws NumberFormatException Si el rango no es un número válido
+  */
+ static long parsearCentavos(ByteBuffer buffer, int inicio, int fin) {
+     int i = inicio;
+     boolean negativo = false;
+     if (i < fin && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+         negativo = buffer.get(i) == '-';
+         i++;
+     }
+     long entero = 0;
+     int digitos = 0;
+     for (; i < fin && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i++) {
+         entero = entero * 10 + (buffer.get(i) - '0');
+         digitos++;
+     }
+     long fraccion = 0;
+     int decimales = 0;
+     boolean redondearArriba = false;
+     if (i < fin && buffer.get(i) == '.') {
+         for (i++; i < fin && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i++) {
+             if (decimales < 2) {
+                 fraccion = fraccion * 10 + (buffer.get(i) - '0');
+             } else if (decimales == 2) {
+                 redondearArriba = buffer.get(i) >= '5';
+             }
+             decimales++;
+         }
+     }
+     if (i != fin || digitos + decimales == 0 || digitos > 16) {
+         return Dinero.parsearCentavos(texto(buffer, inicio, fin));
+     }
+     for (int d = decimales; d < 2; d++) {
+         fraccion *= 10;
+     }
+     long centavos = entero * 100 + fraccion + (redondearArriba ? 1 : 0);
+     return negativo ? -centavos : centavos;
+ }
+
+ /**
+  * Crea un String UTF-8 a partir de buffer[inicio, fin).
+  */
+ static String texto(ByteBuffer buffer, int inicio, int fin) {
+     byte[] bytes = new byte[fin - inicio];
+     buffer.get(inicio, bytes);
+     return new String(bytes, StandardCharsets.UTF_8);
+ }
+ 
+ /**
+  * Vendedor de un archivo de ventas y posición donde inicia su primera venta.
+  */
+ private static final class Cabecera {
+     private final int vendedor;
+     private final long inicioVentas;
+
+     Cabecera(int vendedor, long inicioVentas) {
+         this.vendedor = vendedor;
+         this.inicioVentas = inicioVentas;
+     }
+ }
+
+ /**
+  * Cantidades por producto y líneas leídas de los rangos de un hilo.
+  */
+ private static final class VentasRango {
+     private final long[] cantidades;
+     private long lineas;
+
+     VentasRango(int numProductos) {
+         this.cantidades = new long[numProductos];
+     }
+
+     void combinar(VentasRango otro) {
+         for (int i = 0; i < cantidades.length; i++) {
+             cantidades[i] += otro.cantidades[i];
+         }
+         lineas += otro.lineas;
+     }
+ }
+}
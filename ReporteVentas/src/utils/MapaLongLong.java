@@ -0,0 +1,167 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+* Mapa de claves long a valores long con direccionamiento abierto, sin
+* objetos por entrada. Se usa para acumular sumas sobre claves compuestas
+* (por ejemplo vendedor y producto empaquetados en un long), donde un
+* HashMap crearía un Long y una entrada por cada combinación.
+*
+* Las claves deben ser mayores o iguales que cero. No es seguro para usarlo
+* desde varios hilos: cada hilo llena su propio mapa y luego se combinan.
+*/
+class MapaLongLong {
+ /** Marca de posición libre; las claves válidas no son negativas. */
+ private static final long LIBRE = -1L;
+
+ private long[] claves;
+ private long[] valores;
+ private int mascara;
+ private int tamano;
+
+ /**
+  * Constructor de la clase MapaLongLong.
+  *
+  * @param capacidadEsperada Cantidad aproximada de claves distintas
+  */
+ MapaLongLong(int capacidadEsperada) {
+     crear(Integer.highestOneBit(Math.max(2, capacidadEsperada * 2 - 1)) << 1);
+ }
+
+ /**
+  * Suma un valor al de una clave, que empieza en cero si no existía.
+  *
+  * @param clave Clave (mayor o igual que cero)
+  * @param valor Valor a sumar
+  */
+ void sumar(long clave, long valor) {
+     int posicion = mezclar(clave) & mascara;
+     while (claves[posicion] != LIBRE) {
+         if (claves[posicion] == clave) {
+             valores[posicion] += valor;
+             return;
+         }
+         posicion = (posicion + 1) & mascara;
+     }
+     claves[posicion] = clave;
+     valores[posicion] = valor;
+     if (++tamano * 2 > claves.length) {
+         redimensionar();
+     }
+ }
+
+ /**
+  * Obtiene el valor de una clave.
+  *
+  * @param clave Clave a buscar
+  * @return Valor acumulado, o 0 si la clave no está
+  */
+ long obtener(long clave) {
+     int posicion = mezclar(clave) & mascara;
+     while (claves[posicion] != LIBRE) {
+         if (claves[posicion] == clave) {
+             return valores[posicion];
+         }
+         posicion = (posicion + 1) & mascara;
+     }
+     return 0;
+ }
+
+ /**
+  * Indica si una clave está en el mapa, aunque su valor sea cero.
+  *
+  * @param clave Clave a buscar
+  * @return true si la clave está
+  */
+ boolean contiene(long clave) {
+     int posicion = mezclar(clave) & mascara;
+     while (claves[posicion] != LIBRE) {
+         if (claves[posicion] == clave) {
+             return true;
+         }
+         posicion = (posicion + 1) & mascara;
+     }
+     return false;
+ }
+
+ /**
+  * Obtiene la cantidad de claves del mapa.
+  *
+  * @return Cantidad de claves
+  */
+ int size() {
+     return tamano;
+ }
+
+ /**
+  * Suma las entradas de otro mapa dentro de este.
+  *
+  * @param otro Mapa a combinar
+  */
+ void combinar(MapaLongLong otro) {
+     otro.recorrer(this::sumar);
+ }
+
+ /**
+  * Recorre las entradas del mapa, sin un orden definido.
+  *
+  * @param consumidor Acción a ejecutar por cada clave y su valor
+  */
+ void recorrer(Consumidor consumidor) {
+     for (int i = 0; i < claves.length; i++) {
+         if (claves[i] != LIBRE) {
+             consumidor.aceptar(claves[i], valores[i]);
+         }
+     }
+ }
+
+ /**
+  * Obtiene las claves del mapa ordenadas de menor a mayor.
+  *
+  * @return Arreglo nuevo con las claves
+  */
+ long[] clavesOrdenadas() {
+     long[] resultado = new long[tamano];
+     int n = 0;
+     for (long clave : claves) {
+         if (clave != LIBRE) {
+             resultado[n++] = clave;
+         }
+     }
+     Arrays.sort(resultado);
+     return resultado;
+ }
+
+ private void crear(int capacidad) {
+     claves = new long[capacidad];
+     valores = new long[capacidad];
+     Arrays.fill(claves, LIBRE);
+     mascara = capacidad - 1;
+     tamano = 0;
+ }
+
+ private void redimensionar() {
+     long[] clavesAnteriores = claves;
+     long[] valoresAnteriores = valores;
+     crear(clavesAnteriores.length * 2);
+     for (int i = 0; i < clavesAnteriores.length; i++) {
+         if (clavesAnteriores[i] != LIBRE) {
+             sumar(clavesAnteriores[i], valoresAnteriores[i]);
+         }
+     }
+ }
+
+ private static int mezclar(long clave) {
+     long h = clave * 0x9E3779B97F4A7C15L;
+     return (int) (h ^ (h >>> 32));
+ }
+
+ /**
+  * Acción sobre una entrada del mapa.
+  */
+ @FunctionalInterface
+ interface Consumidor {
+     void aceptar(long clave, long valor);
+ }
+}
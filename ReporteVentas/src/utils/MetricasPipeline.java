@@ -0,0 +1,246 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* Métricas del procesamiento de ventas: contadores, latencia por archivo y
+* tiempo por fase.
+*
+* Los contadores son LongAdder, por lo que los hilos de procesamiento los
+* actualizan sin contención; las líneas se cuentan localmente en cada
+* archivo y se suman una sola vez al terminarlo. Los rechazos por categoría
+* se toman de RegistroRechazos. Las métricas se exportan como JSON o en
+* formato de texto de Prometheus.
+*/
+public class MetricasPipeline {
+
+ /**
+  * Fases del procesamiento.
+  */
+ public enum Fase {
+     CARGA, INGESTA, ORDENAMIENTO, ESCRITURA
+ }
+
+ private static final MetricasPipeline GLOBAL = new MetricasPipeline();
+
+ private final LongAdder archivos = new LongAdder();
+ private final LongAdder lineas = new LongAdder();
+ private final LongAdder bytesLeidos = new LongAdder();
+ private final HistogramaLatencia latenciaArchivo = new HistogramaLatencia();
+ private final Map<Fase, LongAdder> nanosPorFase = new EnumMap<>(Fase.class);
+ private final Map<SelectorEstrategia.Estrategia, LongAdder> lotesPorEstrategia =
+         new EnumMap<>(SelectorEstrategia.Estrategia.class);
+
+ /**
+  * Constructor de la clase MetricasPipeline.
+  */
+ public MetricasPipeline() {
+     for (Fase fase : Fase.values()) {
+         nanosPorFase.put(fase, new LongAdder());
+     }
+     for (SelectorEstrategia.Estrategia estrategia : SelectorEstrategia.Estrategia.values()) {
+         lotesPorEstrategia.put(estrategia, new LongAdder());
+     }
+ }
+
+ /**
+  * Obtiene las métricas globales del proceso.
+  *
+  * @return Métricas globales
+  */
+ public static MetricasPipeline global() {
+     return GLOBAL;
+ }
+
+ /**
+  * Registra la estrategia elegida por SelectorEstrategia para un lote.
+  *
+  * @param estrategia Estrategia elegida
+  */
+ public void registrarEstrategia(SelectorEstrategia.Estrategia estrategia) {
+     lotesPorEstrategia.get(estrategia).increment();
+ }
+
+ /**
+  * Registra un archivo de ventas procesado.
+  *
+  * @param bytes Tamaño del archivo en bytes
+  * @param lineasArchivo Líneas de venta leídas
+  * @param nanos Tiempo de procesamiento en nanosegundos
+  */
+ public void registrarArchivo(long bytes, long lineasArchivo, long nanos) {
+     archivos.increment();
+     lineas.add(lineasArchivo);
+     bytesLeidos.add(bytes);
+     latenciaArchivo.registrar(nanos);
+ }
+
+ /**
+  * Suma líneas de venta leídas sin registrar un archivo, para las etapas que
+  * analizan partes de un archivo por separado.
+  *
+  * @param lineasLeidas Líneas de venta leídas
+  */
+ public void registrarLineas(long lineasLeidas) {
+     lineas.add(lineasLeidas);
+ }
+
+ /**
+  * Suma tiempo a una fase.
+  *
+  * @param fase Fase del procesamiento
+  * @param nanos Tiempo en nanosegundos
+  */
+ public void registrarFase(Fase fase, long nanos) {
+     nanosPorFase.get(fase).add(nanos);
+ }
+
+ /**
+  * Obtiene el tiempo acumulado de una fase.
+  *
+  * @param fase Fase del procesamiento
+  * @return Tiempo en nanosegundos
+  */
+ public long getNanos(Fase fase) {
+     return nanosPorFase.get(fase).sum();
+ }
+
+ /**
+  * Obtiene el histograma de latencia por archivo.
+  *
+  * @return Histograma en nanosegundos
+  */
+ public HistogramaLatencia getLatenciaArchivo() {
+     return latenciaArchivo;
+ }
+
+ /**
+  * Exporta las métricas a un archivo. Si la ruta termina en .prom se usa el
+  * formato de texto de Prometheus; en otro caso, JSON.
+  *
+  * @param path Ruta del archivo de salida
+  * @throws IOException Si ocurre un error de escritura
+  */
+ public void exportar(Path path) throws IOException {
+     String contenido = path.getFileName().toString().endsWith(".prom") ? aPrometheus() : aJson();
+     Files.write(path, contenido.getBytes(StandardCharsets.UTF_8));
+ }
+
+ /**
+  * Representa las métricas en JSON.
+  *
+  * @return Texto JSON
+  */
+ public String aJson() {
+     double segundosIngesta = getNanos(Fase.INGESTA) / 1e9;
+     StringBuilder json = new StringBuilder(512);
+     json.append("{\n");
+     json.append("  \"archivos\": ").append(archivos.sum()).append(",\n");
+     json.append("  \"lineas\": ").append(lineas.sum()).append(",\n");
+     json.append("  \"bytesLeidos\": ").append(bytesLeidos.sum()).append(",\n");
+     json.append("  \"archivosPorSegundo\": ").append(formato(porSegundo(archivos.sum(), segundosIngesta))).append(",\n");
+     json.append("  \"lineasPorSegundo\": ").append(formato(porSegundo(lineas.sum(), segundosIngesta))).append(",\n");
+     json.append("  \"rechazos\": {");
+     String separador = "";
+     for (RegistroRechazos.Categoria categoria : RegistroRechazos.Categoria.values()) {
+         json.append(separador).append('"').append(categoria.name().toLowerCase(Locale.ROOT)).append("\": ")
+             .append(RegistroRechazos.global().getCantidad(categoria));
+         separador = ", ";
+     }
+     json.append("},\n");
+     json.append("  \"latenciaArchivoNs\": {")
+         .append("\"cantidad\": ").append(latenciaArchivo.getCantidad())
+         .append(", \"min\": ").append(latenciaArchivo.getMinimo())
+         .append(", \"media\": ").append(formato(latenciaArchivo.getMedia()))
+         .append(", \"p50\": ").append(latenciaArchivo.getPercentil(50))
+         .append(", \"p90\": ").append(latenciaArchivo.getPercentil(90))
+         .append(", \"p99\": ").append(latenciaArchivo.getPercentil(99))
+         .append(", \"p999\": ").append(latenciaArchivo.getPercentil(99.9))
+         .append(", \"max\": ").append(latenciaArchivo.getMaximo()).append("},\n");
+     json.append("  \"fasesMs\": {");
+     separador = "";
+     for (Fase fase : Fase.values()) {
+         json.append(separador).append('"').append(fase.name().toLowerCase(Locale.ROOT)).append("\": ")
+             .append(formato(getNanos(fase) / 1e6));
+         separador = ", ";
+     }
+     json.append("},\n");
+     json.append("  \"lotesPorEstrategia\": {");
+     separador = "";
+     for (Map.Entry<SelectorEstrategia.Estrategia, LongAdder> entry : lotesPorEstrategia.entrySet()) {
+         json.append(separador).append('"').append(entry.getKey().getNombre()).append("\": ")
+             .append(entry.getValue().sum());
+         separador = ", ";
+     }
+     json.append("}\n}\n");
+     return json.toString();
+ }
+
+ /**
+  * Representa las métricas en el formato de texto de Prometheus.
+  *
+  * @return Texto en formato Prometheus
+  */
+ public String aPrometheus() {
+     StringBuilder prom = new StringBuilder(1024);
+     contador(prom, "reporte_ventas_archivos_total", "Archivos de ventas procesados", archivos.sum());
+     contador(prom, "reporte_ventas_lineas_total", "Lineas de venta leidas", lineas.sum());
+     contador(prom, "reporte_ventas_bytes_leidos_total", "Bytes de archivos de ventas leidos", bytesLeidos.sum());
+
+     String rechazos = "reporte_ventas_rechazos_total";
+     prom.append("# HELP ").append(rechazos).append(" Lineas o archivos rechazados por categoria\n");
+     prom.append("# TYPE ").append(rechazos).append(" counter\n");
+     for (RegistroRechazos.Categoria categoria : RegistroRechazos.Categoria.values()) {
+         prom.append(rechazos).append("{categoria=\"").append(categoria.name().toLowerCase(Locale.ROOT)).append("\"} ")
+             .append(RegistroRechazos.global().getCantidad(categoria)).append('\n');
+     }
+
+     String latencia = "reporte_ventas_latencia_archivo_segundos";
+     prom.append("# HELP ").append(latencia).append(" Latencia de procesamiento por archivo\n");
+     prom.append("# TYPE ").append(latencia).append(" summary\n");
+     for (double cuantil : new double[]{0.5, 0.9, 0.99, 0.999}) {
+         prom.append(latencia).append("{quantile=\"").append(cuantil).append("\"} ")
+             .append(formato(latenciaArchivo.getPercentil(cuantil * 100) / 1e9)).append('\n');
+     }
+     prom.append(latencia).append("_sum ").append(formato(latenciaArchivo.getSuma() / 1e9)).append('\n');
+     prom.append(latencia).append("_count ").append(latenciaArchivo.getCantidad()).append('\n');
+
+     String fases = "reporte_ventas_fase_segundos";
+     prom.append("# HELP ").append(fases).append(" Tiempo acumulado por fase\n");
+     prom.append("# TYPE ").append(fases).append(" gauge\n");
+     for (Fase fase : Fase.values()) {
+         prom.append(fases).append("{fase=\"").append(fase.name().toLowerCase(Locale.ROOT)).append("\"} ")
+             .append(formato(getNanos(fase) / 1e9)).append('\n');
+     }
+
+     String lotes = "reporte_ventas_lotes_estrategia_total";
+     prom.append("# HELP ").append(lotes).append(" Lotes de archivos procesados por estrategia elegida\n");
+     prom.append("# TYPE ").append(lotes).append(" counter\n");
+     for (Map.Entry<SelectorEstrategia.Estrategia, LongAdder> entry : lotesPorEstrategia.entrySet()) {
+         prom.append(lotes).append("{estrategia=\"").append(entry.getKey().getNombre()).append("\"} ")
+             .append(entry.getValue().sum()).append('\n');
+     }
+     return prom.toString();
+ }
+
+ private static void contador(StringBuilder prom, String nombre, String ayuda, long valor) {
+     prom.append("# HELP ").append(nombre).append(' ').append(ayuda).append('\n');
+     prom.append("# TYPE ").append(nombre).append(" counter\n");
+     prom.append(nombre).append(' ').append(valor).append('\n');
+ }
+
+ private static double porSegundo(long cantidad, double segundos) {
+     return segundos > 0 ? cantidad / segundos : 0;
+ }
+
+ private static String formato(double valor) {
+     return String.format(Locale.ROOT, "%.6f", valor);
+ }
+}
@@ -0,0 +1,473 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+* Procesamiento de archivos de ventas en etapas conectadas por colas acotadas.
+*
+* Un hilo lector lee los archivos por bloques de líneas completas y resuelve
+* el vendedor de la cabecera; varios hilos analizadores convierten cada
+* bloque en lotes de ventas (vendedor, producto, cantidad) con índices del
+* catálogo; el hilo que llama acumula los lotes como único escritor.
+*
+* La lectura del disco se superpone con el análisis, y las colas acotadas
+* detienen al lector cuando los analizadores no dan abasto. Los lotes se
+* reciclan entre los analizadores y el acumulador, por lo que la memoria
+* usada no depende del tamaño ni de la cantidad de archivos.
+*
+* Si se llena un CuboVentas, cada lote contiene ventas de un solo archivo
+* para que el acumulador las ubique en su ventana. Los archivos se cuentan
+* en sus ventanas en el hilo lector, al aceptar su cabecera, con la misma
+* regla que AgregadosIndexados.
+*
+* Si se deduplica por contenido, el lector calcula el hash de cada archivo
+* con cabecera válida en una pasada previa, por bloques que no se retienen,
+* y solo lo envía a los analizadores si el RegistroContenidos no tenía ese
+* contenido. Así la memoria tampoco depende del tamaño de los archivos.
+* Como el único lector registra los contenidos en el orden de la lista,
+* entre dos archivos con el mismo contenido se acumula siempre el primero.
+*/
+class PipelineIngesta {
+ /** Bytes leídos del disco por bloque. */
+ private static final int TAMANO_BLOQUE = 1 << 20;
+
+ /** Ventas por lote. */
+ private static final int TAMANO_LOTE = 8192;
+
+ private static final int BLOQUES_POR_ANALIZADOR = 2;
+ private static final int LOTES_POR_ANALIZADOR = 4;
+ private static final long ESPERA_MS = 100;
+
+ /** Marca de fin de la cola de bloques; se envía una por analizador. */
+ private static final Bloque FIN_BLOQUES = new Bloque(null, 0, 0, IndiceIds.NO_ENCONTRADO, null);
+
+ /** Marca de fin de la cola de lotes; cada analizador envía una al terminar. */
+ private static final Lote FIN_LOTES = new Lote(0);
+
+ private final CatalogoIndexado catalogo;
+ private final int analizadores;
+ private final CuboVentas.Ventana tipoVentana;
+ private final RegistroContenidos contenidos;
+ /** Cubo donde el lector cuenta los archivos aceptados, o null si no se llena un cubo. */
+ private final CuboVentas archivosAceptados;
+ private final BlockingQueue<Bloque> bloques;
+ private final BlockingQueue<Lote> lotes;
+ private final BlockingQueue<Lote> libres;
+ private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+ /**
+  * Constructor de la clase PipelineIngesta.
+  *
+  * @param catalogo Catálogo indexado de productos y vendedores
+  * @param analizadores Cantidad de hilos analizadores
+  * @param tipoVentana Ventanas del cubo de ventas, o null para no llenar un cubo
+  * @param contenidos Registro de contenidos ya acumulados, o null para no deduplicar
+  */
+ PipelineIngesta(CatalogoIndexado catalogo, int analizadores, CuboVentas.Ventana tipoVentana, 
+                 RegistroContenidos contenidos) {
+     this.catalogo = catalogo;
+     this.analizadores = analizadores;
+     this.tipoVentana = tipoVentana;
+     this.contenidos = contenidos;
+     this.archivosAceptados = tipoVentana != null ? new CuboVentas(tipoVentana, catalogo) : null;
+     int totalLotes = LOTES_POR_ANALIZADOR * analizadores;
+     this.bloques = new ArrayBlockingQueue<>(BLOQUES_POR_ANALIZADOR * analizadores);
+     // Caben todos los lotes y las marcas de fin, así que los analizadores solo esperan por lotes libres
+     this.lotes = new ArrayBlockingQueue<>(totalLotes + analizadores);
+     this.libres = new ArrayBlockingQueue<>(totalLotes);
+     for (int i = 0; i < totalLotes; i++) {
+         libres.add(new Lote(TAMANO_LOTE));
+     }
+ }
+
+ /**
+  * Procesa los archivos de ventas y retorna sus ventas acumuladas.
+  *
+  * @param files Archivos de ventas
+  * @return Acumulado de todas las ventas
+  * @throws IOException Si ocurre un error de lectura en alguna etapa
+  */
+ AgregadosIndexados procesar(File[] files) throws IOException {
+     ExecutorService hilos = Executors.newFixedThreadPool(analizadores + 1);
+     try {
+         hilos.execute(() -> etapa(() -> leer(files)));
+         for (int i = 0; i < analizadores; i++) {
+             hilos.execute(() -> etapa(this::analizar));
+         }
+
+         AgregadosIndexados resultado = new AgregadosIndexados(catalogo, tipoVentana);
+         int terminados = 0;
+         while (terminados < analizadores) {
+             verificarError();
+             Lote lote = lotes.poll(ESPERA_MS, TimeUnit.MILLISECONDS);
+             if (lote == FIN_LOTES) {
+                 terminados++;
+             } else if (lote != null) {
+                 if (lote.archivo != null) {
+                     resultado.iniciarArchivo(new File(lote.archivo));
+                 }
+                 lote.aplicar(resultado);
+                 libres.put(lote);
+             }
+         }
+         verificarError();
+         // El lector ya terminó: envió las marcas de fin después de su último archivo
+         if (archivosAceptados != null) {
+             resultado.getCubo().combinar(archivosAceptados);
+         }
+         return resultado;
+     } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IOException("Procesamiento de ventas interrumpido", e);
+     } finally {
+         // Interrumpe las etapas que sigan esperando si alguna falló
+         hilos.shutdownNow();
+     }
+ }
+
+ /**
+  * Etapa lectora: lee cada archivo por bloques que terminan en un salto de
+  * línea y los envía a los analizadores.
+  */
+ private void leer(File[] files) throws IOException, InterruptedException {
+     MetricasPipeline metricas = MetricasPipeline.global();
+     byte[] bufferHash = contenidos != null ? new byte[TAMANO_BLOQUE] : null;
+     for (File file : files) {
+         long inicio = System.nanoTime();
+         leerArchivo(file.toPath(), bufferHash);
+         // En este modo la latencia por archivo es la de la etapa lectora
+         metricas.registrarArchivo(file.length(), 0, System.nanoTime() - inicio);
+     }
+     for (int i = 0; i < analizadores; i++) {
+         bloques.put(FIN_BLOQUES);
+     }
+ }
+
+ /**
+  * Lee un archivo de ventas y envía sus líneas de venta en bloques. Los
+  * archivos comprimidos se leen como flujo, sin conocer su tamaño.
+  */
+ private void leerArchivo(Path filePath, byte[] bufferHash) throws IOException, InterruptedException {
+     boolean comprimido = Descompresion.esComprimido(filePath.getFileName().toString());
+     try (ReadableByteChannel channel = abrir(filePath, comprimido)) {
+         long size = comprimido ? Long.MAX_VALUE : ((FileChannel) channel).size();
+         if (size == 0) {
+             return;
+         }
+
+         byte[] datos = new byte[(int) Math.min(size, TAMANO_BLOQUE)];
+         int longitud = llenar(channel, datos, 0);
+         if (longitud == 0) {
+             return;
+         }
+         long leidos = longitud;
+         boolean ultimo = longitud < datos.length || leidos >= size;
+
+         // La cabecera se resuelve aquí para que cada bloque lleve su vendedor
+         ByteBuffer cabecera = ByteBuffer.wrap(datos, 0, longitud);
+         int finCabecera = LectorMapeado.buscar(cabecera, 0, longitud, (byte) '\n');
+         if (finCabecera == longitud && !ultimo) {
+             RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.FORMATO_INCORRECTO, filePath.toString(),
+                     LectorMapeado.texto(cabecera, 0, Math.min(finCabecera, 80)));
+             return;
+         }
+         int finLinea = finCabecera > 0 && datos[finCabecera - 1] == '\r' ? finCabecera - 1 : finCabecera;
+         int finTipo = LectorMapeado.buscar(cabecera, 0, finLinea, (byte) ';');
+         if (finTipo >= finLinea - 1) {
+             RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.FORMATO_INCORRECTO, filePath.toString(),
+                     LectorMapeado.texto(cabecera, 0, finLinea));
+             return;
+         }
+         int finNumero = LectorMapeado.buscar(cabecera, finTipo + 1, finLinea, (byte) ';');
+         int vendedor = catalogo.getIndiceVendedores().buscar(cabecera, finTipo + 1, finNumero);
+         if (vendedor == IndiceIds.NO_ENCONTRADO) {
+             RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.VENDEDOR_NO_ENCONTRADO, filePath.toString(),
+                     LectorMapeado.texto(cabecera, finTipo + 1, finNumero));
+             return;
+         }
+
+         if (contenidos != null) {
+             HashContenido hash = hashArchivo(filePath, comprimido, bufferHash);
+             if (!contenidos.registrar(hash.getValue(), hash.getLongitud())) {
+                 RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.ARCHIVO_DUPLICADO, filePath.toString(),
+                         Long.toHexString(hash.getValue()));
+                 return;
+             }
+         }
+         contarArchivo(filePath);
+
+         String archivo = filePath.toString();
+         int inicio = Math.min(finCabecera + 1, longitud);
+         while (!ultimo) {
+             int fin = finUltimaLinea(datos, inicio, longitud);
+             if (fin > inicio) {
+                 bloques.put(new Bloque(datos, inicio, fin, vendedor, archivo));
+             }
+
+             // La línea incompleta del final pasa al inicio del siguiente bloque
+             int resto = longitud - fin;
+             byte[] siguiente = new byte[(int) Math.min(size - leidos + resto, (long) TAMANO_BLOQUE + resto)];
+             System.arraycopy(datos, fin, siguiente, 0, resto);
+             longitud = llenar(channel, siguiente, resto);
+             leidos += longitud - resto;
+             ultimo = longitud < siguiente.length || leidos >= size;
+             datos = siguiente;
+             inicio = 0;
+         }
+         if (inicio < longitud) {
+             bloques.put(new Bloque(datos, inicio, longitud, vendedor, archivo));
+         }
+     }
+ }
+
+ /**
+  * Abre un archivo de ventas como canal, descomprimiéndolo si hace falta.
+  */
+ private static ReadableByteChannel abrir(Path filePath, boolean comprimido) throws IOException {
+     return comprimido 
+             ? Channels.newChannel(Descompresion.abrir(filePath)) 
+             : FileChannel.open(filePath, StandardOpenOption.READ);
+ }
+
+ /**
+  * Calcula el hash del contenido completo de un archivo, reutilizando el
+  * arreglo indicado para cada bloque leído.
+  */
+ private static HashContenido hashArchivo(Path filePath, boolean comprimido, byte[] buffer) throws IOException {
+     HashContenido hash = new HashContenido();
+     try (ReadableByteChannel channel = abrir(filePath, comprimido)) {
+         int longitud;
+         while ((longitud = llenar(channel, buffer, 0)) > 0) {
+             hash.update(buffer, 0, longitud);
+         }
+     }
+     return hash;
+ }
+
+ /**
+  * Cuenta un archivo aceptado en su ventana del cubo, si se llena uno.
+  */
+ private void contarArchivo(Path filePath) {
+     if (archivosAceptados != null) {
+         archivosAceptados.iniciarArchivo(filePath.toFile());
+         archivosAceptados.contarArchivo();
+     }
+ }
+
+ /**
+  * Etapa analizadora: convierte los bloques en lotes de ventas hasta recibir
+  * la marca de fin.
+  */
+ private void analizar() throws InterruptedException {
+     MetricasPipeline metricas = MetricasPipeline.global();
+     Lote lote = libres.take();
+     Bloque bloque;
+     while ((bloque = bloques.take()) != FIN_BLOQUES) {
+         if (tipoVentana != null && lote.archivo != bloque.archivo) {
+             // Cada lote lleva las ventas de un solo archivo
+             if (lote.tamano > 0) {
+                 lotes.put(lote);
+                 lote = libres.take();
+             }
+             lote.archivo = bloque.archivo;
+         }
+         byte[] datos = bloque.datos;
+         ByteBuffer buffer = ByteBuffer.wrap(datos);
+         long lineas = 0;
+         int inicioLinea = bloque.inicio;
+         for (int i = bloque.inicio; i < bloque.fin; i++) {
+             if (datos[i] == '\n') {
+                 int finLinea = i > inicioLinea && datos[i - 1] == '\r' ? i - 1 : i;
+                 lote = analizarLinea(buffer, inicioLinea, finLinea, bloque, lote);
+                 lineas++;
+                 inicioLinea = i + 1;
+             }
+         }
+         if (inicioLinea < bloque.fin) {
+             int finLinea = datos[bloque.fin - 1] == '\r' ? bloque.fin - 1 : bloque.fin;
+             lote = analizarLinea(buffer, inicioLinea, finLinea, bloque, lote);
+             lineas++;
+         }
+         metricas.registrarLineas(lineas);
+     }
+     if (lote.tamano > 0) {
+         lotes.put(lote);
+     } else {
+         libres.put(lote);
+     }
+     lotes.put(FIN_LOTES);
+ }
+
+ /**
+  * Agrega al lote la venta de una línea. Si el lote se llena, lo envía al
+  * acumulador y toma uno libre.
+  *
+  * @return Lote donde se deben agregar las siguientes ventas
+  */
+ private Lote analizarLinea(ByteBuffer buffer, int inicio, int fin, Bloque bloque, Lote lote)
+         throws InterruptedException {
+     int finId = LectorMapeado.buscar(buffer, inicio, fin, (byte) ';');
+     if (finId < fin) {
+         int finCantidad = LectorMapeado.buscar(buffer, finId + 1, fin, (byte) ';');
+         if (finCantidad > finId + 1) {
+             int cantidad;
+             try {
+                 cantidad = LectorMapeado.parsearEntero(buffer, finId + 1, finCantidad);
+             } catch (NumberFormatException e) {
+                 RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.CANTIDAD_INVALIDA, bloque.archivo,
+                         LectorMapeado.texto(buffer, inicio, fin));
+                 return lote;
+             }
+             int producto = catalogo.getIndiceProductos().buscar(buffer, inicio, finId);
+             if (producto != IndiceIds.NO_ENCONTRADO) {
+                 lote.agregar(bloque.vendedor, producto, cantidad);
+                 if (lote.tamano == lote.productos.length) {
+                     // El lote enviado ya no se puede leer: lo usa el acumulador
+                     String archivo = lote.archivo;
+                     lotes.put(lote);
+                     Lote siguiente = libres.take();
+                     siguiente.archivo = archivo;
+                     return siguiente;
+                 }
+             } else {
+                 RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.PRODUCTO_NO_ENCONTRADO, bloque.archivo,
+                         LectorMapeado.texto(buffer, inicio, finId));
+             }
+         }
+     }
+     return lote;
+ }
+
+ /**
+  * Posición siguiente al último salto de línea de datos[inicio, fin), o
+  * inicio si no hay ninguno.
+  */
+ private static int finUltimaLinea(byte[] datos, int inicio, int fin) {
+     for (int i = fin - 1; i >= inicio; i--) {
+         if (datos[i] == '\n') {
+             return i + 1;
+         }
+     }
+     return inicio;
+ }
+
+ /**
+  * Lee del canal hasta llenar el arreglo desde la posición indicada o llegar
+  * al final del archivo.
+  *
+  * @return Posición hasta donde quedó lleno el arreglo
+  */
+ private static int llenar(ReadableByteChannel channel, byte[] datos, int desde) throws IOException {
+     ByteBuffer buffer = ByteBuffer.wrap(datos, desde, datos.length - desde);
+     while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+         // Sigue leyendo hasta llenar el bloque
+     }
+     return buffer.position();
+ }
+
+ /**
+  * Ejecuta una etapa guardando el primer error para que el acumulador lo
+  * relance.
+  */
+ private void etapa(Etapa etapa) {
+     try {
+         etapa.ejecutar();
+     } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+     } catch (Throwable e) {
+         error.compareAndSet(null, e);
+     }
+ }
+
+ /**
+  * Relanza el error de alguna etapa, si lo hubo.
+  */
+ private void verificarError() throws IOException {
+     Throwable causa = error.get();
+     if (causa instanceof IOException) {
+         throw (IOException) causa;
+     } else if (causa instanceof RuntimeException) {
+         throw (RuntimeException) causa;
+     } else if (causa instanceof Error) {
+         throw (Error) causa;
+     } else if (causa != null) {
+         throw new IOException("Error procesando archivos de ventas", causa);
+     }
+ }
+
+ /**
+  * Cuerpo de una etapa del procesamiento.
+  */
+ @FunctionalInterface
+ private interface Etapa {
+     void ejecutar() throws IOException, InterruptedException;
+ }
+
+ /**
+  * Líneas de venta completas de un archivo, datos[inicio, fin), junto con
+  * el índice del vendedor de su cabecera.
+  */
+ private static class Bloque {
+     private final byte[] datos;
+     private final int inicio;
+     private final int fin;
+     private final int vendedor;
+     private final String archivo;
+
+     Bloque(byte[] datos, int inicio, int fin, int vendedor, String archivo) {
+         this.datos = datos;
+         this.inicio = inicio;
+         this.fin = fin;
+         this.vendedor = vendedor;
+         this.archivo = archivo;
+     }
+ }
+
+ /**
+  * Lote de ventas ya resueltas a índices del catálogo.
+  */
+ private static class Lote {
+     private final int[] vendedores;
+     private final int[] productos;
+     private final int[] cantidades;
+     private int tamano;
+     /** Archivo de las ventas del lote; solo se usa si se llena un cubo. */
+     private String archivo;
+
+     Lote(int capacidad) {
+         this.vendedores = new int[capacidad];
+         this.productos = new int[capacidad];
+         this.cantidades = new int[capacidad];
+     }
+
+     void agregar(int vendedor, int producto, int cantidad) {
+         vendedores[tamano] = vendedor;
+         productos[tamano] = producto;
+         cantidades[tamano] = cantidad;
+         tamano++;
+     }
+
+     /**
+      * Registra las ventas del lote en el acumulado y deja el lote vacío.
+      */
+     void aplicar(AgregadosIndexados resultado) {
+         for (int i = 0; i < tamano; i++) {
+             resultado.registrar(vendedores[i], productos[i], cantidades[i]);
+         }
+         tamano = 0;
+     }
+ }
+}
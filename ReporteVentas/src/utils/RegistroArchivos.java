@@ -0,0 +1,87 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+* Registro de los archivos de ventas ya procesados, con su tamaño y fecha
+* de modificación, para no acumular dos veces el mismo archivo.
+*/
+public class RegistroArchivos {
+ private final Map<String, long[]> archivos = new HashMap<>();
+
+ /**
+  * Indica si un archivo ya fue procesado.
+  *
+  * @param nombre Nombre del archivo
+  * @return true si el archivo está registrado
+  */
+ public synchronized boolean contiene(String nombre) {
+     return archivos.containsKey(nombre);
+ }
+
+ /**
+  * Indica si un archivo registrado cambió de tamaño o de fecha de
+  * modificación desde que fue procesado.
+  *
+  * @param archivo Ruta del archivo
+  * @return true si el archivo está registrado y cambió
+  * @throws IOException Si no se pueden leer los atributos del archivo
+  */
+ public synchronized boolean cambio(Path archivo) throws IOException {
+     long[] datos = archivos.get(archivo.getFileName().toString());
+     if (datos == null) {
+         return false;
+     }
+     BasicFileAttributes atributos = Files.readAttributes(archivo, BasicFileAttributes.class);
+     return datos[0] != atributos.size() || datos[1] != atributos.lastModifiedTime().toMillis();
+ }
+
+ /**
+  * Registra un archivo como procesado con sus atributos actuales.
+  *
+  * @param archivo Ruta del archivo
+  * @throws IOException Si no se pueden leer los atributos del archivo
+  */
+ public void registrar(Path archivo) throws IOException {
+     BasicFileAttributes atributos = Files.readAttributes(archivo, BasicFileAttributes.class);
+     registrar(archivo.getFileName().toString(), atributos.size(), atributos.lastModifiedTime().toMillis());
+ }
+
+ /**
+  * Registra un archivo como procesado.
+  *
+  * @param nombre Nombre del archivo
+  * @param tamano Tamaño en bytes
+  * @param modificado Fecha de modificación en milisegundos
+  */
+ public synchronized void registrar(String nombre, long tamano, long modificado) {
+     archivos.put(nombre, new long[]{tamano, modificado});
+ }
+
+ /**
+  * Obtiene una copia de los archivos registrados con su tamaño y fecha de
+  * modificación.
+  *
+  * @return Mapa de nombre de archivo a {tamaño, modificado}
+  */
+ synchronized Map<String, long[]> copia() {
+     Map<String, long[]> copia = new LinkedHashMap<>();
+     archivos.forEach((nombre, datos) -> copia.put(nombre, datos.clone()));
+     return copia;
+ }
+
+ /**
+  * Obtiene la cantidad de archivos registrados.
+  *
+  * @return Cantidad de archivos
+  */
+ public synchronized int size() {
+     return archivos.size();
+ }
+}
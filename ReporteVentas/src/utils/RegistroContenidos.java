@@ -0,0 +1,129 @@
+package utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+* Registro del contenido de los archivos de ventas ya acumulados, para no
+* contar dos veces un archivo entregado de nuevo con otro nombre.
+*
+* Cada contenido se identifica por el par (HashContenido, tamaño en bytes);
+* el registro guarda el primer tamaño de cada hash en un MapaLongLong, sin
+* objetos por archivo, y los demás tamaños de un hash con colisión, que son
+* muy raros, en una lista aparte. En disco ocupa 16 bytes por archivo
+* (DataOutputStream, big-endian):
+* <pre>
+* int magia, int version
+* int n, n × (long hash, long tamano), ordenados por hash
+* </pre>
+* Un hash con colisión aparece una vez por cada tamaño.
+*/
+public class RegistroContenidos {
+ private static final int MAGIA = 0x48415348; // "HASH"
+ private static final int VERSION = 1;
+
+ private final MapaLongLong contenidos = new MapaLongLong(1024);
+ /** Tamaños de los contenidos cuyo hash ya estaba registrado con otro tamaño. */
+ private final Map<Long, List<Long>> colisiones = new HashMap<>();
+ private int cantidadColisiones;
+
+ /**
+  * Registra un contenido si no estaba registrado.
+  *
+  * @param hash Hash del contenido
+  * @param tamano Tamaño del contenido en bytes
+  * @return true si el contenido es nuevo, false si ya estaba registrado
+  */
+ synchronized boolean registrar(long hash, long tamano) {
+     // El mapa solo admite claves no negativas; se descarta el bit de signo
+     long clave = hash & Long.MAX_VALUE;
+     if (!contenidos.contiene(clave)) {
+         contenidos.sumar(clave, tamano);
+         return true;
+     }
+     if (contenidos.obtener(clave) == tamano) {
+         return false;
+     }
+     // Con otro tamaño es una colisión del hash: el contenido es distinto y se registra aparte
+     List<Long> tamanos = colisiones.computeIfAbsent(clave, c -> new ArrayList<>(1));
+     if (tamanos.contains(tamano)) {
+         return false;
+     }
+     tamanos.add(tamano);
+     cantidadColisiones++;
+     return true;
+ }
+
+ /**
+  * Obtiene la cantidad de contenidos registrados.
+  *
+  * @return Cantidad de contenidos
+  */
+ public synchronized int size() {
+     return contenidos.size() + cantidadColisiones;
+ }
+
+ /**
+  * Carga un registro guardado con guardar().
+  *
+  * @param path Ruta del registro
+  * @return Registro cargado, o uno vacío si el archivo no existe
+  * @throws IOException Si ocurre un error de lectura o el formato es inválido
+  */
+ public static RegistroContenidos cargar(Path path) throws IOException {
+     RegistroContenidos registro = new RegistroContenidos();
+     if (!Files.exists(path)) {
+         return registro;
+     }
+     try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+         if (in.readInt() != MAGIA) {
+             throw new IOException("El archivo no es un registro de contenidos: " + path);
+         }
+         int version = in.readInt();
+         if (version != VERSION) {
+             throw new IOException("Versión de registro de contenidos no soportada: " + version);
+         }
+         int n = in.readInt();
+         for (int i = 0; i < n; i++) {
+             registro.registrar(in.readLong(), in.readLong());
+         }
+     }
+     return registro;
+ }
+
+ /**
+  * Guarda el registro. Se escribe en un archivo temporal que luego
+  * reemplaza al anterior, para no dejar un registro incompleto.
+  *
+  * @param path Ruta del registro
+  * @throws IOException Si ocurre un error de escritura
+  */
+ public synchronized void guardar(Path path) throws IOException {
+     Path temporal = path.resolveSibling(path.getFileName() + ".tmp");
+     try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporal)))) {
+         out.writeInt(MAGIA);
+         out.writeInt(VERSION);
+         long[] claves = contenidos.clavesOrdenadas();
+         out.writeInt(size());
+         for (long clave : claves) {
+             out.writeLong(clave);
+             out.writeLong(contenidos.obtener(clave));
+             for (long tamano : colisiones.getOrDefault(clave, List.of())) {
+                 out.writeLong(clave);
+                 out.writeLong(tamano);
+             }
+         }
+     }
+     Files.move(temporal, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+ }
+}
@@ -0,0 +1,244 @@
+package utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+* Registro de las líneas y archivos de ventas rechazados.
+*
+* Cada rechazo suma en un contador por categoría. Solo la primera aparición
+* de cada valor distinto (por ejemplo, cada ID de producto desconocido) se
+* escribe en el archivo de rechazos, hasta LIMITE_MUESTRAS valores; la
+* escritura la hace un hilo aparte que vacía una cola acotada, así que un
+* archivo con millones de líneas inválidas no frena el procesamiento con
+* escrituras a consola. Si la cola se llena, la muestra se descarta y solo
+* queda contada.
+*/
+public class RegistroRechazos {
+
+ /**
+  * Motivos de rechazo.
+  */
+ public enum Categoria {
+     FORMATO_INCORRECTO("Formato incorrecto"),
+     VENDEDOR_NO_ENCONTRADO("Vendedor no encontrado"),
+     PRODUCTO_NO_ENCONTRADO("Producto no encontrado"),
+     CANTIDAD_INVALIDA("Cantidad inválida"),
+     ARCHIVO_DUPLICADO("Archivo con contenido ya procesado"),
+     ARCHIVO_MODIFICADO("Archivo ya procesado que cambió");
+
+     private final String descripcion;
+
+     Categoria(String descripcion) {
+         this.descripcion = descripcion;
+     }
+
+     /**
+      * Obtiene la descripción del motivo.
+      *
+      * @return Descripción para el resumen
+      */
+     public String getDescripcion() {
+         return descripcion;
+     }
+ }
+
+ /** Ruta por defecto del archivo de rechazos. */
+ public static final String ARCHIVO_POR_DEFECTO = "rechazos.log";
+
+ /** Cantidad máxima de valores distintos que se escriben en el archivo. */
+ private static final int LIMITE_MUESTRAS = 10_000;
+
+ private static final int CAPACIDAD_COLA = 4096;
+ private static final long ESPERA_MS = 100;
+
+ private static final RegistroRechazos GLOBAL = new RegistroRechazos();
+
+ private final Map<Categoria, LongAdder> contadores = new EnumMap<>(Categoria.class);
+ private final Set<String> vistos = ConcurrentHashMap.newKeySet();
+ private final LongAdder omitidos = new LongAdder();
+ private final LongAdder descartados = new LongAdder();
+ private final BlockingQueue<String> cola = new ArrayBlockingQueue<>(CAPACIDAD_COLA);
+
+ private Path archivo = Paths.get(ARCHIVO_POR_DEFECTO);
+ private volatile Thread escritor;
+ private volatile boolean cerrado;
+
+ /**
+  * Constructor de la clase RegistroRechazos.
+  */
+ public RegistroRechazos() {
+     for (Categoria categoria : Categoria.values()) {
+         contadores.put(categoria, new LongAdder());
+     }
+ }
+
+ /**
+  * Obtiene el registro de rechazos global del proceso.
+  *
+  * @return Registro global
+  */
+ public static RegistroRechazos global() {
+     return GLOBAL;
+ }
+
+ /**
+  * Establece el archivo donde se escriben las muestras de rechazos. Debe
+  * llamarse antes del primer rechazo.
+  *
+  * @param archivo Ruta del archivo de rechazos
+  */
+ public synchronized void setArchivo(Path archivo) {
+     this.archivo = archivo;
+ }
+
+ /**
+  * Obtiene el archivo donde se escriben las muestras de rechazos.
+  *
+  * @return Ruta del archivo de rechazos
+  */
+ public synchronized Path getArchivo() {
+     return archivo;
+ }
+
+ /**
+  * Registra un rechazo.
+  *
+  * @param categoria Motivo del rechazo
+  * @param filePath Archivo donde ocurrió
+  * @param valor Valor rechazado (ID, documento o texto de la línea)
+  */
+ public void rechazar(Categoria categoria, String filePath, String valor) {
+     contadores.get(categoria).increment();
+     if (vistos.size() >= LIMITE_MUESTRAS) {
+         omitidos.increment();
+         return;
+     }
+     if (vistos.add(categoria.name() + ';' + valor)) {
+         iniciarEscritor();
+         // El valor va al final porque puede contener ';' (por ejemplo, una línea completa)
+         if (!cola.offer(categoria.name() + ';' + filePath + ';' + valor)) {
+             descartados.increment();
+         }
+     }
+ }
+
+ /**
+  * Obtiene la cantidad de rechazos de una categoría.
+  *
+  * @param categoria Motivo del rechazo
+  * @return Cantidad de rechazos
+  */
+ public long getCantidad(Categoria categoria) {
+     return contadores.get(categoria).sum();
+ }
+
+ /**
+  * Obtiene la cantidad total de rechazos.
+  *
+  * @return Cantidad de rechazos de todas las categorías
+  */
+ public long getTotal() {
+     long total = 0;
+     for (LongAdder contador : contadores.values()) {
+         total += contador.sum();
+     }
+     return total;
+ }
+
+ /**
+  * Espera a que se escriban las muestras pendientes y cierra el archivo de
+  * rechazos.
+  */
+ public void cerrar() {
+     Thread hilo;
+     synchronized (this) {
+         cerrado = true;
+         hilo = escritor;
+     }
+     if (hilo != null) {
+         try {
+             hilo.join();
+         } catch (InterruptedException e) {
+             Thread.currentThread().interrupt();
+         }
+     }
+ }
+
+ /**
+  * Construye el resumen de rechazos por categoría.
+  *
+  * @return Texto del resumen, o cadena vacía si no hubo rechazos
+  */
+ public String resumen() {
+     long total = getTotal();
+     if (total == 0) {
+         return "";
+     }
+     StringBuilder resumen = new StringBuilder("Registros rechazados: ").append(total).append('\n');
+     for (Categoria categoria : Categoria.values()) {
+         long cantidad = getCantidad(categoria);
+         if (cantidad > 0) {
+             resumen.append("  ").append(categoria.getDescripcion()).append(": ").append(cantidad).append('\n');
+         }
+     }
+     resumen.append("Primera aparición de cada valor rechazado en: ").append(getArchivo());
+     if (omitidos.sum() + descartados.sum() > 0) {
+         resumen.append(" (").append(omitidos.sum() + descartados.sum()).append(" sin muestra)");
+     }
+     return resumen.toString();
+ }
+
+ /**
+  * Inicia el hilo escritor la primera vez que hay una muestra que escribir.
+  */
+ private void iniciarEscritor() {
+     if (escritor != null) {
+         return;
+     }
+     synchronized (this) {
+         if (escritor == null && !cerrado) {
+             Path destino = archivo;
+             escritor = new Thread(() -> escribir(destino), "registro-rechazos");
+             escritor.setDaemon(true);
+             escritor.start();
+         }
+     }
+ }
+
+ /**
+  * Escribe las muestras de la cola hasta que el registro se cierre y la
+  * cola quede vacía.
+  */
+ private void escribir(Path destino) {
+     try (BufferedWriter writer = Files.newBufferedWriter(destino)) {
+         writer.write("Categoria;Archivo;Valor");
+         writer.newLine();
+         while (!cerrado || !cola.isEmpty()) {
+             String linea = cola.poll(ESPERA_MS, TimeUnit.MILLISECONDS);
+             if (linea != null) {
+                 writer.write(linea);
+                 writer.newLine();
+             }
+             if (cola.isEmpty()) {
+                 writer.flush();
+             }
+         }
+     } catch (IOException e) {
+         System.err.println("No se pudo escribir el archivo de rechazos " + destino + ": " + e.getMessage());
+     } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+     }
+ }
+}
@@ -0,0 +1,272 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+* Elige la forma de procesar un lote de archivos de ventas a partir de una
+* muestra de la carpeta: cantidad de archivos, distribución de tamaños,
+* cuántos bytes están comprimidos y si el sistema de archivos es local o de
+* red.
+*
+* Reglas, con P procesadores:
+* <ul>
+* <li>Menos de 256 archivos y de 4 MiB en total: secuencial, crear hilos no
+* compensa.</li>
+* <li>La mayoría de los bytes en archivos de 16 MiB o más: en disco local y
+* sin comprimir, memoria mapeada (con P &gt; 1, cada archivo grande se
+* reparte por rangos de líneas entre los P hilos); si no, pipeline, que
+* reparte los bloques de cada archivo entre P analizadores.</li>
+* <li>Muchos archivos pequeños: con un procesador, pipeline, que superpone la
+* lectura con el análisis; con más, paralelo por archivo (con memoria
+* mapeada si la mediana pasa de 1 MiB). En un sistema de archivos de red se
+* usan 2P hilos para cubrir la latencia y nunca memoria mapeada.</li>
+* </ul>
+* Cada decisión se cuenta en MetricasPipeline y se informa por consola
+* cuando cambia respecto del lote anterior. Con una estrategia forzada se
+* mide y se informa igual, pero se usa la indicada.
+*/
+public class SelectorEstrategia {
+
+ /**
+  * Formas de procesar los archivos de ventas.
+  */
+ public enum Estrategia {
+     SECUENCIAL,
+     MAPEADA,
+     PARALELA,
+     PARALELA_MAPEADA,
+     PIPELINE;
+
+     /**
+      * Obtiene el nombre de la estrategia en la línea de comandos.
+      *
+      * @return Nombre en minúsculas, con guiones (por ejemplo paralela-mapeada)
+      */
+     public String getNombre() {
+         return name().toLowerCase(Locale.ROOT).replace('_', '-');
+     }
+
+     /**
+      * Lee una estrategia por su nombre.
+      *
+      * @param nombre Nombre de la estrategia (por ejemplo paralela-mapeada)
+      * @return Estrategia
+      * @throws IllegalArgumentException Si el nombre no corresponde a una estrategia
+      */
+     public static Estrategia parsear(String nombre) {
+         for (Estrategia estrategia : values()) {
+             if (estrategia.getNombre().equals(nombre)) {
+                 return estrategia;
+             }
+         }
+         throw new IllegalArgumentException("Estrategia desconocida: " + nombre);
+     }
+ }
+
+ /** Cantidad máxima de archivos cuyo tamaño se consulta. */
+ private static final int MUESTRA = 4096;
+
+ private static final int POCOS_ARCHIVOS = 256;
+ private static final long ENTRADA_PEQUENA = 4L << 20;
+ private static final long ARCHIVO_GRANDE = LectorMapeado.ARCHIVO_POR_RANGOS;
+ private static final long MEDIANA_MAPEADA = 1L << 20;
+
+ /** Prefijos de los tipos de sistema de archivos de red (FileStore.type()). */
+ private static final String[] SISTEMAS_RED = {
+     "nfs", "cifs", "smb", "fuse.sshfs", "sshfs", "9p", "afs", "glusterfs", "fuse.glusterfs", "ceph",
+     "fuse.ceph", "lustre", "gpfs", "beegfs", "davfs", "fuse.s3fs", "fuse.gcsfuse"
+ };
+
+ private final Estrategia forzada;
+ private final int paralelismoForzado;
+ private final int procesadores;
+ private String ultimaDecision;
+
+ /**
+  * Crea un selector automático para los procesadores de la máquina.
+  */
+ public SelectorEstrategia() {
+     this(null, 0);
+ }
+
+ /**
+  * Crea un selector que puede fijar la estrategia o la cantidad de hilos.
+  *
+  * @param forzada Estrategia a usar siempre, o null para elegirla según el perfil
+  * @param paralelismo Hilos de las estrategias con varios hilos, o 0 para usar los del perfil
+  */
+ public SelectorEstrategia(Estrategia forzada, int paralelismo) {
+     this.forzada = forzada;
+     this.paralelismoForzado = paralelismo;
+     this.procesadores = Runtime.getRuntime().availableProcessors();
+ }
+
+ /**
+  * Mide los archivos, elige la estrategia y retorna una copia de la
+  * configuración con el paralelismo, la memoria mapeada y el pipeline
+  * correspondientes.
+  *
+  * @param files Archivos de ventas del lote
+  * @param base Configuración con el resto de las opciones
+  * @return Configuración para este lote, sin selector
+  */
+ synchronized ConfiguracionIngesta elegir(File[] files, ConfiguracionIngesta base) {
+     Perfil perfil = Perfil.medir(files);
+     Estrategia estrategia;
+     String motivo;
+     int hilos;
+     long bytesGrandesMapeables = perfil.bytesGrandes - perfil.bytesGrandesComprimidos;
+     if (forzada != null) {
+         estrategia = forzada;
+         motivo = "indicada con --estrategia";
+         hilos = estrategia == Estrategia.SECUENCIAL || estrategia == Estrategia.MAPEADA ? 1 : procesadores;
+     } else if (perfil.archivos < POCOS_ARCHIVOS && perfil.bytes < ENTRADA_PEQUENA) {
+         estrategia = Estrategia.SECUENCIAL;
+         motivo = "entrada pequeña, crear hilos no compensa";
+         hilos = 1;
+     } else if (perfil.bytesGrandes * 2 >= perfil.bytes) {
+         if (!perfil.red && bytesGrandesMapeables * 2 >= perfil.bytesGrandes) {
+             estrategia = procesadores > 1 ? Estrategia.PARALELA_MAPEADA : Estrategia.MAPEADA;
+             motivo = procesadores > 1 ? "archivos grandes locales, se reparten por rangos de líneas entre los hilos"
+                     : "archivos grandes locales con un procesador";
+         } else {
+             estrategia = Estrategia.PIPELINE;
+             motivo = perfil.red ? "archivos grandes en un sistema de archivos de red"
+                     : "archivos grandes comprimidos, se descomprimen mientras se analizan";
+         }
+         hilos = estrategia == Estrategia.MAPEADA ? 1 : procesadores;
+     } else if (procesadores == 1 && !perfil.red) {
+         estrategia = Estrategia.PIPELINE;
+         motivo = "muchos archivos pequeños con un procesador, la lectura se superpone con el análisis";
+         hilos = 1;
+     } else if (perfil.red) {
+         estrategia = Estrategia.PARALELA;
+         motivo = "muchos archivos en un sistema de archivos de red, más hilos que procesadores";
+         hilos = procesadores * 2;
+     } else {
+         boolean mapeada = perfil.mediana >= MEDIANA_MAPEADA && perfil.bytesComprimidos * 2 < perfil.bytes;
+         estrategia = mapeada ? Estrategia.PARALELA_MAPEADA : Estrategia.PARALELA;
+         motivo = mapeada ? "muchos archivos medianos locales" : "muchos archivos pequeños locales";
+         hilos = procesadores;
+     }
+     if (paralelismoForzado > 0 && hilos > 1) {
+         hilos = paralelismoForzado;
+     }
+
+     ConfiguracionIngesta configuracion = base.copiar();
+     configuracion.setSelector(null);
+     configuracion.setParalelismo(hilos);
+     configuracion.setMapeado(estrategia == Estrategia.MAPEADA || estrategia == Estrategia.PARALELA_MAPEADA);
+     configuracion.setPipeline(estrategia == Estrategia.PIPELINE);
+
+     MetricasPipeline.global().registrarEstrategia(estrategia);
+     String decision = estrategia.getNombre() + " (" + hilos + (hilos == 1 ? " hilo" : " hilos") + ")";
+     if (!decision.equals(ultimaDecision)) {
+         System.out.println("Estrategia de ingesta: " + decision + ", " + motivo + ". " + perfil);
+         ultimaDecision = decision;
+     }
+     return configuracion;
+ }
+
+ /**
+  * Indica si un tipo de sistema de archivos es de red.
+  *
+  * @param tipo Tipo informado por FileStore.type()
+  * @return true si es un sistema de archivos de red conocido
+  */
+ static boolean esSistemaRed(String tipo) {
+     String minusculas = tipo.toLowerCase(Locale.ROOT);
+     for (String red : SISTEMAS_RED) {
+         if (minusculas.startsWith(red)) {
+             return true;
+         }
+     }
+     return false;
+ }
+
+ /**
+  * Perfil de un lote de archivos. Con más de MUESTRA archivos, los tamaños
+  * se consultan en una muestra espaciada y los totales se extrapolan.
+  */
+ static final class Perfil {
+     private int archivos;
+     private long bytes;
+     private long maximo;
+     private long mediana;
+     private long grandes;
+     private long bytesGrandes;
+     private long bytesGrandesComprimidos;
+     private long bytesComprimidos;
+     private String sistemaArchivos = "desconocido";
+     private boolean red;
+
+     static Perfil medir(File[] files) {
+         Perfil perfil = new Perfil();
+         perfil.archivos = files.length;
+         if (files.length == 0) {
+             return perfil;
+         }
+         int muestra = Math.min(files.length, MUESTRA);
+         long[] tamanos = new long[muestra];
+         for (int i = 0; i < muestra; i++) {
+             File file = files[(int) ((long) i * files.length / muestra)];
+             long tamano = file.length();
+             tamanos[i] = tamano;
+             perfil.bytes += tamano;
+             perfil.maximo = Math.max(perfil.maximo, tamano);
+             boolean comprimido = Descompresion.esComprimido(file.getName());
+             if (comprimido) {
+                 perfil.bytesComprimidos += tamano;
+             }
+             if (tamano >= ARCHIVO_GRANDE) {
+                 perfil.grandes++;
+                 perfil.bytesGrandes += tamano;
+                 if (comprimido) {
+                     perfil.bytesGrandesComprimidos += tamano;
+                 }
+             }
+         }
+         if (muestra < files.length) {
+             double escala = (double) files.length / muestra;
+             perfil.bytes = (long) (perfil.bytes * escala);
+             perfil.grandes = (long) (perfil.grandes * escala);
+             perfil.bytesGrandes = (long) (perfil.bytesGrandes * escala);
+             perfil.bytesGrandesComprimidos = (long) (perfil.bytesGrandesComprimidos * escala);
+             perfil.bytesComprimidos = (long) (perfil.bytesComprimidos * escala);
+         }
+         Arrays.sort(tamanos);
+         perfil.mediana = tamanos[muestra / 2];
+         try {
+             perfil.sistemaArchivos = Files.getFileStore(files[0].toPath()).type();
+             perfil.red = esSistemaRed(perfil.sistemaArchivos);
+         } catch (IOException e) {
+             // Sin el tipo de sistema de archivos se asume local
+         }
+         return perfil;
+     }
+
+     @Override
+     public String toString() {
+         return "Perfil: " + archivos + " archivos, " + tamano(bytes) + (archivos > MUESTRA ? " (estimado)" : "")
+                 + ", mediana " + tamano(mediana) + ", máximo " + tamano(maximo)
+                 + ", " + grandes + " de " + tamano(ARCHIVO_GRANDE) + " o más"
+                 + ", " + (bytes > 0 ? bytesComprimidos * 100 / bytes : 0) + "% comprimido"
+                 + ", sistema de archivos " + sistemaArchivos + (red ? " (red)" : " (local)");
+     }
+
+     private static String tamano(long bytes) {
+         if (bytes >= 1L << 30) {
+             return String.format(Locale.ROOT, "%.1f GiB", bytes / (double) (1L << 30));
+         } else if (bytes >= 1L << 20) {
+             return String.format(Locale.ROOT, "%.1f MiB", bytes / (double) (1L << 20));
+         } else if (bytes >= 1L << 10) {
+             return String.format(Locale.ROOT, "%.1f KiB", bytes / (double) (1L << 10));
+         }
+         return bytes + " B";
+     }
+ }
+}
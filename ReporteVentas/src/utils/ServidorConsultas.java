@@ -0,0 +1,360 @@
+package utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import modelo.Dinero;
+import modelo.Producto;
+import modelo.Vendedor;
+
+/**
+* Servidor HTTP local que responde consultas sobre los totales de ventas.
+*
+* Las consultas no leen los objetos Producto y Vendedor, que el
+* procesamiento sigue modificando, sino una vista inmutable que se publica
+* con publicar() después de cada lote. La vista se cambia de una vez en un
+* AtomicReference, así que las consultas no toman bloqueos y siempre ven
+* los totales de un mismo lote.
+*
+* Rutas (solo GET):
+* - /estado: versión de la vista y cantidad de productos y vendedores.
+* - /vendedores?top=N y /productos?top=N: los primeros N (10 por defecto, 0 para todos) en el orden de los reportes.
+* - /vendedores/{numeroDocumento} y /productos/{id}: datos y posición de uno.
+* - /reportes/vendedores.csv y /reportes/productos.csv: los reportes completos, con el mismo contenido que los archivos.
+*/
+public class ServidorConsultas {
+ private static final int TOP_POR_DEFECTO = 10;
+ private static final int CONEXIONES_EN_ESPERA = 512;
+
+ private static final String JSON = "application/json; charset=utf-8";
+ private static final String CSV = "text/csv; charset=utf-8";
+
+ private final HttpServer servidor;
+ private final ExecutorService hilos;
+ private final AtomicReference<Vista> vista = new AtomicReference<>(new Vista(List.of(), List.of(), 0));
+
+ /**
+  * Constructor de la clase ServidorConsultas. El servidor escucha solo en
+  * la interfaz local.
+  *
+  * @param puerto Puerto TCP (0 para uno libre)
+  * @param cantidadHilos Cantidad de hilos que atienden las consultas
+  * @throws IOException Si no se puede abrir el puerto
+  */
+ public ServidorConsultas(int puerto, int cantidadHilos) throws IOException {
+     servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto), CONEXIONES_EN_ESPERA);
+     AtomicInteger contador = new AtomicInteger();
+     hilos = Executors.newFixedThreadPool(cantidadHilos, tarea -> {
+         Thread hilo = new Thread(tarea, "servidor-consultas-" + contador.incrementAndGet());
+         hilo.setDaemon(true);
+         return hilo;
+     });
+     servidor.setExecutor(hilos);
+     servidor.createContext("/", this::atender);
+ }
+
+ /**
+  * Empieza a atender consultas.
+  */
+ public void iniciar() {
+     servidor.start();
+ }
+
+ /**
+  * Deja de atender consultas, esperando hasta un segundo a las que están en curso.
+  */
+ public void detener() {
+     servidor.stop(1);
+     hilos.shutdown();
+     try {
+         hilos.awaitTermination(1, TimeUnit.SECONDS);
+     } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+     }
+ }
+
+ /**
+  * Obtiene el puerto donde escucha el servidor.
+  *
+  * @return Puerto TCP
+  */
+ public int getPuerto() {
+     return servidor.getAddress().getPort();
+ }
+
+ /**
+  * Publica una vista nueva con los totales actuales. Debe llamarse desde el
+  * hilo que procesa las ventas, entre un lote y el siguiente; las consultas
+  * en curso terminan con la vista anterior.
+  *
+  * @param productos Productos con su cantidad vendida
+  * @param vendedores Vendedores con su total de ventas
+  */
+ public void publicar(Collection<Producto> productos, Collection<Vendedor> vendedores) {
+     vista.set(new Vista(productos, vendedores, vista.get().version + 1));
+ }
+
+ /**
+  * Atiende una consulta con la vista publicada en ese momento.
+  */
+ private void atender(HttpExchange intercambio) throws IOException {
+     try {
+         if (!"GET".equals(intercambio.getRequestMethod())) {
+             responder(intercambio, 405, JSON, error("Método no permitido"));
+             return;
+         }
+         Vista actual = vista.get();
+         URI uri = intercambio.getRequestURI();
+         String ruta = uri.getPath();
+         try {
+             if (ruta.equals("/estado")) {
+                 responder(intercambio, 200, JSON, actual.estado());
+             } else if (ruta.equals("/vendedores")) {
+                 responder(intercambio, 200, JSON, actual.topVendedores(leerTop(uri.getRawQuery())));
+             } else if (ruta.equals("/productos")) {
+                 responder(intercambio, 200, JSON, actual.topProductos(leerTop(uri.getRawQuery())));
+             } else if (ruta.startsWith("/vendedores/")) {
+                 responderUno(intercambio, actual.vendedor(ruta.substring("/vendedores/".length())), "Vendedor");
+             } else if (ruta.startsWith("/productos/")) {
+                 responderUno(intercambio, actual.producto(ruta.substring("/productos/".length())), "Producto");
+             } else if (ruta.equals("/reportes/vendedores.csv")) {
+                 responder(intercambio, 200, CSV, actual.csvVendedores());
+             } else if (ruta.equals("/reportes/productos.csv")) {
+                 responder(intercambio, 200, CSV, actual.csvProductos());
+             } else {
+                 responder(intercambio, 404, JSON, error("Ruta no encontrada: " + ruta));
+             }
+         } catch (IllegalArgumentException e) {
+             responder(intercambio, 400, JSON, error(e.getMessage()));
+         }
+     } finally {
+         intercambio.close();
+     }
+ }
+
+ private static void responderUno(HttpExchange intercambio, byte[] cuerpo, String tipo) throws IOException {
+     if (cuerpo == null) {
+         responder(intercambio, 404, JSON, error(tipo + " no encontrado"));
+     } else {
+         responder(intercambio, 200, JSON, cuerpo);
+     }
+ }
+
+ private static void responder(HttpExchange intercambio, int codigo, String tipo, byte[] cuerpo) throws IOException {
+     intercambio.getResponseHeaders().set("Content-Type", tipo);
+     intercambio.sendResponseHeaders(codigo, cuerpo.length);
+     try (OutputStream salida = intercambio.getResponseBody()) {
+         salida.write(cuerpo);
+     }
+ }
+
+ private static byte[] error(String mensaje) {
+     StringBuilder json = new StringBuilder("{\"error\": ");
+     texto(json, mensaje);
+     return json.append("}\n").toString().getBytes(StandardCharsets.UTF_8);
+ }
+
+ /**
+  * Lee el parámetro top de la consulta.
+  *
+  * @throws IllegalArgumentException Si el valor no es un entero no negativo
+  */
+ private static int leerTop(String consulta) {
+     if (consulta != null) {
+         for (String parametro : consulta.split("&")) {
+             if (parametro.startsWith("top=")) {
+                 try {
+                     int top = Integer.parseInt(parametro.substring(4));
+                     if (top >= 0) {
+                         return top;
+                     }
+                 } catch (NumberFormatException e) {
+                     // Se informa abajo
+                 }
+                 throw new IllegalArgumentException("top debe ser un entero mayor o igual que cero");
+             }
+         }
+     }
+     return TOP_POR_DEFECTO;
+ }
+
+ /**
+  * Agrega un texto como cadena JSON.
+  */
+ private static void texto(StringBuilder json, String valor) {
+     json.append('"');
+     for (int i = 0; i < valor.length(); i++) {
+         char c = valor.charAt(i);
+         if (c == '"' || c == '\\') {
+             json.append('\\').append(c);
+         } else if (c < 0x20) {
+             json.append(String.format("\\u%04x", (int) c));
+         } else {
+             json.append(c);
+         }
+     }
+     json.append('"');
+ }
+
+ /**
+  * Copia inmutable de los totales, con productos y vendedores en el orden
+  * de los reportes. Los reportes CSV se generan la primera vez que se piden.
+  */
+ private static final class Vista {
+     private final long version;
+     private final long creada = System.currentTimeMillis();
+
+     private final String[] idsProductos;
+     private final String[] nombresProductos;
+     private final long[] preciosProductos;
+     private final long[] cantidadesProductos;
+     private final Map<String, Integer> posicionProductos;
+
+     private final String[] tiposVendedores;
+     private final String[] documentosVendedores;
+     private final String[] nombresVendedores;
+     private final long[] ventasVendedores;
+     private final Map<String, Integer> posicionVendedores;
+
+     private volatile byte[] csvVendedores;
+     private volatile byte[] csvProductos;
+
+     Vista(Collection<Producto> productos, Collection<Vendedor> vendedores, long version) {
+         this.version = version;
+
+         // Mismo orden que UtilsFile.generarReporteProductos y generarReporteVendedores
+         List<Producto> listaProductos = UtilsFile.ordenar(productos,
+                 (p1, p2) -> Long.compare(p2.getCantidadVendida(), p1.getCantidadVendida()), 0);
+         int n = listaProductos.size();
+         idsProductos = new String[n];
+         nombresProductos = new String[n];
+         preciosProductos = new long[n];
+         cantidadesProductos = new long[n];
+         posicionProductos = new HashMap<>(n * 2);
+         for (int i = 0; i < n; i++) {
+             Producto producto = listaProductos.get(i);
+             idsProductos[i] = producto.getId();
+             nombresProductos[i] = producto.getNombre();
+             preciosProductos[i] = producto.getPrecioCentavos();
+             cantidadesProductos[i] = producto.getCantidadVendida();
+             posicionProductos.put(producto.getId(), i);
+         }
+
+         List<Vendedor> listaVendedores = UtilsFile.ordenar(vendedores,
+                 (v1, v2) -> Long.compare(v2.getTotalVentasCentavos(), v1.getTotalVentasCentavos()), 0);
+         int m = listaVendedores.size();
+         tiposVendedores = new String[m];
+         documentosVendedores = new String[m];
+         nombresVendedores = new String[m];
+         ventasVendedores = new long[m];
+         posicionVendedores = new HashMap<>(m * 2);
+         for (int i = 0; i < m; i++) {
+             Vendedor vendedor = listaVendedores.get(i);
+             tiposVendedores[i] = vendedor.getTipoDocumento();
+             documentosVendedores[i] = vendedor.getNumeroDocumento();
+             nombresVendedores[i] = vendedor.getNombreCompleto();
+             ventasVendedores[i] = vendedor.getTotalVentasCentavos();
+             posicionVendedores.put(vendedor.getNumeroDocumento(), i);
+         }
+     }
+
+     byte[] estado() {
+         return ("{\"version\": " + version + ", \"creada\": " + creada + ", \"productos\": " + idsProductos.length
+                 + ", \"vendedores\": " + documentosVendedores.length + "}\n").getBytes(StandardCharsets.UTF_8);
+     }
+
+     byte[] topVendedores(int top) {
+         int n = top == 0 ? documentosVendedores.length : Math.min(top, documentosVendedores.length);
+         StringBuilder json = new StringBuilder(64 + n * 96).append("[");
+         for (int i = 0; i < n; i++) {
+             vendedor(json.append(i == 0 ? "\n  " : ",\n  "), i);
+         }
+         return json.append("\n]\n").toString().getBytes(StandardCharsets.UTF_8);
+     }
+
+     byte[] topProductos(int top) {
+         int n = top == 0 ? idsProductos.length : Math.min(top, idsProductos.length);
+         StringBuilder json = new StringBuilder(64 + n * 96).append("[");
+         for (int i = 0; i < n; i++) {
+             producto(json.append(i == 0 ? "\n  " : ",\n  "), i);
+         }
+         return json.append("\n]\n").toString().getBytes(StandardCharsets.UTF_8);
+     }
+
+     byte[] vendedor(String numeroDocumento) {
+         Integer posicion = posicionVendedores.get(numeroDocumento);
+         return posicion == null ? null
+                 : vendedor(new StringBuilder(128), posicion).append('\n').toString().getBytes(StandardCharsets.UTF_8);
+     }
+
+     byte[] producto(String id) {
+         Integer posicion = posicionProductos.get(id);
+         return posicion == null ? null
+                 : producto(new StringBuilder(128), posicion).append('\n').toString().getBytes(StandardCharsets.UTF_8);
+     }
+
+     byte[] csvVendedores() {
+         byte[] csv = csvVendedores;
+         if (csv == null) {
+             StringBuilder texto = new StringBuilder(32 + documentosVendedores.length * 40).append("Nombre;TotalVentas\n");
+             for (int i = 0; i < documentosVendedores.length; i++) {
+                 Dinero.formatear(ventasVendedores[i], texto.append(nombresVendedores[i]).append(';')).append('\n');
+             }
+             // Si dos consultas lo generan a la vez, ambas obtienen el mismo contenido
+             csv = texto.toString().getBytes(StandardCharsets.UTF_8);
+             csvVendedores = csv;
+         }
+         return csv;
+     }
+
+     byte[] csvProductos() {
+         byte[] csv = csvProductos;
+         if (csv == null) {
+             StringBuilder texto = new StringBuilder(32 + idsProductos.length * 40).append("Nombre;Precio;CantidadVendida\n");
+             for (int i = 0; i < idsProductos.length; i++) {
+                 texto.append(nombresProductos[i]).append(';').append(Dinero.aDecimal(preciosProductos[i]))
+                      .append(';').append(cantidadesProductos[i]).append('\n');
+             }
+             csv = texto.toString().getBytes(StandardCharsets.UTF_8);
+             csvProductos = csv;
+         }
+         return csv;
+     }
+
+     private StringBuilder vendedor(StringBuilder json, int i) {
+         json.append("{\"posicion\": ").append(i + 1).append(", \"tipoDocumento\": ");
+         texto(json, tiposVendedores[i]);
+         json.append(", \"numeroDocumento\": ");
+         texto(json, documentosVendedores[i]);
+         json.append(", \"nombre\": ");
+         texto(json, nombresVendedores[i]);
+         return Dinero.formatear(ventasVendedores[i], json.append(", \"totalVentas\": ")).append('}');
+     }
+
+     private StringBuilder producto(StringBuilder json, int i) {
+         json.append("{\"posicion\": ").append(i + 1).append(", \"id\": ");
+         texto(json, idsProductos[i]);
+         json.append(", \"nombre\": ");
+         texto(json, nombresProductos[i]);
+         Dinero.formatear(preciosProductos[i], json.append(", \"precio\": "));
+         json.append(", \"cantidadVendida\": ").append(cantidadesProductos[i]);
+         return Dinero.formatear(cantidadesProductos[i] * preciosProductos[i], json.append(", \"ingresos\": ")).append('}');
+     }
+ }
+}
@@ -3,7 +3,14 @@ package utils;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import modelo.Dinero;
 import modelo.Producto;
 import modelo.Vendedor;
 
@@ -12,6 +19,38 @@ import modelo.Vendedor;
 */
 public class UtilsFile {
  
+ /**
+  * Procesa un archivo de ventas acumulando sus ventas en un resultado parcial
+  * y retorna la cantidad de líneas de venta leídas.
+  */
+ @FunctionalInterface
+ private interface ProcesadorArchivo {
+     long procesar(File file, AgregadosIndexados parcial) throws IOException;
+ }
+ 
+ /**
+  * Compara dos elementos por su índice; un valor negativo ubica primero al
+  * primero.
+  */
+ @FunctionalInterface
+ interface ComparadorIndices {
+     int comparar(int a, int b);
+ }
+ 
+ /**
+  * Escribe la fila de un elemento, identificado por su índice.
+  */
+ @FunctionalInterface
+ private interface EscritorFila {
+     void escribir(EscritorCSV writer, int indice) throws IOException;
+ }
+ 
+ /** Filas que codifica cada hilo por bloque al escribir un reporte en paralelo. */
+ private static final int FILAS_POR_BLOQUE = 32 * 1024;
+
+ /** Archivos leídos que puede retener cada hilo mientras espera a confirmar uno anterior. */
+ private static final int PENDIENTES_POR_HILO = 16;
+ 
  /**
   * Lee un archivo de productos y retorna una lista de objetos Producto.
   * 
@@ -22,15 +61,15 @@ public class UtilsFile {
  public static Map<String, Producto> leerProductos(String filePath) throws IOException {
      Map<String, Producto> productos = new HashMap<>();
      
-     try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
+     try (BufferedReader reader = Descompresion.abrirTexto(Paths.get(filePath))) {
          String line;
          while ((line = reader.readLine()) != null) {
              String[] parts = line.split(";");
              if (parts.length >= 3) {
                  String id = parts[0];
                  String nombre = parts[1];
-                 double precio = Double.parseDouble(parts[2]);
-                 productos.put(id, new Producto(id, nombre, precio));
+                 long precioCentavos = Dinero.parsearCentavos(parts[2]);
+                 productos.put(id, Producto.conPrecioCentavos(id, nombre, precioCentavos));
              }
          }
      }
@@ -48,7 +87,7 @@ public class UtilsFile {
  public static Map<String, Vendedor> leerVendedores(String filePath) throws IOException {
      Map<String, Vendedor> vendedores = new HashMap<>();
      
-     try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
+     try (BufferedReader reader = Descompresion.abrirTexto(Paths.get(filePath))) {
          String line;
          while ((line = reader.readLine()) != null) {
              String[] parts = line.split(";");
@@ -75,67 +114,502 @@ public class UtilsFile {
   */
  public static void procesarArchivosVentas(String carpeta, Map<String, Vendedor> vendedores, 
                                            Map<String, Producto> productos) throws IOException {
-     File folder = new File(carpeta);
-     File[] files = folder.listFiles((dir, name) -> name.endsWith(".txt") && 
-                                    !name.equals("vendedores.txt") && 
-                                    !name.equals("productos.txt"));
+     procesarArchivosVentas(carpeta, vendedores, productos, 1);
+ }
+ 
+ /**
+  * Procesa los archivos de ventas de vendedores usando varios hilos.
+  * 
+  * @param carpeta Carpeta donde se encuentran los archivos
+  * @param vendedores Mapa de vendedores
+  * @param productos Mapa de productos
+  * @param paralelismo Cantidad de hilos a usar (1 para procesamiento secuencial)
+  * @throws IOException Si ocurre un error de lectura
+  */
+ public static void procesarArchivosVentas(String carpeta, Map<String, Vendedor> vendedores, 
+                                           Map<String, Producto> productos, int paralelismo) throws IOException {
+     ConfiguracionIngesta configuracion = new ConfiguracionIngesta();
+     configuracion.setParalelismo(paralelismo);
+     procesarArchivosVentas(carpeta, vendedores, productos, configuracion);
+ }
+ 
+ /**
+  * Procesa los archivos de ventas de vendedores con la configuración indicada.
+  * 
+  * Con paralelismo mayor que 1, cada hilo acumula sus ventas en un resultado
+  * parcial propio y los parciales se combinan al final, por lo que los reportes
+  * generados son los mismos que con el procesamiento secuencial.
+  * 
+  * @param carpeta Carpeta donde se encuentran los archivos
+  * @param vendedores Mapa de vendedores
+  * @param productos Mapa de productos
+  * @param configuracion Opciones de procesamiento
+  * @throws IOException Si ocurre un error de lectura
+  */
+ public static void procesarArchivosVentas(String carpeta, Map<String, Vendedor> vendedores, 
+                                           Map<String, Producto> productos, 
+                                           ConfiguracionIngesta configuracion) throws IOException {
+     File[] files = listarArchivosVentas(carpeta, configuracion);
      
      if (files == null || files.length == 0) {
          System.out.println("No se encontraron archivos de ventas.");
          return;
      }
      
+     procesarArchivosVentas(files, vendedores, productos, configuracion);
+ }
+ 
+ /**
+  * Procesa los archivos de ventas que no están en el registro y los
+  * registra como procesados.
+  * 
+  * Los archivos registrados que cambiaron de tamaño o de fecha desde que se
+  * procesaron no se vuelven a acumular, porque sus ventas anteriores ya
+  * están en los totales: se cuentan como rechazos de la categoría
+  * ARCHIVO_MODIFICADO y se informan en la consola.
+  * 
+  * @param carpeta Carpeta donde se encuentran los archivos
+  * @param vendedores Mapa de vendedores
+  * @param productos Mapa de productos
+  * @param configuracion Opciones de procesamiento
+  * @param registro Registro de archivos ya procesados
+  * @return Cantidad de archivos nuevos procesados
+  * @throws IOException Si ocurre un error de lectura
+  */
+ public static int procesarArchivosVentas(String carpeta, Map<String, Vendedor> vendedores, 
+                                          Map<String, Producto> productos, ConfiguracionIngesta configuracion, 
+                                          RegistroArchivos registro) throws IOException {
+     File[] files = listarArchivosVentas(carpeta, configuracion);
+     if (files == null) {
+         System.out.println("No se encontraron archivos de ventas.");
+         return 0;
+     }
+     
+     List<File> nuevos = new ArrayList<>();
      for (File file : files) {
-         procesarArchivoVentas(file.getPath(), vendedores, productos);
+         if (!registro.contiene(file.getName())) {
+             nuevos.add(file);
+         } else if (registro.cambio(file.toPath())) {
+             System.out.println("Archivo ya procesado fue modificado, se ignora: " + file.getPath());
+             RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.ARCHIVO_MODIFICADO, file.getPath(),
+                                                file.getName());
+         }
+     }
+     if (!nuevos.isEmpty()) {
+         procesarArchivosVentas(nuevos.toArray(new File[0]), vendedores, productos, configuracion);
+         for (File file : nuevos) {
+             registro.registrar(file.toPath());
+         }
      }
+     return nuevos.size();
  }
  
  /**
-  * Procesa un archivo de ventas individual.
+  * Procesa los archivos de ventas de una carpeta sobre un catálogo indexado
+  * ya construido, por ejemplo un CatalogoPerezoso.
   * 
-  * @param filePath Ruta del archivo de ventas
+  * @param carpeta Carpeta donde se encuentran los archivos
+  * @param catalogo Catálogo indexado de productos y vendedores
+  * @param configuracion Opciones de procesamiento
+  * @return Cantidad de archivos procesados
+  * @throws IOException Si ocurre un error de lectura
+  */
+ public static int procesarArchivosVentas(String carpeta, CatalogoIndexado catalogo, 
+                                          ConfiguracionIngesta configuracion) throws IOException {
+     File[] files = listarArchivosVentas(carpeta, configuracion);
+     if (files == null || files.length == 0) {
+         System.out.println("No se encontraron archivos de ventas.");
+         return 0;
+     }
+     procesarArchivosVentas(files, catalogo, configuracion);
+     return files.length;
+ }
+ 
+ /**
+  * Procesa una lista de archivos de ventas con la configuración indicada.
+  * 
+  * @param files Archivos de ventas a procesar
   * @param vendedores Mapa de vendedores
   * @param productos Mapa de productos
+  * @param configuracion Opciones de procesamiento
+  * @throws IOException Si ocurre un error de lectura
+  */
+ public static void procesarArchivosVentas(File[] files, Map<String, Vendedor> vendedores, 
+                                           Map<String, Producto> productos, 
+                                           ConfiguracionIngesta configuracion) throws IOException {
+     procesarArchivosVentas(files, new CatalogoIndexado(productos, vendedores), configuracion);
+ }
+ 
+ /**
+  * Procesa una lista de archivos de ventas sobre un catálogo indexado ya
+  * construido. Las ventas se acumulan en arreglos primitivos y al final se
+  * aplican sobre los productos y vendedores del catálogo. Si la configuración
+  * tiene un CuboVentas, en la misma pasada se llena también el cubo. Si tiene
+  * un RegistroContenidos, los archivos de texto con un contenido ya
+  * registrado se leen pero no se acumulan. Si tiene un SelectorEstrategia,
+  * la forma de leer los archivos se elige según el perfil del lote.
+  * 
+  * Con memoria mapeada y varios hilos, los archivos de texto sin comprimir
+  * de LectorMapeado.ARCHIVO_POR_RANGOS bytes o más se procesan de a uno,
+  * repartiendo sus líneas por rangos entre todos los hilos; el resto se
+  * reparte por archivo.
+  * 
+  * @param files Archivos de ventas a procesar
+  * @param catalogo Catálogo indexado de productos y vendedores
+  * @param configuracion Opciones de procesamiento
+  * @throws IOException Si ocurre un error de lectura
+  */
+ public static void procesarArchivosVentas(File[] files, CatalogoIndexado catalogo, 
+                                           ConfiguracionIngesta configuracion) throws IOException {
+     if (configuracion.getSelector() != null) {
+         configuracion = configuracion.getSelector().elegir(files, configuracion);
+     }
+     ForkJoinPool poolRangos = configuracion.isMapeado() && !configuracion.isPipeline() 
+             && configuracion.getParalelismo() > 1 ? new ForkJoinPool(configuracion.getParalelismo()) : null;
+     ProcesadorArchivo lectorTexto;
+     if (poolRangos != null) {
+         lectorTexto = (file, parcial) -> esArchivoPorRangos(file) 
+                 ? LectorMapeado.procesarArchivoVentasEnRangos(file.toPath(), catalogo, parcial, poolRangos)
+                 : LectorMapeado.procesarArchivoVentas(file.toPath(), catalogo, parcial);
+     } else if (configuracion.isMapeado()) {
+         lectorTexto = (file, parcial) -> 
+                 LectorMapeado.procesarArchivoVentas(file.toPath(), catalogo, parcial);
+     } else {
+         lectorTexto = (file, parcial) -> 
+                 procesarArchivoVentas(file.getPath(), catalogo, parcial);
+     }
+     // Los archivos .vbin se leen siempre con su propio lector, y los comprimidos como flujo de texto
+     ProcesadorArchivo lector = (file, parcial) -> {
+         if (ArchivoVentasBinario.esArchivoBinario(file.getName())) {
+             return ArchivoVentasBinario.procesarArchivoVentas(file.toPath(), catalogo, parcial);
+         } else if (Descompresion.esComprimido(file.getName())) {
+             return procesarArchivoVentas(file.getPath(), catalogo, parcial);
+         }
+         return lectorTexto.procesar(file, parcial);
+     };
+     
+     // Cada archivo registra su latencia, bytes y líneas una sola vez al terminar.
+     // Con un registro de contenidos, las ventas de cada archivo de texto quedan
+     // pendientes hasta saber si su contenido ya estaba acumulado; acumular()
+     // las confirma en el orden de la lista
+     MetricasPipeline metricas = MetricasPipeline.global();
+     RegistroContenidos contenidos = configuracion.getContenidos();
+     if (contenidos != null) {
+         // Entre archivos con el mismo contenido se acumula el primero por nombre
+         files = files.clone();
+         Arrays.sort(files, Comparator.comparing(File::getName));
+     }
+     ProcesadorArchivo procesador = (file, parcial) -> {
+         long inicio = System.nanoTime();
+         long lineas;
+         if (contenidos != null && !ArchivoVentasBinario.esArchivoBinario(file.getName())) {
+             parcial.iniciarArchivoPendiente(file);
+             lineas = lector.procesar(file, parcial);
+         } else {
+             parcial.iniciarArchivo(file);
+             lineas = lector.procesar(file, parcial);
+         }
+         metricas.registrarArchivo(file.length(), lineas, System.nanoTime() - inicio);
+         return lineas;
+     };
+     
+     CuboVentas cubo = configuracion.getCubo();
+     CuboVentas.Ventana tipoVentana = cubo != null ? cubo.getTipoVentana() : null;
+     
+     long inicioIngesta = System.nanoTime();
+     AgregadosIndexados resultado;
+     if (configuracion.isPipeline()) {
+         // El pipeline analiza texto; los archivos binarios se acumulan aparte y se combinan
+         List<File> textos = new ArrayList<>();
+         List<File> binarios = new ArrayList<>();
+         for (File file : files) {
+             (ArchivoVentasBinario.esArchivoBinario(file.getName()) ? binarios : textos).add(file);
+         }
+         resultado = new PipelineIngesta(catalogo, configuracion.getParalelismo(), tipoVentana, 
+                 contenidos).procesar(textos.toArray(new File[0]));
+         if (!binarios.isEmpty()) {
+             resultado.combinar(acumular(binarios.toArray(new File[0]), catalogo, tipoVentana, procesador, 
+                     contenidos, configuracion.getParalelismo()));
+         }
+     } else if (poolRangos != null) {
+         // Cada archivo grande ya usa todos los hilos, así que se procesan uno tras otro
+         List<File> grandes = new ArrayList<>();
+         List<File> resto = new ArrayList<>();
+         for (File file : files) {
+             (esArchivoPorRangos(file) ? grandes : resto).add(file);
+         }
+         try {
+             resultado = acumular(resto.toArray(new File[0]), catalogo, tipoVentana, procesador, 
+                     contenidos, configuracion.getParalelismo());
+             if (!grandes.isEmpty()) {
+                 resultado.combinar(acumular(grandes.toArray(new File[0]), catalogo, tipoVentana, procesador, 
+                         contenidos, 1));
+             }
+         } finally {
+             poolRangos.shutdown();
+         }
+     } else {
+         resultado = acumular(files, catalogo, tipoVentana, procesador, contenidos, 
+                 configuracion.getParalelismo());
+     }
+     
+     resultado.aplicar();
+     if (cubo != null) {
+         cubo.combinar(resultado.getCubo());
+     }
+     metricas.registrarFase(MetricasPipeline.Fase.INGESTA, System.nanoTime() - inicioIngesta);
+ }
+ 
+ /**
+  * Acumula las ventas de los archivos, en secuencia o en paralelo. Con un
+  * registro de contenidos, los archivos pendientes se confirman en el orden
+  * de la lista, así que entre dos archivos con el mismo contenido se acumula
+  * siempre el primero.
+  * 
+  * @param files Archivos de ventas
+  * @param catalogo Catálogo indexado de productos y vendedores
+  * @param tipoVentana Ventanas del cubo de ventas, o null para no llenar un cubo
+  * @param procesador Procesador de cada archivo
+  * @param contenidos Registro de contenidos ya acumulados, o null si no se deduplica
+  * @param paralelismo Cantidad de hilos a usar (1 para procesamiento secuencial)
+  * @return Acumulado de las ventas de todos los archivos
+  * @throws IOException Si ocurre un error de lectura
+  */
+ private static AgregadosIndexados acumular(File[] files, CatalogoIndexado catalogo, 
+                                            CuboVentas.Ventana tipoVentana, 
+                                            ProcesadorArchivo procesador, RegistroContenidos contenidos, 
+                                            int paralelismo) throws IOException {
+     if (paralelismo == 1 || files.length <= 1) {
+         AgregadosIndexados resultado = new AgregadosIndexados(catalogo, tipoVentana);
+         for (File file : files) {
+             procesador.procesar(file, resultado);
+             if (contenidos != null) {
+                 confirmarArchivo(resultado, resultado.tomarPendiente(), contenidos);
+             }
+         }
+         return resultado;
+     }
+     return procesarEnParalelo(files, catalogo, tipoVentana, procesador, contenidos, paralelismo);
+ }
+ 
+ /**
+  * Confirma un archivo pendiente en un acumulado y cuenta como rechazo el
+  * archivo si su contenido ya estaba registrado.
+  * 
+  * @param parcial Acumulado donde se suman las ventas del archivo
+  * @param pendiente Archivo pendiente, o null si no hay uno
+  * @param contenidos Registro de contenidos ya acumulados
+  */
+ static void confirmarArchivo(AgregadosIndexados parcial, AgregadosIndexados.ArchivoPendiente pendiente, 
+                              RegistroContenidos contenidos) {
+     if (pendiente != null && !parcial.confirmarArchivo(pendiente, contenidos)) {
+         RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.ARCHIVO_DUPLICADO, 
+                 pendiente.getArchivo().getPath(), Long.toHexString(pendiente.getHash().getValue()));
+     }
+ }
+ 
+ /**
+  * Indica si un archivo de ventas se puede repartir por rangos: de texto,
+  * sin comprimir y de LectorMapeado.ARCHIVO_POR_RANGOS bytes o más.
+  * 
+  * @param file Archivo de ventas
+  * @return true si conviene procesarlo con varios hilos
+  */
+ private static boolean esArchivoPorRangos(File file) {
+     return !ArchivoVentasBinario.esArchivoBinario(file.getName()) && !Descompresion.esComprimido(file.getName())
+             && file.length() >= LectorMapeado.ARCHIVO_POR_RANGOS;
+ }
+ 
+ /**
+  * Lista los archivos de ventas de una carpeta, excluyendo los archivos
+  * de productos y vendedores y los de otros fragmentos.
+  * 
+  * @param carpeta Carpeta donde se encuentran los archivos
+  * @param configuracion Opciones de procesamiento
+  * @return Archivos de ventas encontrados, o null si la carpeta no existe
+  */
+ static File[] listarArchivosVentas(String carpeta, ConfiguracionIngesta configuracion) {
+     File folder = new File(carpeta);
+     return folder.listFiles((dir, name) -> esArchivoVentas(name, configuracion));
+ }
+ 
+ /**
+  * Indica si un nombre de archivo corresponde a un archivo de ventas, de
+  * texto o binario.
+  * 
+  * @param name Nombre del archivo
+  * @return true si es un archivo de ventas
+  */
+ static boolean esArchivoVentas(String name) {
+     return esArchivoVentasTexto(name) || ArchivoVentasBinario.esArchivoBinario(name);
+ }
+ 
+ /**
+  * Indica si un nombre de archivo corresponde a un archivo de ventas del
+  * fragmento de la configuración.
+  * 
+  * @param name Nombre del archivo
+  * @param configuracion Opciones de procesamiento
+  * @return true si es un archivo de ventas que se debe procesar
+  */
+ static boolean esArchivoVentas(String name, ConfiguracionIngesta configuracion) {
+     return esArchivoVentas(name) && configuracion.getFragmento().contiene(name);
+ }
+ 
+ /**
+  * Indica si un nombre de archivo corresponde a un archivo de ventas de
+  * texto, sin comprimir o comprimido (.txt.gz, .txt.zst).
+  * 
+  * @param name Nombre del archivo
+  * @return true si es un archivo de ventas de texto
+  */
+ public static boolean esArchivoVentasTexto(String name) {
+     String sinCompresion = Descompresion.sinCompresion(name);
+     return sinCompresion.endsWith(".txt") && 
+            !sinCompresion.equals("vendedores.txt") && 
+            !sinCompresion.equals("productos.txt");
+ }
+ 
+ /**
+  * Procesa los archivos de ventas con el paralelismo indicado.
+  * 
+  * Se lanzan paralelismo tareas (o una por archivo si hay menos archivos),
+  * cada una con un único resultado parcial del tamaño del catálogo, que
+  * toman el siguiente archivo de un índice compartido. Así la memoria crece
+  * con paralelismo y no con la cantidad de procesadores de la máquina. Los
+  * parciales se combinan al final en el orden de las tareas. Con un
+  * registro de contenidos, cada archivo leído se entrega a una
+  * ConfirmacionOrdenada, que lo confirma cuando ya se leyeron los anteriores.
+  * 
+  * @param files Archivos de ventas
+  * @param catalogo Catálogo indexado de productos y vendedores
+  * @param tipoVentana Ventanas del cubo de ventas, o null para no llenar un cubo
+  * @param procesador Procesador de cada archivo
+  * @param contenidos Registro de contenidos ya acumulados, o null si no se deduplica
+  * @param paralelismo Cantidad de hilos a usar
+  * @return Resultado combinado de todos los hilos
+  * @throws IOException Si ocurre un error de lectura
+  */
+ private static AgregadosIndexados procesarEnParalelo(File[] files, CatalogoIndexado catalogo, 
+                                                      CuboVentas.Ventana tipoVentana, 
+                                                      ProcesadorArchivo procesador, 
+                                                      RegistroContenidos contenidos, 
+                                                      int paralelismo) throws IOException {
+     int hilos = Math.min(paralelismo, files.length);
+     AtomicInteger siguiente = new AtomicInteger();
+     ConfirmacionOrdenada confirmacion = contenidos != null 
+             ? new ConfirmacionOrdenada(contenidos, files.length, PENDIENTES_POR_HILO * hilos) : null;
+     ExecutorService executor = Executors.newFixedThreadPool(hilos);
+     try {
+         List<Future<AgregadosIndexados>> parciales = new ArrayList<>(hilos);
+         for (int h = 0; h < hilos; h++) {
+             parciales.add(executor.submit(() -> {
+                 AgregadosIndexados parcial = new AgregadosIndexados(catalogo, tipoVentana);
+                 int i;
+                 while ((i = siguiente.getAndIncrement()) < files.length) {
+                     try {
+                         procesador.procesar(files[i], parcial);
+                         if (confirmacion != null) {
+                             confirmacion.entregar(i, parcial.tomarPendiente(), parcial);
+                         }
+                     } catch (IOException | InterruptedException | RuntimeException e) {
+                         // Los demás hilos dejan de tomar archivos y de esperar a este
+                         siguiente.set(files.length);
+                         if (confirmacion != null) {
+                             confirmacion.cancelar();
+                         }
+                         throw e;
+                     }
+                 }
+                 return parcial;
+             }));
+         }
+         AgregadosIndexados resultado = parciales.get(0).get();
+         for (int h = 1; h < hilos; h++) {
+             resultado.combinar(parciales.get(h).get());
+         }
+         return resultado;
+     } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IOException("Procesamiento de ventas interrumpido", e);
+     } catch (ExecutionException e) {
+         if (e.getCause() instanceof IOException) {
+             throw (IOException) e.getCause();
+         }
+         throw new IOException("Error procesando archivos de ventas", e.getCause());
+     } finally {
+         executor.shutdownNow();
+     }
+ }
+ 
+ /**
+  * Procesa un archivo de ventas individual.
+  * 
+  * Las líneas de venta se analizan sin dividirlas: el ID del producto se
+  * busca en el índice denso directamente sobre la línea y la cantidad se
+  * convierte sin crear subcadenas.
+  * 
+  * @param filePath Ruta del archivo de ventas
+  * @param catalogo Catálogo indexado de productos y vendedores
+  * @param resultado Acumulado donde se registran las ventas
+  * @return Cantidad de líneas de venta leídas
   * @throws IOException Si ocurre un error de lectura
   */
- private static void procesarArchivoVentas(String filePath, Map<String, Vendedor> vendedores, 
-                                          Map<String, Producto> productos) throws IOException {
-     try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
+ private static long procesarArchivoVentas(String filePath, CatalogoIndexado catalogo, 
+                                          AgregadosIndexados resultado) throws IOException {
+     try (BufferedReader reader = Descompresion.abrirTexto(Paths.get(filePath), resultado.getHashContenido())) {
          String primeraLinea = reader.readLine();
          if (primeraLinea == null) {
-             return;
+             return 0;
          }
          
          String[] vendedorInfo = primeraLinea.split(";");
          if (vendedorInfo.length < 2) {
-             System.out.println("Formato incorrecto en archivo: " + filePath);
-             return;
+             RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.FORMATO_INCORRECTO, filePath, primeraLinea);
+             return 0;
          }
          
          String numDoc = vendedorInfo[1];
-         Vendedor vendedor = vendedores.get(numDoc);
+         int vendedor = catalogo.getIndiceVendedores().buscar(numDoc);
          
-         if (vendedor == null) {
-             System.out.println("Vendedor no encontrado: " + numDoc + " en archivo: " + filePath);
-             return;
+         if (vendedor == IndiceIds.NO_ENCONTRADO) {
+             RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.VENDEDOR_NO_ENCONTRADO, filePath, numDoc);
+             return 0;
          }
+         resultado.aceptarCabecera();
          
+         IndiceIds indiceProductos = catalogo.getIndiceProductos();
+         RegistroRechazos rechazos = RegistroRechazos.global();
+         long lineas = 0;
          String line;
          while ((line = reader.readLine()) != null) {
-             String[] parts = line.split(";");
-             if (parts.length >= 2) {
-                 String idProducto = parts[0];
-                 int cantidad = Integer.parseInt(parts[1]);
-                 
-                 Producto producto = productos.get(idProducto);
-                 if (producto != null) {
-                     producto.incrementarCantidadVendida(cantidad);
-                     vendedor.incrementarVentas(cantidad * producto.getPrecioUnitario());
-                 } else {
-                     System.out.println("Producto no encontrado: " + idProducto + " en archivo: " + filePath);
+             lineas++;
+             int finId = line.indexOf(';');
+             if (finId >= 0) {
+                 int finCantidad = line.indexOf(';', finId + 1);
+                 if (finCantidad < 0) {
+                     finCantidad = line.length();
+                 }
+                 if (finCantidad > finId + 1) {
+                     int cantidad;
+                     try {
+                         cantidad = Integer.parseInt(line, finId + 1, finCantidad, 10);
+                     } catch (NumberFormatException e) {
+                         rechazos.rechazar(RegistroRechazos.Categoria.CANTIDAD_INVALIDA, filePath, line);
+                         continue;
+                     }
+                     
+                     int producto = indiceProductos.buscar(line, 0, finId);
+                     if (producto != IndiceIds.NO_ENCONTRADO) {
+                         resultado.registrar(vendedor, producto, cantidad);
+                     } else {
+                         rechazos.rechazar(RegistroRechazos.Categoria.PRODUCTO_NO_ENCONTRADO, filePath, 
+                                 line.substring(0, finId));
+                     }
                  }
              }
          }
+         return lineas;
      }
  }
  /**
@@ -146,17 +620,38 @@ public class UtilsFile {
   * @throws IOException Si ocurre un error de escritura
   */
  public static void generarReporteVendedores(Collection<Vendedor> vendedores, String outputPath) throws IOException {
-     List<Vendedor> listaVendedores = new ArrayList<>(vendedores);
-     
-     // Ordenar por total de ventas (de mayor a menor)
-     listaVendedores.sort((v1, v2) -> Double.compare(v2.getTotalVentas(), v1.getTotalVentas()));
+     generarReporteVendedores(vendedores, outputPath, 0);
+ }
+ 
+ /**
+  * Genera el reporte con los primeros vendedores por total de ventas.
+  * 
+  * @param vendedores Lista de vendedores
+  * @param outputPath Ruta del archivo de salida
+  * @param topK Cantidad de vendedores a incluir (0 para incluirlos todos)
+  * @throws IOException Si ocurre un error de escritura
+  */
+ public static void generarReporteVendedores(Collection<Vendedor> vendedores, String outputPath, 
+                                             int topK) throws IOException {
+     MetricasPipeline metricas = MetricasPipeline.global();
+     long inicio = System.nanoTime();
      
-     try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(outputPath))) {
-         writer.write("Nombre;TotalVentas\n");
-         for (Vendedor vendedor : listaVendedores) {
-             writer.write(vendedor.toReportCSV() + "\n");
-         }
+     // Ordenar por total de ventas (de mayor a menor), leyendo cada total una sola vez
+     Vendedor[] lista = vendedores.toArray(new Vendedor[0]);
+     long[] ventas = new long[lista.length];
+     for (int i = 0; i < lista.length; i++) {
+         ventas[i] = lista[i].getTotalVentasCentavos();
      }
+     int[] orden = ordenarPorValor(ventas, topK);
+     
+     long finOrden = System.nanoTime();
+     metricas.registrarFase(MetricasPipeline.Fase.ORDENAMIENTO, finOrden - inicio);
+     
+     // Cada fila se codifica en el buffer del escritor, igual que Vendedor.toReportCSV
+     escribirReporte(Paths.get(outputPath), "Nombre;TotalVentas", orden, (writer, i) ->
+             writer.escribir(lista[i].getNombres()).escribir(' ').escribir(lista[i].getApellidos())
+                   .escribir(';').escribirCentavos(ventas[i]).nuevaLinea());
+     metricas.registrarFase(MetricasPipeline.Fase.ESCRITURA, System.nanoTime() - finOrden);
  }
  
  /**
@@ -167,16 +662,356 @@ public class UtilsFile {
   * @throws IOException Si ocurre un error de escritura
   */
  public static void generarReporteProductos(Collection<Producto> productos, String outputPath) throws IOException {
-     List<Producto> listaProductos = new ArrayList<>(productos);
+     generarReporteProductos(productos, outputPath, 0);
+ }
+ 
+ /**
+  * Genera el reporte con los primeros productos por cantidad vendida.
+  * 
+  * @param productos Lista de productos
+  * @param outputPath Ruta del archivo de salida
+  * @param topK Cantidad de productos a incluir (0 para incluirlos todos)
+  * @throws IOException Si ocurre un error de escritura
+  */
+ public static void generarReporteProductos(Collection<Producto> productos, String outputPath, 
+                                            int topK) throws IOException {
+     MetricasPipeline metricas = MetricasPipeline.global();
+     long inicio = System.nanoTime();
+     
+     // Ordenar por cantidad vendida (de mayor a menor), leyendo cada cantidad una sola vez
+     Producto[] lista = productos.toArray(new Producto[0]);
+     long[] cantidades = new long[lista.length];
+     for (int i = 0; i < lista.length; i++) {
+         cantidades[i] = lista[i].getCantidadVendida();
+     }
+     int[] orden = ordenarPorValor(cantidades, topK);
+     
+     long finOrden = System.nanoTime();
+     metricas.registrarFase(MetricasPipeline.Fase.ORDENAMIENTO, finOrden - inicio);
+     
+     // Cada fila se codifica en el buffer del escritor, igual que Producto.toReportCSV
+     escribirReporte(Paths.get(outputPath), "Nombre;Precio;CantidadVendida", orden, (writer, i) ->
+             writer.escribir(lista[i].getNombre()).escribir(';').escribirDecimal(lista[i].getPrecioCentavos())
+                   .escribir(';').escribirEntero(cantidades[i]).nuevaLinea());
+     metricas.registrarFase(MetricasPipeline.Fase.ESCRITURA, System.nanoTime() - finOrden);
+ }
+ 
+ /**
+  * Genera el reporte de vendedores de un catálogo perezoso. Solo se leen
+  * del archivo de vendedores los nombres de las filas que se escriben; a
+  * igual total, los vendedores quedan en el orden del archivo.
+  * 
+  * @param catalogo Catálogo con los totales de ventas
+  * @param outputPath Ruta del archivo de salida
+  * @param topK Cantidad de vendedores a incluir (0 para incluirlos todos)
+  * @throws IOException Si ocurre un error de escritura
+  */
+ public static void generarReporteVendedores(CatalogoPerezoso catalogo, String outputPath, 
+                                             int topK) throws IOException {
+     MetricasPipeline metricas = MetricasPipeline.global();
+     long inicio = System.nanoTime();
+     
+     long[] ventas = new long[catalogo.getNumVendedores()];
+     for (int i = 0; i < ventas.length; i++) {
+         ventas[i] = catalogo.getVentasCentavos(i);
+     }
+     int[] orden = ordenarPorValor(ventas, topK);
+     
+     long finOrden = System.nanoTime();
+     metricas.registrarFase(MetricasPipeline.Fase.ORDENAMIENTO, finOrden - inicio);
      
-     // Ordenar por cantidad vendida (de mayor a menor)
-     listaProductos.sort((p1, p2) -> Integer.compare(p2.getCantidadVendida(), p1.getCantidadVendida()));
+     escribirReporte(Paths.get(outputPath), "Nombre;TotalVentas", orden, (writer, i) ->
+             writer.escribir(catalogo.getNombreVendedor(i)).escribir(';').escribirCentavos(ventas[i]).nuevaLinea());
+     metricas.registrarFase(MetricasPipeline.Fase.ESCRITURA, System.nanoTime() - finOrden);
+ }
+ 
+ /**
+  * Genera el reporte de productos de un catálogo perezoso. Solo se leen del
+  * archivo de productos los nombres de las filas que se escriben; a igual
+  * cantidad, los productos quedan en el orden del archivo.
+  * 
+  * @param catalogo Catálogo con las cantidades vendidas
+  * @param outputPath Ruta del archivo de salida
+  * @param topK Cantidad de productos a incluir (0 para incluirlos todos)
+  * @throws IOException Si ocurre un error de escritura
+  */
+ public static void generarReporteProductos(CatalogoPerezoso catalogo, String outputPath, 
+                                            int topK) throws IOException {
+     MetricasPipeline metricas = MetricasPipeline.global();
+     long inicio = System.nanoTime();
+     
+     long[] cantidades = new long[catalogo.getNumProductos()];
+     for (int i = 0; i < cantidades.length; i++) {
+         cantidades[i] = catalogo.getCantidadVendida(i);
+     }
+     int[] orden = ordenarPorValor(cantidades, topK);
      
-     try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(outputPath))) {
-         writer.write("Nombre;Precio;CantidadVendida\n");
-         for (Producto producto : listaProductos) {
-             writer.write(producto.toReportCSV() + "\n");
+     long finOrden = System.nanoTime();
+     metricas.registrarFase(MetricasPipeline.Fase.ORDENAMIENTO, finOrden - inicio);
+     
+     escribirReporte(Paths.get(outputPath), "Nombre;Precio;CantidadVendida", orden, (writer, i) ->
+             writer.escribir(catalogo.getNombreProducto(i)).escribir(';').escribirDecimal(catalogo.getPrecioCentavos(i))
+                   .escribir(';').escribirEntero(cantidades[i]).nuevaLinea());
+     metricas.registrarFase(MetricasPipeline.Fase.ESCRITURA, System.nanoTime() - finOrden);
+ }
+ 
+ /**
+  * Ordena los índices 0..n-1 por valor de mayor a menor; a igual valor, el
+  * de menor índice va primero, igual que al ordenar la colección con un sort
+  * estable.
+  * 
+  * Para el reporte completo cada elemento se empaqueta en un long con la
+  * distancia de su valor al máximo en los bits altos y su índice en los
+  * bajos, y el arreglo se ordena con Arrays.parallelSort, que reparte el
+  * trabajo entre los procesadores sin comparadores ni objetos por elemento.
+  * Si el rango de valores no cabe junto al índice se usa ordenarIndices.
+  * 
+  * @param valores Valor de cada elemento
+  * @param topK Cantidad de elementos a seleccionar (0 para todos)
+  * @return Índices ordenados
+  */
+ static int[] ordenarPorValor(long[] valores, int topK) {
+     int n = valores.length;
+     if (n == 0) {
+         return new int[0];
+     }
+     long minimo = valores[0];
+     long maximo = valores[0];
+     for (long valor : valores) {
+         minimo = Math.min(minimo, valor);
+         maximo = Math.max(maximo, valor);
+     }
+     int bitsIndice = 32 - Integer.numberOfLeadingZeros(Math.max(1, n - 1));
+     // Si maximo - minimo desborda el resultado es negativo
+     long rango = maximo - minimo;
+     if ((topK > 0 && topK < n) || rango < 0 || rango >= 1L << (63 - bitsIndice)) {
+         return ordenarIndices(n, (a, b) -> Long.compare(valores[b], valores[a]), topK);
+     }
+     long[] claves = new long[n];
+     for (int i = 0; i < n; i++) {
+         claves[i] = (maximo - valores[i]) << bitsIndice | i;
+     }
+     Arrays.parallelSort(claves);
+     long mascara = (1L << bitsIndice) - 1;
+     int[] orden = new int[n];
+     for (int i = 0; i < n; i++) {
+         orden[i] = (int) (claves[i] & mascara);
+     }
+     return orden;
+ }
+ 
+ /**
+  * Escribe un reporte con su cabecera y una fila por índice, en el orden
+  * dado. Con más de un bloque de filas y más de un procesador, los bloques
+  * se codifican en memoria en paralelo y se escriben en orden a medida que
+  * terminan; como mucho hay dos bloques por hilo en curso, así que la
+  * memoria no crece con el tamaño del reporte.
+  * 
+  * @param path Ruta del archivo de salida
+  * @param cabecera Primera línea del reporte
+  * @param orden Índices de las filas, en orden
+  * @param fila Escritor de la fila de cada índice
+  * @throws IOException Si ocurre un error de escritura
+  */
+ private static void escribirReporte(Path path, String cabecera, int[] orden, 
+                                     EscritorFila fila) throws IOException {
+     int bloques = (orden.length + FILAS_POR_BLOQUE - 1) / FILAS_POR_BLOQUE;
+     int hilos = Math.min(Runtime.getRuntime().availableProcessors(), bloques);
+     try (EscritorCSV writer = new EscritorCSV(path)) {
+         writer.escribir(cabecera).nuevaLinea();
+         if (hilos <= 1) {
+             for (int i : orden) {
+                 fila.escribir(writer, i);
+             }
+             return;
+         }
+         ExecutorService executor = Executors.newFixedThreadPool(hilos);
+         try {
+             Deque<Future<EscritorCSV>> pendientes = new ArrayDeque<>();
+             int siguiente = 0;
+             while (siguiente < bloques || !pendientes.isEmpty()) {
+                 while (siguiente < bloques && pendientes.size() < 2 * hilos) {
+                     int desde = siguiente * FILAS_POR_BLOQUE;
+                     int hasta = Math.min(desde + FILAS_POR_BLOQUE, orden.length);
+                     pendientes.add(executor.submit(() -> {
+                         EscritorCSV bloque = new EscritorCSV();
+                         for (int k = desde; k < hasta; k++) {
+                             fila.escribir(bloque, orden[k]);
+                         }
+                         return bloque;
+                     }));
+                     siguiente++;
+                 }
+                 writer.escribirBloque(pendientes.poll().get());
+             }
+         } catch (InterruptedException e) {
+             Thread.currentThread().interrupt();
+             throw new IOException("Escritura del reporte interrumpida", e);
+         } catch (ExecutionException e) {
+             if (e.getCause() instanceof IOException) {
+                 throw (IOException) e.getCause();
+             }
+             throw new IOException("Error escribiendo el reporte", e.getCause());
+         } finally {
+             executor.shutdownNow();
+         }
+     }
+ }
+ 
+ /**
+  * Ordena los índices 0..n-1 con el comparador indicado, sin crear un
+  * objeto por elemento. Igual que ordenar(), con topK menor que n se
+  * seleccionan los primeros topK con un montículo acotado, y los empates
+  * quedan en orden de índice.
+  * 
+  * @param n Cantidad de elementos
+  * @param comparador Comparador que ubica primero a los mejores elementos
+  * @param topK Cantidad de elementos a seleccionar (0 para todos)
+  * @return Índices ordenados
+  */
+ static int[] ordenarIndices(int n, ComparadorIndices comparador, int topK) {
+     // Orden total: a igual valor, el de menor índice va primero
+     ComparadorIndices orden = (a, b) -> {
+         int c = comparador.comparar(a, b);
+         return c != 0 ? c : Integer.compare(a, b);
+     };
+     int[] indices;
+     if (topK <= 0 || topK >= n) {
+         indices = new int[n];
+         for (int i = 0; i < n; i++) {
+             indices[i] = i;
+         }
+     } else {
+         // Montículo en un arreglo; la raíz es el peor de los seleccionados
+         indices = new int[topK];
+         for (int i = 0; i < n; i++) {
+             if (i < topK) {
+                 indices[i] = i;
+                 subir(indices, i, orden);
+             } else if (orden.comparar(i, indices[0]) < 0) {
+                 indices[0] = i;
+                 bajar(indices, 0, topK, orden);
+             }
+         }
+     }
+     ordenarMezcla(indices, new int[indices.length], 0, indices.length, orden);
+     return indices;
+ }
+ 
+ private static void subir(int[] monticulo, int posicion, ComparadorIndices orden) {
+     while (posicion > 0) {
+         int padre = (posicion - 1) / 2;
+         if (orden.comparar(monticulo[posicion], monticulo[padre]) <= 0) {
+             return;
+         }
+         intercambiar(monticulo, posicion, padre);
+         posicion = padre;
+     }
+ }
+ 
+ private static void bajar(int[] monticulo, int posicion, int tamano, ComparadorIndices orden) {
+     while (true) {
+         int peor = posicion;
+         for (int hijo = 2 * posicion + 1; hijo <= 2 * posicion + 2 && hijo < tamano; hijo++) {
+             if (orden.comparar(monticulo[hijo], monticulo[peor]) > 0) {
+                 peor = hijo;
+             }
+         }
+         if (peor == posicion) {
+             return;
+         }
+         intercambiar(monticulo, posicion, peor);
+         posicion = peor;
+     }
+ }
+ 
+ private static void intercambiar(int[] arreglo, int i, int j) {
+     int temporal = arreglo[i];
+     arreglo[i] = arreglo[j];
+     arreglo[j] = temporal;
+ }
+ 
+ /**
+  * Ordena indices[desde, hasta) por mezcla, usando auxiliar como espacio temporal.
+  */
+ private static void ordenarMezcla(int[] indices, int[] auxiliar, int desde, int hasta, ComparadorIndices orden) {
+     if (hasta - desde < 2) {
+         return;
+     }
+     int medio = (desde + hasta) >>> 1;
+     ordenarMezcla(indices, auxiliar, desde, medio, orden);
+     ordenarMezcla(indices, auxiliar, medio, hasta, orden);
+     if (orden.comparar(indices[medio - 1], indices[medio]) <= 0) {
+         return;
+     }
+     System.arraycopy(indices, desde, auxiliar, desde, hasta - desde);
+     int i = desde;
+     int j = medio;
+     for (int k = desde; k < hasta; k++) {
+         if (j >= hasta || (i < medio && orden.comparar(auxiliar[i], auxiliar[j]) <= 0)) {
+             indices[k] = auxiliar[i++];
+         } else {
+             indices[k] = auxiliar[j++];
+         }
+     }
+ }
+ 
+ /**
+  * Ordena los elementos con el comparador indicado. Si topK es menor que la
+  * cantidad de elementos, solo se seleccionan los primeros topK usando un
+  * montículo acotado: O(n log k) en tiempo y O(k) en memoria adicional.
+  * 
+  * En ambos casos los empates conservan el orden de la colección, por lo
+  * que el resultado coincide con las primeras filas del reporte completo.
+  * 
+  * @param elementos Elementos a ordenar
+  * @param comparador Comparador que ubica primero a los mejores elementos
+  * @param topK Cantidad de elementos a seleccionar (0 para todos)
+  * @return Lista ordenada
+  */
+ static <T> List<T> ordenar(Collection<T> elementos, Comparator<T> comparador, int topK) {
+     if (topK <= 0 || topK >= elementos.size()) {
+         List<T> lista = new ArrayList<>(elementos);
+         lista.sort(comparador);
+         return lista;
+     }
+     
+     // Orden total: a igual valor, el que aparece antes en la colección va primero
+     Comparator<Candidato<T>> orden = Comparator.<Candidato<T>, T>comparing(c -> c.elemento, comparador)
+             .thenComparingInt(c -> c.posicion);
+     
+     // La raíz del montículo es el peor de los seleccionados
+     PriorityQueue<Candidato<T>> monticulo = new PriorityQueue<>(topK, orden.reversed());
+     int posicion = 0;
+     for (T elemento : elementos) {
+         if (monticulo.size() < topK) {
+             monticulo.add(new Candidato<>(elemento, posicion));
+         } else if (comparador.compare(elemento, monticulo.peek().elemento) < 0) {
+             monticulo.poll();
+             monticulo.add(new Candidato<>(elemento, posicion));
          }
+         posicion++;
+     }
+     
+     List<Candidato<T>> seleccionados = new ArrayList<>(monticulo);
+     seleccionados.sort(orden);
+     List<T> lista = new ArrayList<>(seleccionados.size());
+     for (Candidato<T> candidato : seleccionados) {
+         lista.add(candidato.elemento);
+     }
+     return lista;
+ }
+ 
+ /**
+  * Elemento seleccionado junto con su posición en la colección original.
+  */
+ private static class Candidato<T> {
+     private final T elemento;
+     private final int posicion;
+     
+     Candidato(T elemento, int posicion) {
+         this.elemento = elemento;
+         this.posicion = posicion;
      }
  }
 }
\ No newline at end of file
@@ -0,0 +1,309 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import modelo.Producto;
+import modelo.Vendedor;
+
+/**
+* Modo de ejecución continuo que vigila la carpeta de archivos de ventas.
+*
+* Al iniciar procesa los archivos que aún no están en el registro; luego
+* usa un WatchService para detectar archivos nuevos, acumula solo esos
+* archivos sobre los mapas de productos y vendedores y vuelve a generar los
+* dos reportes CSV.
+*
+* Si se indica una instantánea, se actualiza después de cada lote para que
+* un reinicio continúe desde ese punto.
+*
+* Si la configuración procesa un fragmento de los archivos, después de cada
+* lote se guarda el parcial del fragmento en lugar de los reportes, que
+* solo salen de fusionar todos los parciales.
+*
+* Un archivo se procesa cuando su tamaño no cambia entre dos revisiones
+* consecutivas, para no leer archivos que todavía se están copiando.
+*/
+public class VigilanteVentas {
+ /** Intervalo entre revisiones de archivos pendientes. */
+ private static final long INTERVALO_MS = 500;
+
+ private final Path carpeta;
+ private final Map<String, Vendedor> vendedores;
+ private final Map<String, Producto> productos;
+ private final ConfiguracionIngesta configuracion;
+ private final CatalogoIndexado catalogo;
+ private final RegistroArchivos registro;
+ private final String reporteVendedoresPath;
+ private final String reporteProductosPath;
+
+ /** Ruta de la instantánea a actualizar después de cada lote, o null. */
+ private Path instantanea;
+
+ /** Ruta del parcial que se guarda en lugar de los reportes al vigilar un fragmento. */
+ private Path parcial;
+
+ /** Ruta del registro de contenidos a guardar junto con la instantánea, o null. */
+ private Path contenidos;
+
+ /** Cantidad de filas de cada reporte (0 para todas). */
+ private int topK;
+
+ /** Ruta donde se exportan las métricas después de cada lote, o null. */
+ private Path metricas;
+
+ /** Servidor donde se publican los totales después de cada lote, o null. */
+ private ServidorConsultas servidor;
+
+ /** Carpeta donde se exporta el cubo de ventas después de cada lote, o null. */
+ private Path analisis;
+
+ /** Total de rechazos mostrado en el último resumen. */
+ private long rechazosMostrados;
+
+ /** Archivos detectados que aún no se procesan, con el último tamaño observado. */
+ private final Map<Path, Long> pendientes = new LinkedHashMap<>();
+
+ /**
+  * Constructor de la clase VigilanteVentas.
+  *
+  * @param carpeta Carpeta donde se encuentran los archivos de ventas
+  * @param vendedores Mapa de vendedores
+  * @param productos Mapa de productos
+  * @param configuracion Opciones de procesamiento
+  * @param registro Registro de archivos ya procesados
+  * @param reporteVendedoresPath Ruta del reporte de vendedores
+  * @param reporteProductosPath Ruta del reporte de productos
+  */
+ public VigilanteVentas(String carpeta, Map<String, Vendedor> vendedores, Map<String, Producto> productos,
+                        ConfiguracionIngesta configuracion, RegistroArchivos registro,
+                        String reporteVendedoresPath, String reporteProductosPath) {
+     this.carpeta = Paths.get(carpeta);
+     this.vendedores = vendedores;
+     this.productos = productos;
+     this.configuracion = configuracion;
+     this.catalogo = new CatalogoIndexado(productos, vendedores);
+     this.registro = registro;
+     this.reporteVendedoresPath = reporteVendedoresPath;
+     this.reporteProductosPath = reporteProductosPath;
+ }
+
+ /**
+  * Establece la instantánea que se guarda después de procesar cada lote de
+  * archivos nuevos.
+  *
+  * @param instantanea Ruta de la instantánea, o null para no guardarla
+  */
+ public void setInstantanea(Path instantanea) {
+     this.instantanea = instantanea;
+ }
+
+ /**
+  * Establece dónde se guarda el parcial de un fragmento después de procesar
+  * cada lote de archivos nuevos.
+  *
+  * @param parcial Ruta del parcial; se usa solo si la configuración tiene un fragmento
+  */
+ public void setParcial(Path parcial) {
+     this.parcial = parcial;
+ }
+
+ /**
+  * Establece dónde se guarda el registro de contenidos de la configuración
+  * después de guardar la instantánea de cada lote.
+  *
+  * @param contenidos Ruta del registro, o null para no guardarlo
+  */
+ public void setContenidos(Path contenidos) {
+     this.contenidos = contenidos;
+ }
+
+ /**
+  * Establece la cantidad de filas de cada reporte.
+  *
+  * @param topK Cantidad de filas (0 para incluir todas)
+  */
+ public void setTopK(int topK) {
+     this.topK = topK;
+ }
+
+ /**
+  * Establece el archivo donde se exportan las métricas después de procesar
+  * cada lote de archivos nuevos.
+  *
+  * @param metricas Ruta del archivo (JSON, o .prom para Prometheus), o null para no exportarlas
+  */
+ public void setMetricas(Path metricas) {
+     this.metricas = metricas;
+ }
+
+ /**
+  * Establece la carpeta donde se exporta el cubo de ventas de la
+  * configuración después de procesar cada lote de archivos nuevos.
+  *
+  * @param analisis Carpeta de destino, o null para no exportarlo
+  */
+ public void setAnalisis(Path analisis) {
+     this.analisis = analisis;
+ }
+
+ /**
+  * Establece el servidor de consultas donde se publican los totales
+  * después de procesar cada lote de archivos nuevos.
+  *
+  * @param servidor Servidor de consultas, o null para no publicarlos
+  */
+ public void setServidor(ServidorConsultas servidor) {
+     this.servidor = servidor;
+ }
+
+ /**
+  * Procesa los archivos existentes y vigila la carpeta hasta que el hilo
+  * sea interrumpido.
+  *
+  * @throws IOException Si ocurre un error de lectura o escritura
+  */
+ public void ejecutar() throws IOException {
+     try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+         // Registrar antes de procesar para no perder archivos creados entretanto
+         carpeta.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                 StandardWatchEventKinds.ENTRY_MODIFY);
+
+         procesar(archivosNoRegistrados());
+         System.out.println("Vigilando la carpeta " + carpeta + " (" + registro.size() + " archivos procesados)");
+
+         while (!Thread.currentThread().isInterrupted()) {
+             WatchKey key = watchService.poll(INTERVALO_MS, TimeUnit.MILLISECONDS);
+             if (key != null) {
+                 for (WatchEvent<?> event : key.pollEvents()) {
+                     if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                         // Se perdieron eventos: revisar toda la carpeta
+                         for (Path archivo : archivosNoRegistrados()) {
+                             pendientes.putIfAbsent(archivo, -1L);
+                         }
+                     } else {
+                         Path archivo = carpeta.resolve((Path) event.context());
+                         if (UtilsFile.esArchivoVentas(archivo.getFileName().toString(), configuracion)) {
+                             pendientes.putIfAbsent(archivo, -1L);
+                         }
+                     }
+                 }
+                 if (!key.reset()) {
+                     throw new IOException("La carpeta vigilada ya no es accesible: " + carpeta);
+                 }
+             }
+             procesar(archivosEstables());
+         }
+     } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+     }
+ }
+
+ /**
+  * Obtiene los archivos de ventas de la carpeta que no están en el registro.
+  */
+ private List<Path> archivosNoRegistrados() {
+     List<Path> archivos = new ArrayList<>();
+     File[] files = UtilsFile.listarArchivosVentas(carpeta.toString(), configuracion);
+     if (files != null) {
+         for (File file : files) {
+             if (!registro.contiene(file.getName())) {
+                 archivos.add(file.toPath());
+             }
+         }
+     }
+     return archivos;
+ }
+
+ /**
+  * Retira de los pendientes los archivos cuyo tamaño no cambió desde la
+  * revisión anterior.
+  */
+ private List<Path> archivosEstables() throws IOException {
+     List<Path> estables = new ArrayList<>();
+     for (Map.Entry<Path, Long> entry : new ArrayList<>(pendientes.entrySet())) {
+         Path archivo = entry.getKey();
+         if (!Files.exists(archivo)) {
+             pendientes.remove(archivo);
+             continue;
+         }
+         long tamano = Files.size(archivo);
+         if (tamano > 0 && tamano == entry.getValue()) {
+             pendientes.remove(archivo);
+             estables.add(archivo);
+         } else {
+             pendientes.put(archivo, tamano);
+         }
+     }
+     return estables;
+ }
+
+ /**
+  * Acumula los archivos indicados, los registra y regenera los reportes.
+  * Los archivos ya registrados se omiten para no contarlos dos veces.
+  */
+ private void procesar(List<Path> archivos) throws IOException {
+     List<File> nuevos = new ArrayList<>();
+     for (Path archivo : archivos) {
+         String nombre = archivo.getFileName().toString();
+         if (!registro.contiene(nombre)) {
+             nuevos.add(archivo.toFile());
+         } else if (registro.cambio(archivo)) {
+             System.out.println("Archivo ya procesado fue modificado, se ignora: " + archivo);
+             RegistroRechazos.global().rechazar(RegistroRechazos.Categoria.ARCHIVO_MODIFICADO, archivo.toString(),
+                                                nombre);
+         }
+     }
+     if (nuevos.isEmpty()) {
+         return;
+     }
+
+     long inicio = System.nanoTime();
+     UtilsFile.procesarArchivosVentas(nuevos.toArray(new File[0]), catalogo, configuracion);
+     for (File file : nuevos) {
+         registro.registrar(file.toPath());
+     }
+     Fragmento fragmento = configuracion.getFragmento();
+     if (instantanea != null) {
+         Instantanea.guardar(instantanea, productos.values(), vendedores.values(), registro, fragmento);
+         if (contenidos != null && configuracion.getContenidos() != null) {
+             configuracion.getContenidos().guardar(contenidos);
+         }
+     }
+     if (!fragmento.equals(Fragmento.COMPLETO)) {
+         // Los totales de un fragmento son parciales: se guardan para fusionarlos, sin reportes
+         Instantanea.guardar(parcial, productos.values(), vendedores.values(), registro, fragmento);
+     } else {
+         UtilsFile.generarReporteVendedores(vendedores.values(), reporteVendedoresPath, topK);
+         UtilsFile.generarReporteProductos(productos.values(), reporteProductosPath, topK);
+     }
+     if (metricas != null) {
+         MetricasPipeline.global().exportar(metricas);
+     }
+     if (analisis != null && configuracion.getCubo() != null) {
+         configuracion.getCubo().exportar(analisis);
+     }
+     if (servidor != null) {
+         servidor.publicar(productos.values(), vendedores.values());
+     }
+     if (RegistroRechazos.global().getTotal() > rechazosMostrados) {
+         rechazosMostrados = RegistroRechazos.global().getTotal();
+         System.out.println(RegistroRechazos.global().resumen());
+     }
+
+     System.out.printf("Archivos procesados: %d en %.1f ms%n", nuevos.size(), (System.nanoTime() - inicio) / 1e6);
+ }
+}